@@ -0,0 +1,144 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic.ctl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jpf.logic.PartialTransitionSystem;
+import jpf.logic.PartialTransitionSystemGenerator;
+import jpf.logic.Result;
+
+/**
+ * Benchmarks the temporal operators of the CTL model checker on random
+ * partial transition systems of different sizes and branching factors.
+ * Each benchmark checks a formula with a single temporal operator whose
+ * arguments are labels, using a new model checker so that nothing is cached.
+ * Run with gradle jmh; the gc profiler reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class CTLModelCheckerBenchmark {
+
+	// fraction of the states that is partially explored
+	private static final double PARTIAL = 0.1;
+	// fraction of the states labelled with a
+	private static final double A = 0.5;
+	// fraction of the states labelled with b
+	private static final double B = 0.1;
+
+	private static final CTLFormula a = new Alias("a");
+	private static final CTLFormula b = new Alias("b");
+
+	/**
+	 * The number of states.
+	 */
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int states;
+
+	/**
+	 * The number of successors of each state.
+	 */
+	@Param({ "1", "2", "4" })
+	public int branching;
+
+	private PartialTransitionSystem system;
+
+	/**
+	 * Creates a random partial transition system in which each state has the
+	 * same number of successors.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<String, Double> labels = new HashMap<String, Double>();
+		labels.put(a.toString(), A);
+		labels.put(b.toString(), B);
+		PartialTransitionSystemGenerator generator = new PartialTransitionSystemGenerator(this.states + this.branching, PARTIAL, labels);
+		this.system = generator.random(this.states, this.branching);
+	}
+
+	/**
+	 * Checks the given formula with a new model checker.
+	 *
+	 * @param formula a CTL formula
+	 * @return the result of checking the formula
+	 */
+	private Result check(CTLFormula formula) {
+		CTLModelChecker checker = new CTLModelChecker();
+		checker.setPartialTransitionSystem(this.system);
+		return checker.check(formula);
+	}
+
+	@Benchmark
+	public Result existsNext() {
+		return this.check(new ExistsNext(a));
+	}
+
+	@Benchmark
+	public Result forAllNext() {
+		return this.check(new ForAllNext(a));
+	}
+
+	@Benchmark
+	public Result existsUntil() {
+		return this.check(new ExistsUntil(a, b));
+	}
+
+	@Benchmark
+	public Result forAllUntil() {
+		return this.check(new ForAllUntil(a, b));
+	}
+
+	@Benchmark
+	public Result existsAlways() {
+		return this.check(new ExistsAlways(a));
+	}
+
+	@Benchmark
+	public Result forAllAlways() {
+		return this.check(new ForAllAlways(a));
+	}
+
+	@Benchmark
+	public Result existsEventually() {
+		return this.check(new ExistsEventually(b));
+	}
+
+	@Benchmark
+	public Result forAllEventually() {
+		return this.check(new ForAllEventually(b));
+	}
+}
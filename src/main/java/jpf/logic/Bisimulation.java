@@ -0,0 +1,375 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+
+/**
+ * The coarsest bisimulation of a partial transition system that respects its
+ * labels and partially explored states, computed by the partition refinement
+ * algorithm of Paige and Tarjan in O(m log n) time, where n is the number of
+ * states and m the number of transitions.  Bisimilar states satisfy the same
+ * formulas, so that a formula can be checked for the (often much smaller)
+ * quotient of the system instead (see {@link Quotient}).
+ *
+ * <p>
+ * The states are kept in an array in which the states of each block are
+ * consecutive.  A block is split by moving the states of the splitter to the
+ * front of the block; the smaller of the two parts becomes a new block.  The
+ * blocks are grouped into super blocks, such that the partition into blocks is
+ * stable with respect to every super block.  As long as some super block
+ * consists of more than one block, its smaller block B is turned into a super
+ * block of its own and the blocks are split with respect to B and the rest S - B
+ * of its former super block S.  For each state x and super block S, the number
+ * of transitions from x into S is counted, so that the states with a
+ * transition into B but none into S - B are found in time proportional to the
+ * number of transitions into B.  Counters that no longer count any transition
+ * are reused, so that the counters take O(n + m) space.
+ * </p>
+ */
+public class Bisimulation {
+
+	// the states, such that the states of each block are consecutive
+	private final int[] elements;
+	// for each state, its index in elements
+	private final int[] positions;
+	// for each state, its block
+	private final int[] blockOf;
+	// for each block, the index in elements of its first state
+	private final int[] starts;
+	// for each block, the index in elements following its last state
+	private final int[] ends;
+	// for each block, the number of its states that are moved to its front
+	private final int[] marked;
+	// number of blocks
+	private int numberOfBlocks;
+
+	// for each block, its super block
+	private final int[] superOf;
+	// for each block, the next and previous block of its super block, or -1
+	private final int[] nextBlock;
+	private final int[] previousBlock;
+	// for each super block, its first block
+	private final int[] firstBlock;
+	// for each super block, its number of blocks
+	private final int[] blocksOf;
+	// number of super blocks
+	private int numberOfSupers;
+	// super blocks that consist of more than one block
+	private final int[] compound;
+	private int numberOfCompound;
+	private final boolean[] isCompound;
+
+	// blocks whose states are moved to the front during a split
+	private final int[] touched;
+
+	/**
+	 * Computes the coarsest bisimulation of the given partial transition system
+	 * that respects its labels and partially explored states.
+	 *
+	 * @param system a partial transition system
+	 */
+	public Bisimulation(PartialTransitionSystem system) {
+		int n = system.getNumberOfStates();
+		this.elements = new int[n];
+		this.positions = new int[n];
+		this.blockOf = new int[n];
+		this.starts = new int[n + 1];
+		this.ends = new int[n + 1];
+		this.marked = new int[n + 1];
+		this.superOf = new int[n + 1];
+		this.nextBlock = new int[n + 1];
+		this.previousBlock = new int[n + 1];
+		this.firstBlock = new int[n + 1];
+		this.blocksOf = new int[n + 1];
+		this.compound = new int[n + 1];
+		this.isCompound = new boolean[n + 1];
+		this.touched = new int[n + 1];
+		if (n == 0) {
+			return;
+		}
+
+		// transitions and, for each state, its incoming transitions
+		CompactSuccessors successors = system.getCompactSuccessors();
+		int m = successors.getNumberOfTransitions();
+		int[] sources = new int[m];
+		int[] targets = new int[m];
+		int[] incoming = new int[n + 1];
+		int transition = 0;
+		for (int source = 0; source < successors.getNumberOfStates(); source++) {
+			for (PrimitiveIterator.OfInt iterator = successors.iterator(source); iterator.hasNext(); ) {
+				sources[transition] = source;
+				targets[transition] = iterator.nextInt();
+				incoming[targets[transition] + 1]++;
+				transition++;
+			}
+		}
+		for (int state = 0; state < n; state++) {
+			incoming[state + 1] += incoming[state];
+		}
+		int[] predecessors = new int[m];
+		int[] next = Arrays.copyOf(incoming, n);
+		for (transition = 0; transition < m; transition++) {
+			predecessors[next[targets[transition]]++] = transition;
+		}
+
+		// for each transition from x, the counter of the transitions from x into the super block of its target;
+		// the counters that count no transitions are free and linked through their counts, so that at most
+		// m counters are used after each step and at most n more are taken during a step
+		int[] counters = new int[m];
+		int[] counts = new int[n + m];
+		int numberOfCounts = n;
+		int free = -1;
+		for (transition = 0; transition < m; transition++) {
+			counters[transition] = sources[transition];
+			counts[sources[transition]]++;
+		}
+		for (int state = n - 1; state >= 0; state--) {
+			if (counts[state] == 0) {
+				counts[state] = free;
+				free = state;
+			}
+		}
+
+		// a single block and super block containing all states
+		for (int state = 0; state < n; state++) {
+			this.elements[state] = state;
+			this.positions[state] = state;
+		}
+		this.numberOfBlocks = 1;
+		this.ends[0] = n;
+		this.nextBlock[0] = -1;
+		this.previousBlock[0] = -1;
+		this.numberOfSupers = 1;
+		this.blocksOf[0] = 1;
+
+		// split with respect to the partially explored states, the states with successors and the labels
+		int[] splitter = new int[n];
+		int size = 0;
+		BitSet partial = system.getPartial();
+		for (int state = partial.nextSetBit(0); state != -1 && state < n; state = partial.nextSetBit(state + 1)) {
+			splitter[size++] = state;
+		}
+		this.split(splitter, size);
+		size = 0;
+		for (int state = 0; state < n; state++) {
+			if (successors.hasSuccessors(state)) {
+				splitter[size++] = state;
+			}
+		}
+		this.split(splitter, size);
+		for (StateSet states : system.getLabelSets().values()) {
+			size = 0;
+			for (int state = states.next(0); state != -1 && state < n; state = states.next(state + 1)) {
+				splitter[size++] = state;
+			}
+			this.split(splitter, size);
+		}
+
+		// refine
+		int[] block = new int[n];
+		int[] counterOf = new int[n]; // for each state, its counter of transitions into B, or -1
+		Arrays.fill(counterOf, -1);
+		int[] into = new int[n]; // for each state, one of its transitions into B
+		while (this.numberOfCompound > 0) {
+			int compound = this.compound[--this.numberOfCompound];
+			this.isCompound[compound] = false;
+
+			// remove the smaller of the first two blocks from the super block
+			int first = this.firstBlock[compound];
+			int second = this.nextBlock[first];
+			int smaller = this.size(first) <= this.size(second) ? first : second;
+			this.unlink(smaller);
+			this.superOf[smaller] = this.numberOfSupers;
+			this.firstBlock[this.numberOfSupers] = smaller;
+			this.blocksOf[this.numberOfSupers] = 1;
+			this.numberOfSupers++;
+			if (this.blocksOf[compound] > 1) {
+				this.push(compound);
+			}
+
+			// count the transitions into B of the states of pre(B)
+			int blockSize = 0;
+			for (int index = this.starts[smaller]; index < this.ends[smaller]; index++) {
+				block[blockSize++] = this.elements[index];
+			}
+			size = 0;
+			for (int index = 0; index < blockSize; index++) {
+				int target = block[index];
+				for (int incomingIndex = incoming[target]; incomingIndex < incoming[target + 1]; incomingIndex++) {
+					int source = sources[predecessors[incomingIndex]];
+					if (counterOf[source] == -1) {
+						if (free != -1) {
+							counterOf[source] = free;
+							free = counts[free];
+						} else {
+							counterOf[source] = numberOfCounts++;
+						}
+						counts[counterOf[source]] = 0;
+						into[source] = predecessors[incomingIndex];
+						splitter[size++] = source;
+					}
+					counts[counterOf[source]]++;
+				}
+			}
+
+			// split with respect to pre(B) and pre(B) - pre(S - B)
+			this.split(splitter, size);
+			int exclusive = 0;
+			int[] only = new int[size];
+			for (int index = 0; index < size; index++) {
+				int source = splitter[index];
+				if (counts[counters[into[source]]] == counts[counterOf[source]]) {
+					only[exclusive++] = source;
+				}
+			}
+			this.split(only, exclusive);
+
+			// the transitions into B are now counted by the counters of B
+			for (int index = 0; index < blockSize; index++) {
+				int target = block[index];
+				for (int incomingIndex = incoming[target]; incomingIndex < incoming[target + 1]; incomingIndex++) {
+					transition = predecessors[incomingIndex];
+					int counter = counters[transition];
+					if (--counts[counter] == 0) { // the counter is no longer used
+						counts[counter] = free;
+						free = counter;
+					}
+					counters[transition] = counterOf[sources[transition]];
+				}
+			}
+			for (int index = 0; index < size; index++) {
+				counterOf[splitter[index]] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Splits each block into its states that are contained in the first
+	 * size states of the given array and its other states.  The states in the
+	 * array are distinct.
+	 */
+	private void split(int[] states, int size) {
+		int numberOfTouched = 0;
+		for (int index = 0; index < size; index++) {
+			int state = states[index];
+			int block = this.blockOf[state];
+			if (this.marked[block] == 0) {
+				this.touched[numberOfTouched++] = block;
+			}
+			// swap the state with the first unmarked state of its block
+			int position = this.starts[block] + this.marked[block];
+			int other = this.elements[position];
+			this.elements[this.positions[state]] = other;
+			this.positions[other] = this.positions[state];
+			this.elements[position] = state;
+			this.positions[state] = position;
+			this.marked[block]++;
+		}
+		for (int index = 0; index < numberOfTouched; index++) {
+			int block = this.touched[index];
+			int marked = this.marked[block];
+			this.marked[block] = 0;
+			if (marked == this.size(block)) {
+				continue;
+			}
+
+			// the smaller part becomes a new block
+			int split = this.numberOfBlocks++;
+			if (2 * marked <= this.size(block)) {
+				this.starts[split] = this.starts[block];
+				this.ends[split] = this.starts[block] + marked;
+				this.starts[block] = this.ends[split];
+			} else {
+				this.starts[split] = this.starts[block] + marked;
+				this.ends[split] = this.ends[block];
+				this.ends[block] = this.starts[split];
+			}
+			for (int position = this.starts[split]; position < this.ends[split]; position++) {
+				this.blockOf[this.elements[position]] = split;
+			}
+
+			// add the new block to the super block
+			int compound = this.superOf[block];
+			this.superOf[split] = compound;
+			this.previousBlock[split] = block;
+			this.nextBlock[split] = this.nextBlock[block];
+			if (this.nextBlock[block] != -1) {
+				this.previousBlock[this.nextBlock[block]] = split;
+			}
+			this.nextBlock[block] = split;
+			this.blocksOf[compound]++;
+			if (!this.isCompound[compound]) {
+				this.push(compound);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given block from the list of blocks of its super block.
+	 */
+	private void unlink(int block) {
+		int compound = this.superOf[block];
+		if (this.previousBlock[block] == -1) {
+			this.firstBlock[compound] = this.nextBlock[block];
+		} else {
+			this.nextBlock[this.previousBlock[block]] = this.nextBlock[block];
+		}
+		if (this.nextBlock[block] != -1) {
+			this.previousBlock[this.nextBlock[block]] = this.previousBlock[block];
+		}
+		this.previousBlock[block] = -1;
+		this.nextBlock[block] = -1;
+		this.blocksOf[compound]--;
+	}
+
+	/**
+	 * Adds the given super block to the super blocks that consist of more than one block.
+	 */
+	private void push(int compound) {
+		this.compound[this.numberOfCompound++] = compound;
+		this.isCompound[compound] = true;
+	}
+
+	/**
+	 * Returns the number of states of the given block.
+	 */
+	private int size(int block) {
+		return this.ends[block] - this.starts[block];
+	}
+
+	/**
+	 * Returns the partition of the states into blocks of bisimilar states.
+	 *
+	 * @return for each state, its block
+	 */
+	public int[] getPartition() {
+		return this.blockOf;
+	}
+
+	/**
+	 * Returns the number of blocks of bisimilar states.
+	 *
+	 * @return the number of blocks
+	 */
+	public int getNumberOfBlocks() {
+		return this.numberOfBlocks;
+	}
+}
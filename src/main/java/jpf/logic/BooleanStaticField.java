@@ -2,6 +2,11 @@ package jpf.logic;
 
 import java.util.Properties;
 
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+import gov.nasa.jpf.vm.ElementInfo;
+
 /**
  * A label representing a boolean static field.
  * 
@@ -30,4 +35,33 @@ public class BooleanStaticField extends Label {
 	public String getMangledName() {
 		return "\"" + this.value + "__" + this.name.replaceAll("[$.]", "_") + "\"";
 	}
+
+	@Override
+	public boolean isBuiltIn() {
+		return true;
+	}
+
+	/**
+	 * Tests whether the static field has the value of this label.  The label 
+	 * does not hold if the class of the field has not been loaded or initialized
+	 * yet.
+	 */
+	@Override
+	public boolean holds(Search search) {
+		return this.holds(ClassLoaderInfo.getCurrentClassLoader());
+	}
+
+	/**
+	 * Tests whether the static field, of the class resolved by the given class
+	 * loader, has the value of this label.
+	 * 
+	 * @param loader a class loader, or null
+	 * @return true if the static field has the value of this label, false otherwise
+	 */
+	boolean holds(ClassLoaderInfo loader) {
+		int separator = this.name.lastIndexOf('.');
+		ClassInfo info = loader == null ? null : loader.getAlreadyResolvedClassInfo(this.name.substring(0, separator));
+		ElementInfo fields = info == null ? null : info.getStaticElementInfo();
+		return fields != null && fields.getBooleanField(this.name.substring(separator + 1)) == this.value;
+	}
 }
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The successors of the states of a transition system, stored compactly.  For
+ * each state, its successors are sorted and encoded as variable-length integers
+ * in a single byte array: the first successor is encoded as its (zigzag encoded)
+ * difference with the state and every subsequent successor as its difference
+ * with the previous successor minus one.  Since JPF numbers its states in the
+ * order in which they are discovered, successors are usually numerically close
+ * to their source and, hence, most successors take a single byte.  The encoded
+ * successors of state s are data[offsets[s]], ..., data[offsets[s + 1] - 1].
+ */
+public class CompactSuccessors {
+
+	// for each state, the position of its first successor in data
+	private final int[] offsets;
+	// the encoded successors of all states
+	private final byte[] data;
+
+	/**
+	 * Initializes these successors from the given compressed sparse row
+	 * representation: the successors of state s are targets[offsets[s]], ...,
+	 * targets[offsets[s + 1] - 1].  The successors may contain duplicates and
+	 * need not be sorted.  Note that the successors of each state are sorted in place.
+	 *
+	 * @param offsets for each state, the index of its first successor in targets
+	 * @param targets the successors of all states
+	 */
+	public CompactSuccessors(int[] offsets, int[] targets) {
+		int states = offsets.length - 1;
+		while (states > 0 && offsets[states - 1] == offsets[states]) { // no successors
+			states--;
+		}
+
+		// compute the size of the encoding
+		int size = 0;
+		for (int source = 0; source < states; source++) {
+			Arrays.sort(targets, offsets[source], offsets[source + 1]);
+			size += encodedSize(source, targets, offsets[source], offsets[source + 1]);
+		}
+
+		this.offsets = new int[states + 1];
+		this.data = new byte[size];
+		int position = 0;
+		for (int source = 0; source < states; source++) {
+			this.offsets[source] = position;
+			int previous = -1;
+			for (int index = offsets[source]; index < offsets[source + 1]; index++) {
+				int target = targets[index];
+				if (previous == -1) {
+					position = encode(zigzag(target - source), this.data, position);
+				} else if (target != previous) {
+					position = encode(target - previous - 1, this.data, position);
+				}
+				previous = target;
+			}
+		}
+		this.offsets[states] = position;
+	}
+
+	/**
+	 * Initializes these successors from the given map.
+	 *
+	 * @param successors for each state, its successors
+	 */
+	public CompactSuccessors(Map<Integer, BitSet> successors) {
+		this(toOffsets(successors), toTargets(successors));
+	}
+
+	/**
+	 * Returns the offsets of the compressed sparse row representation of the given map.
+	 *
+	 * @param successors for each state, its successors
+	 * @return the offsets of the compressed sparse row representation
+	 */
+	private static int[] toOffsets(Map<Integer, BitSet> successors) {
+		int states = 0;
+		for (int source : successors.keySet()) {
+			states = Math.max(states, source + 1);
+		}
+		int[] offsets = new int[states + 1];
+		for (Map.Entry<Integer, BitSet> entry : successors.entrySet()) {
+			offsets[entry.getKey() + 1] = entry.getValue().cardinality();
+		}
+		for (int state = 0; state < states; state++) {
+			offsets[state + 1] += offsets[state];
+		}
+		return offsets;
+	}
+
+	/**
+	 * Returns the targets of the compressed sparse row representation of the given map.
+	 *
+	 * @param successors for each state, its successors
+	 * @return the targets of the compressed sparse row representation
+	 */
+	private static int[] toTargets(Map<Integer, BitSet> successors) {
+		int[] offsets = toOffsets(successors);
+		int[] targets = new int[offsets[offsets.length - 1]];
+		for (Map.Entry<Integer, BitSet> entry : successors.entrySet()) {
+			int index = offsets[entry.getKey()];
+			BitSet post = entry.getValue();
+			for (int target = post.nextSetBit(0); target != -1; target = post.nextSetBit(target + 1)) {
+				targets[index++] = target;
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode the given sorted successors
+	 * of the given source.
+	 */
+	private static int encodedSize(int source, int[] targets, int from, int to) {
+		int size = 0;
+		int previous = -1;
+		for (int index = from; index < to; index++) {
+			int target = targets[index];
+			if (previous == -1) {
+				size += encodedSize(zigzag(target - source));
+			} else if (target != previous) {
+				size += encodedSize(target - previous - 1);
+			}
+			previous = target;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode the given nonnegative value.
+	 */
+	private static int encodedSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Encodes the given nonnegative value in the given data starting at the given position.
+	 *
+	 * @return the position following the encoded value
+	 */
+	private static int encode(int value, byte[] data, int position) {
+		while ((value & ~0x7f) != 0) {
+			data[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		data[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * Maps signed values to nonnegative values: 0, -1, 1, -2, 2, ... are mapped
+	 * to 0, 1, 2, 3, 4, ...
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Inverse of zigzag.
+	 */
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Returns the number of states, that is, one more than the largest state
+	 * that has successors.
+	 *
+	 * @return the number of states
+	 */
+	public int getNumberOfStates() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * Tests whether the given state has successors.
+	 *
+	 * @param state a state
+	 * @return true if the given state has successors, false otherwise
+	 */
+	public boolean hasSuccessors(int state) {
+		return state < this.offsets.length - 1 && this.offsets[state] < this.offsets[state + 1];
+	}
+
+	/**
+	 * Returns the number of successors of the given state.
+	 *
+	 * @param state a state
+	 * @return the number of successors of the given state
+	 */
+	public int getNumberOfSuccessors(int state) {
+		if (state >= this.offsets.length - 1) {
+			return 0;
+		}
+		int number = 0;
+		for (int position = this.offsets[state]; position < this.offsets[state + 1]; position++) {
+			if (this.data[position] >= 0) { // last byte of an encoded successor
+				number++;
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the number of transitions.
+	 *
+	 * @return the number of transitions
+	 */
+	public int getNumberOfTransitions() {
+		int number = 0;
+		for (byte b : this.data) {
+			if (b >= 0) { // last byte of an encoded successor
+				number++;
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Tests whether some successor of the given state is in the given set.
+	 *
+	 * @param state a state
+	 * @param set a set of states
+	 * @return true if some successor of the given state is in the given set,
+	 * false otherwise
+	 */
+	public boolean intersects(int state, StateSet set) {
+		if (state >= this.offsets.length - 1) {
+			return false;
+		}
+		int end = this.offsets[state + 1];
+		int position = this.offsets[state];
+		int target = -1;
+		while (position < end) {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			target = target == -1 ? state + unzigzag(value) : target + value + 1;
+			if (set.contains(target)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tests whether all successors of the given state are in the given set.
+	 *
+	 * @param state a state
+	 * @param set a set of states
+	 * @return true if all successors of the given state are in the given set,
+	 * false otherwise
+	 */
+	public boolean subset(int state, StateSet set) {
+		if (state >= this.offsets.length - 1) {
+			return true;
+		}
+		int end = this.offsets[state + 1];
+		int position = this.offsets[state];
+		int target = -1;
+		while (position < end) {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			target = target == -1 ? state + unzigzag(value) : target + value + 1;
+			if (!set.contains(target)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns an iterator over the successors of the given state in increasing order.
+	 *
+	 * @param state a state
+	 * @return an iterator over the successors of the given state
+	 */
+	public PrimitiveIterator.OfInt iterator(int state) {
+		return new SuccessorIterator(state);
+	}
+
+	/**
+	 * Returns the successors as a map.  States without successors are not
+	 * contained in the map.
+	 *
+	 * @return for each state that has successors, its successors
+	 */
+	public Map<Integer, BitSet> toMap() {
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
+		for (int state = 0; state < this.offsets.length - 1; state++) {
+			if (this.hasSuccessors(state)) {
+				BitSet post = new BitSet();
+				for (PrimitiveIterator.OfInt iterator = this.iterator(state); iterator.hasNext(); ) {
+					post.set(iterator.nextInt());
+				}
+				successors.put(state, post);
+			}
+		}
+		return successors;
+	}
+
+	/**
+	 * Returns the size of this representation in bytes, ignoring object headers.
+	 *
+	 * @return the size of this representation in bytes
+	 */
+	public long getSize() {
+		return 4L * this.offsets.length + this.data.length;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		return prime * Arrays.hashCode(this.offsets) + Arrays.hashCode(this.data);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object != null && this.getClass() == object.getClass()) {
+			CompactSuccessors other = (CompactSuccessors) object;
+			return Arrays.equals(this.offsets, other.offsets) && Arrays.equals(this.data, other.data);
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Iterator over the successors of a state.
+	 */
+	private class SuccessorIterator implements PrimitiveIterator.OfInt {
+		private final int state;
+		private final int end;
+		private int position;
+		private int target;
+
+		/**
+		 * Initializes this iterator for the given state.
+		 *
+		 * @param state a state
+		 */
+		public SuccessorIterator(int state) {
+			this.state = state;
+			if (state < CompactSuccessors.this.offsets.length - 1) {
+				this.position = CompactSuccessors.this.offsets[state];
+				this.end = CompactSuccessors.this.offsets[state + 1];
+			} else {
+				this.position = 0;
+				this.end = 0;
+			}
+			this.target = -1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < this.end;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = CompactSuccessors.this.data[this.position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			this.target = this.target == -1 ? this.state + unzigzag(value) : this.target + value + 1;
+			return this.target;
+		}
+	}
+}
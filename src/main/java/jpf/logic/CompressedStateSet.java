@@ -0,0 +1,996 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A compressed set of states.  The states are split into chunks of 2^16
+ * consecutive states, according to their 16 high bits.  Only the chunks
+ * that contain a state are stored.  The 16 low bits of the states of a chunk
+ * are stored in a container which is either
+ * <ul>
+ * <li>an array container: a sorted array of the low bits, for chunks with few states,</li>
+ * <li>a bitmap container: a bitmap of 2^16 bits, for chunks with many states, or</li>
+ * <li>a run container: a sorted array of runs of consecutive states, for
+ * chunks consisting of few intervals.</li>
+ * </ul>
+ * After an and, or, andNot or flip, the smallest of these containers is used.
+ * Hence, the complement of a set containing a few states is small as well.
+ */
+public class CompressedStateSet implements StateSet {
+
+	// number of words of a bitmap container
+	private static final int WORDS = 1 << 10;
+	// maximum number of elements of an array container
+	private static final int MAX_ARRAY = 1 << 12;
+	// number of elements of a chunk
+	private static final int CHUNK = 1 << 16;
+
+	// the 16 high bits of the states of the chunks, sorted
+	private int[] keys;
+	// the containers of the chunks
+	private Container[] containers;
+	// the number of chunks
+	private int size;
+
+	/**
+	 * Initializes this set as the empty set.
+	 */
+	public CompressedStateSet() {
+		this.keys = new int[4];
+		this.containers = new Container[4];
+		this.size = 0;
+	}
+
+	/**
+	 * Initializes this set with the states of the given bit set.
+	 *
+	 * @param set a bit set
+	 */
+	public CompressedStateSet(BitSet set) {
+		this();
+		long[] words = set.toLongArray();
+		for (int from = 0; from < words.length; from += WORDS) {
+			long[] chunk = Arrays.copyOfRange(words, from, from + WORDS);
+			Container container = fromWords(chunk);
+			if (container != null) {
+				this.insert(this.size, from / WORDS, container);
+			}
+		}
+	}
+
+	/**
+	 * Returns the given set as a compressed set.
+	 *
+	 * @param set a set of states
+	 * @return the given set as a compressed set
+	 */
+	private static CompressedStateSet compressed(StateSet set) {
+		if (set instanceof CompressedStateSet) {
+			return (CompressedStateSet) set;
+		} else {
+			return new CompressedStateSet(set.toBitSet());
+		}
+	}
+
+	/**
+	 * Returns the index of the chunk with the given key, if it exists.  Otherwise,
+	 * returns -(insertion point) - 1.
+	 */
+	private int index(int key) {
+		if (this.size > 0 && this.keys[this.size - 1] == key) { // states are often added in increasing order
+			return this.size - 1;
+		} else {
+			return Arrays.binarySearch(this.keys, 0, this.size, key);
+		}
+	}
+
+	/**
+	 * Inserts the given chunk at the given index.
+	 */
+	private void insert(int index, int key, Container container) {
+		if (this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+			this.containers = Arrays.copyOf(this.containers, 2 * this.size);
+		}
+		System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+		System.arraycopy(this.containers, index, this.containers, index + 1, this.size - index);
+		this.keys[index] = key;
+		this.containers[index] = container;
+		this.size++;
+	}
+
+	/**
+	 * Removes the chunk at the given index.
+	 */
+	private void remove(int index) {
+		System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+		System.arraycopy(this.containers, index + 1, this.containers, index, this.size - index - 1);
+		this.size--;
+		this.containers[this.size] = null;
+	}
+
+	/**
+	 * Replaces the container at the given index, or removes the chunk if the
+	 * given container is null.
+	 *
+	 * @return the index of the next chunk
+	 */
+	private int replace(int index, Container container) {
+		if (container == null) {
+			this.remove(index);
+			return index;
+		} else {
+			this.containers[index] = container;
+			return index + 1;
+		}
+	}
+
+	@Override
+	public boolean contains(int state) {
+		if (state < 0) {
+			return false;
+		}
+		int index = this.index(state >>> 16);
+		return index >= 0 && this.containers[index].contains(state & 0xffff);
+	}
+
+	@Override
+	public void add(int state) {
+		int key = state >>> 16;
+		int index = this.index(key);
+		if (index >= 0) {
+			this.containers[index] = this.containers[index].add(state & 0xffff);
+		} else {
+			this.insert(-index - 1, key, new ArrayContainer(state & 0xffff));
+		}
+	}
+
+	@Override
+	public void add(int from, int to) {
+		for (int key = from >>> 16; 0 <= from && from < to; key++) { // from becomes negative if (key + 1) << 16 overflows
+			int low = from & 0xffff;
+			int high = Math.min(to - (key << 16), CHUNK); // exclusive
+			int index = this.index(key);
+			if (index >= 0) {
+				long[] words = this.containers[index].toWords();
+				setRange(words, low, high);
+				this.containers[index] = fromWords(words);
+			} else {
+				this.insert(-index - 1, key, new RunContainer(low, high - low));
+			}
+			from = (key + 1) << 16;
+		}
+	}
+
+	@Override
+	public int next(int state) {
+		if (state < 0) {
+			state = 0;
+		}
+		int key = state >>> 16;
+		int index = this.index(key);
+		if (index >= 0) {
+			int next = this.containers[index].next(state & 0xffff);
+			if (next != -1) {
+				return (key << 16) | next;
+			}
+			index++;
+		} else {
+			index = -index - 1;
+		}
+		if (index < this.size) {
+			return (this.keys[index] << 16) | this.containers[index].next(0);
+		} else {
+			return -1;
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public int cardinality() {
+		int cardinality = 0;
+		for (int index = 0; index < this.size; index++) {
+			cardinality += this.containers[index].cardinality();
+		}
+		return cardinality;
+	}
+
+	@Override
+	public boolean intersects(StateSet set) {
+		CompressedStateSet other = compressed(set);
+		int index = 0;
+		int otherIndex = 0;
+		while (index < this.size && otherIndex < other.size) {
+			int key = this.keys[index];
+			int otherKey = other.keys[otherIndex];
+			if (key < otherKey) {
+				index++;
+			} else if (key > otherKey) {
+				otherIndex++;
+			} else {
+				if (intersects(this.containers[index], other.containers[otherIndex])) {
+					return true;
+				}
+				index++;
+				otherIndex++;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void and(StateSet set) {
+		CompressedStateSet other = compressed(set);
+		int index = 0;
+		int otherIndex = 0;
+		while (index < this.size) {
+			while (otherIndex < other.size && other.keys[otherIndex] < this.keys[index]) {
+				otherIndex++;
+			}
+			if (otherIndex < other.size && other.keys[otherIndex] == this.keys[index]) {
+				index = this.replace(index, and(this.containers[index], other.containers[otherIndex]));
+			} else {
+				this.remove(index);
+			}
+		}
+	}
+
+	@Override
+	public void or(StateSet set) {
+		CompressedStateSet other = compressed(set);
+		int index = 0;
+		for (int otherIndex = 0; otherIndex < other.size; otherIndex++) {
+			int otherKey = other.keys[otherIndex];
+			while (index < this.size && this.keys[index] < otherKey) {
+				index++;
+			}
+			if (index < this.size && this.keys[index] == otherKey) {
+				this.containers[index] = or(this.containers[index], other.containers[otherIndex]);
+			} else {
+				this.insert(index, otherKey, other.containers[otherIndex].copy());
+			}
+			index++;
+		}
+	}
+
+	@Override
+	public void andNot(StateSet set) {
+		CompressedStateSet other = compressed(set);
+		int index = 0;
+		int otherIndex = 0;
+		while (index < this.size && otherIndex < other.size) {
+			int key = this.keys[index];
+			int otherKey = other.keys[otherIndex];
+			if (key < otherKey) {
+				index++;
+			} else if (key > otherKey) {
+				otherIndex++;
+			} else {
+				index = this.replace(index, andNot(this.containers[index], other.containers[otherIndex]));
+				otherIndex++;
+			}
+		}
+	}
+
+	@Override
+	public void flip(int from, int to) {
+		for (int key = from >>> 16; 0 <= from && from < to; key++) { // from becomes negative if (key + 1) << 16 overflows
+			int low = from & 0xffff;
+			int high = Math.min(to - (key << 16), CHUNK); // exclusive
+			int index = this.index(key);
+			if (index >= 0) {
+				long[] words = this.containers[index].toWords();
+				flipRange(words, low, high);
+				this.replace(index, fromWords(words));
+			} else {
+				this.insert(-index - 1, key, new RunContainer(low, high - low));
+			}
+			from = (key + 1) << 16;
+		}
+	}
+
+	@Override
+	public CompressedStateSet copy() {
+		CompressedStateSet copy = new CompressedStateSet();
+		copy.keys = Arrays.copyOf(this.keys, Math.max(this.size, 1));
+		copy.containers = new Container[copy.keys.length];
+		for (int index = 0; index < this.size; index++) {
+			copy.containers[index] = this.containers[index].copy();
+		}
+		copy.size = this.size;
+		return copy;
+	}
+
+	@Override
+	public BitSet toBitSet() {
+		if (this.size == 0) {
+			return new BitSet();
+		}
+		long[] words = new long[(this.keys[this.size - 1] + 1) * WORDS];
+		for (int index = 0; index < this.size; index++) {
+			System.arraycopy(this.containers[index].toWords(), 0, words, this.keys[index] * WORDS, WORDS);
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Returns the size of this set in bytes, ignoring object headers.
+	 *
+	 * @return the size of this set in bytes
+	 */
+	public long getSize() {
+		long size = 8L * this.keys.length;
+		for (int index = 0; index < this.size; index++) {
+			size += this.containers[index].getSize();
+		}
+		return size;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int hashCode = 1;
+		for (int index = 0; index < this.size; index++) {
+			hashCode = prime * hashCode + this.keys[index];
+			hashCode = prime * hashCode + this.containers[index].hash();
+		}
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object != null && this.getClass() == object.getClass()) {
+			CompressedStateSet other = (CompressedStateSet) object;
+			if (this.size != other.size) {
+				return false;
+			}
+			for (int index = 0; index < this.size; index++) {
+				if (this.keys[index] != other.keys[index] || !equals(this.containers[index], other.containers[index])) {
+					return false;
+				}
+			}
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder toString = new StringBuilder("{");
+		for (int state = this.next(0); state != -1; state = this.next(state + 1)) {
+			if (toString.length() > 1) {
+				toString.append(", ");
+			}
+			toString.append(state);
+		}
+		return toString.append("}").toString();
+	}
+
+	/*
+	 * Operations on containers.
+	 */
+
+	/**
+	 * Returns the smallest container containing the elements of the given bitmap,
+	 * or null if the bitmap is empty.
+	 */
+	private static Container fromWords(long[] words) {
+		int cardinality = 0;
+		int runs = 0;
+		long previous = 0;
+		for (long word : words) {
+			cardinality += Long.bitCount(word);
+			runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63))); // first elements of runs
+			previous = word;
+		}
+		if (cardinality == 0) {
+			return null;
+		} else if (4 * runs <= Math.min(2 * cardinality, 8 * WORDS)) {
+			return new RunContainer(words, runs);
+		} else if (cardinality <= MAX_ARRAY) {
+			return new ArrayContainer(words, cardinality);
+		} else {
+			return new BitmapContainer(words, cardinality);
+		}
+	}
+
+	private static boolean intersects(Container first, Container second) {
+		if (first instanceof ArrayContainer) {
+			return ((ArrayContainer) first).intersects(second);
+		} else if (second instanceof ArrayContainer) {
+			return ((ArrayContainer) second).intersects(first);
+		} else {
+			long[] firstWords = first.toWords();
+			long[] secondWords = second.toWords();
+			for (int index = 0; index < WORDS; index++) {
+				if ((firstWords[index] & secondWords[index]) != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static Container and(Container first, Container second) {
+		if (first instanceof ArrayContainer) {
+			return ((ArrayContainer) first).filter(second, true);
+		} else if (second instanceof ArrayContainer) {
+			return ((ArrayContainer) second).filter(first, true);
+		} else {
+			long[] words = first.toWords();
+			long[] secondWords = second.toWords();
+			for (int index = 0; index < WORDS; index++) {
+				words[index] &= secondWords[index];
+			}
+			return fromWords(words);
+		}
+	}
+
+	private static Container or(Container first, Container second) {
+		if (first instanceof ArrayContainer && second instanceof ArrayContainer) {
+			ArrayContainer union = ((ArrayContainer) first).union((ArrayContainer) second);
+			if (union != null) {
+				return union;
+			}
+		}
+		long[] words = first.toWords();
+		long[] secondWords = second.toWords();
+		for (int index = 0; index < WORDS; index++) {
+			words[index] |= secondWords[index];
+		}
+		return fromWords(words);
+	}
+
+	private static Container andNot(Container first, Container second) {
+		if (first instanceof ArrayContainer) {
+			return ((ArrayContainer) first).filter(second, false);
+		} else {
+			long[] words = first.toWords();
+			long[] secondWords = second.toWords();
+			for (int index = 0; index < WORDS; index++) {
+				words[index] &= ~secondWords[index];
+			}
+			return fromWords(words);
+		}
+	}
+
+	private static boolean equals(Container first, Container second) {
+		if (first.cardinality() != second.cardinality()) {
+			return false;
+		} else if (first instanceof ArrayContainer && second instanceof ArrayContainer) {
+			ArrayContainer firstArray = (ArrayContainer) first;
+			ArrayContainer secondArray = (ArrayContainer) second;
+			for (int index = 0; index < firstArray.size; index++) {
+				if (firstArray.values[index] != secondArray.values[index]) {
+					return false;
+				}
+			}
+			return true;
+		} else {
+			return Arrays.equals(first.toWords(), second.toWords());
+		}
+	}
+
+	/**
+	 * Sets the bits from (inclusive) to (exclusive) of the given bitmap.
+	 */
+	private static void setRange(long[] words, int from, int to) {
+		for (int index = from >>> 6; index <= (to - 1) >>> 6; index++) {
+			words[index] |= mask(index, from, to);
+		}
+	}
+
+	/**
+	 * Flips the bits from (inclusive) to (exclusive) of the given bitmap.
+	 */
+	private static void flipRange(long[] words, int from, int to) {
+		for (int index = from >>> 6; index <= (to - 1) >>> 6; index++) {
+			words[index] ^= mask(index, from, to);
+		}
+	}
+
+	/**
+	 * Returns the bits of the word with the given index that are in the range
+	 * from (inclusive) to (exclusive).
+	 */
+	private static long mask(int index, int from, int to) {
+		long mask = -1L;
+		if (index == from >>> 6) {
+			mask &= -1L << from;
+		}
+		if (index == (to - 1) >>> 6) {
+			mask &= -1L >>> -to;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the first set bit of the given bitmap from the given bit on, or
+	 * -1 if there is no such bit.
+	 */
+	private static int nextSetBit(long[] words, int from) {
+		if (from >= CHUNK) {
+			return -1;
+		}
+		int index = from >>> 6;
+		long word = words[index] & (-1L << from);
+		while (word == 0) {
+			if (++index == WORDS) {
+				return -1;
+			}
+			word = words[index];
+		}
+		return (index << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Returns the first clear bit of the given bitmap from the given bit on, or
+	 * the number of bits of a chunk if there is no such bit.
+	 */
+	private static int nextClearBit(long[] words, int from) {
+		if (from >= CHUNK) {
+			return CHUNK;
+		}
+		int index = from >>> 6;
+		long word = ~words[index] & (-1L << from);
+		while (word == 0) {
+			if (++index == WORDS) {
+				return CHUNK;
+			}
+			word = ~words[index];
+		}
+		return (index << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * The elements of a chunk.  The elements are represented by their 16 low bits.
+	 */
+	private static abstract class Container {
+		/**
+		 * Tests whether the given element is in this container.
+		 */
+		abstract boolean contains(int element);
+
+		/**
+		 * Adds the given element to this container.
+		 *
+		 * @return the container containing the elements of this container and
+		 * the given element
+		 */
+		abstract Container add(int element);
+
+		/**
+		 * Returns the smallest element of this container that is greater than
+		 * or equal to the given element, or -1 if there is no such element.
+		 */
+		abstract int next(int element);
+
+		/**
+		 * Returns the number of elements of this container.
+		 */
+		abstract int cardinality();
+
+		/**
+		 * Returns the elements of this container as a (new) bitmap.
+		 */
+		abstract long[] toWords();
+
+		/**
+		 * Returns the hash code of the elements of this container, which only
+		 * depends on its maximal runs of consecutive elements, so that equal
+		 * containers of different kinds have the same hash code.
+		 */
+		abstract int hash();
+
+		/**
+		 * Returns a copy of this container.
+		 */
+		abstract Container copy();
+
+		/**
+		 * Returns the size of this container in bytes, ignoring object headers.
+		 */
+		abstract long getSize();
+	}
+
+	/**
+	 * A container of few elements, stored in a sorted array.
+	 */
+	private static class ArrayContainer extends Container {
+		private char[] values;
+		private int size;
+
+		ArrayContainer(int element) {
+			this.values = new char[4];
+			this.values[0] = (char) element;
+			this.size = 1;
+		}
+
+		ArrayContainer(char[] values, int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		ArrayContainer(long[] words, int cardinality) {
+			this.values = new char[cardinality];
+			this.size = 0;
+			for (int index = 0; index < WORDS; index++) {
+				long word = words[index];
+				while (word != 0) {
+					this.values[this.size++] = (char) ((index << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+
+		@Override
+		boolean contains(int element) {
+			return Arrays.binarySearch(this.values, 0, this.size, (char) element) >= 0;
+		}
+
+		@Override
+		Container add(int element) {
+			int index;
+			if (this.size > 0 && this.values[this.size - 1] < element) { // elements are often added in increasing order
+				index = -this.size - 1;
+			} else {
+				index = Arrays.binarySearch(this.values, 0, this.size, (char) element);
+			}
+			if (index >= 0) {
+				return this;
+			} else if (this.size == MAX_ARRAY) {
+				long[] words = this.toWords();
+				words[element >>> 6] |= 1L << element;
+				return new BitmapContainer(words, this.size + 1);
+			} else {
+				index = -index - 1;
+				if (this.size == this.values.length) {
+					this.values = Arrays.copyOf(this.values, Math.min(2 * this.size, MAX_ARRAY));
+				}
+				System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+				this.values[index] = (char) element;
+				this.size++;
+				return this;
+			}
+		}
+
+		@Override
+		int next(int element) {
+			int index = Arrays.binarySearch(this.values, 0, this.size, (char) element);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return index < this.size ? this.values[index] : -1;
+		}
+
+		@Override
+		int cardinality() {
+			return this.size;
+		}
+
+		@Override
+		long[] toWords() {
+			long[] words = new long[WORDS];
+			for (int index = 0; index < this.size; index++) {
+				words[this.values[index] >>> 6] |= 1L << this.values[index];
+			}
+			return words;
+		}
+
+		@Override
+		int hash() {
+			int hash = 1;
+			for (int index = 0; index < this.size; ) {
+				int start = this.values[index];
+				int end = start;
+				while (++index < this.size && this.values[index] == end + 1) {
+					end++;
+				}
+				hash = 31 * (31 * hash + start) + end;
+			}
+			return hash;
+		}
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(this.values, this.size), this.size);
+		}
+
+		@Override
+		long getSize() {
+			return 2L * this.values.length + 4;
+		}
+
+		/**
+		 * Tests whether some element of this container is in the given container.
+		 */
+		boolean intersects(Container other) {
+			for (int index = 0; index < this.size; index++) {
+				if (other.contains(this.values[index])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the container of the elements of this container that are
+		 * (if keep is true) or are not (if keep is false) in the given container,
+		 * or null if there are no such elements.
+		 */
+		Container filter(Container other, boolean keep) {
+			char[] values = new char[this.size];
+			int size = 0;
+			for (int index = 0; index < this.size; index++) {
+				if (other.contains(this.values[index]) == keep) {
+					values[size++] = this.values[index];
+				}
+			}
+			return size == 0 ? null : new ArrayContainer(values, size);
+		}
+
+		/**
+		 * Returns the union of this container and the given one, or null if
+		 * the union has too many elements for an array container.
+		 */
+		ArrayContainer union(ArrayContainer other) {
+			if (this.size + other.size > MAX_ARRAY) {
+				return null;
+			}
+			char[] values = new char[this.size + other.size];
+			int size = 0;
+			int index = 0;
+			int otherIndex = 0;
+			while (index < this.size || otherIndex < other.size) {
+				if (otherIndex == other.size || index < this.size && this.values[index] < other.values[otherIndex]) {
+					values[size++] = this.values[index++];
+				} else if (index == this.size || other.values[otherIndex] < this.values[index]) {
+					values[size++] = other.values[otherIndex++];
+				} else {
+					values[size++] = this.values[index++];
+					otherIndex++;
+				}
+			}
+			return new ArrayContainer(values, size);
+		}
+	}
+
+	/**
+	 * A container of many elements, stored in a bitmap.
+	 */
+	private static class BitmapContainer extends Container {
+		private final long[] words;
+		private int cardinality;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		boolean contains(int element) {
+			return (this.words[element >>> 6] & (1L << element)) != 0;
+		}
+
+		@Override
+		Container add(int element) {
+			long word = this.words[element >>> 6];
+			long bit = 1L << element;
+			if ((word & bit) == 0) {
+				this.words[element >>> 6] = word | bit;
+				this.cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		int next(int element) {
+			return nextSetBit(this.words, element);
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		long[] toWords() {
+			return this.words.clone();
+		}
+
+		@Override
+		int hash() {
+			int hash = 1;
+			for (int start = nextSetBit(this.words, 0); start != -1; ) {
+				int end = nextClearBit(this.words, start);
+				hash = 31 * (31 * hash + start) + end - 1;
+				start = nextSetBit(this.words, end);
+			}
+			return hash;
+		}
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(this.words.clone(), this.cardinality);
+		}
+
+		@Override
+		long getSize() {
+			return 8L * WORDS + 4;
+		}
+	}
+
+	/**
+	 * A container of elements that form few runs of consecutive elements.
+	 * The runs are stored by their first element and their length minus one.
+	 * Adjacent runs are merged, so that the runs are maximal.
+	 */
+	private static class RunContainer extends Container {
+		private char[] starts;
+		private char[] lengths;
+		private int size;
+		private int cardinality;
+
+		RunContainer(int start, int length) {
+			this.starts = new char[] { (char) start };
+			this.lengths = new char[] { (char) (length - 1) };
+			this.size = 1;
+			this.cardinality = length;
+		}
+
+		RunContainer(char[] starts, char[] lengths, int size, int cardinality) {
+			this.starts = starts;
+			this.lengths = lengths;
+			this.size = size;
+			this.cardinality = cardinality;
+		}
+
+		RunContainer(long[] words, int runs) {
+			this.starts = new char[runs];
+			this.lengths = new char[runs];
+			this.size = 0;
+			this.cardinality = 0;
+			for (int start = nextSetBit(words, 0); start != -1; ) {
+				int end = nextClearBit(words, start);
+				this.starts[this.size] = (char) start;
+				this.lengths[this.size] = (char) (end - start - 1);
+				this.size++;
+				this.cardinality += end - start;
+				start = nextSetBit(words, end);
+			}
+		}
+
+		/**
+		 * Returns the index of the last run that starts at or before the given
+		 * element, or -1 if there is no such run.
+		 */
+		private int run(int element) {
+			int index = Arrays.binarySearch(this.starts, 0, this.size, (char) element);
+			return index >= 0 ? index : -index - 2;
+		}
+
+		/**
+		 * Returns the last element of the run with the given index.
+		 */
+		private int end(int index) {
+			return this.starts[index] + this.lengths[index];
+		}
+
+		@Override
+		boolean contains(int element) {
+			int index = this.run(element);
+			return index >= 0 && element <= this.end(index);
+		}
+
+		/**
+		 * Adds the given element by extending the run that ends just before it
+		 * and/or the run that starts just after it, or by inserting a run of its
+		 * own.  Only if there would be too many runs for a run container, the
+		 * container is converted.
+		 */
+		@Override
+		Container add(int element) {
+			int index = this.run(element);
+			if (index >= 0 && element <= this.end(index)) {
+				return this;
+			}
+			boolean before = index >= 0 && this.end(index) + 1 == element;
+			boolean after = index + 1 < this.size && element + 1 == this.starts[index + 1];
+			if (before && after) { // merge the runs
+				this.lengths[index] = (char) (this.lengths[index] + this.lengths[index + 1] + 2);
+				System.arraycopy(this.starts, index + 2, this.starts, index + 1, this.size - index - 2);
+				System.arraycopy(this.lengths, index + 2, this.lengths, index + 1, this.size - index - 2);
+				this.size--;
+			} else if (before) {
+				this.lengths[index]++;
+			} else if (after) {
+				this.starts[index + 1]--;
+				this.lengths[index + 1]++;
+			} else if (4 * (this.size + 1) > Math.min(2 * (this.cardinality + 1), 8 * WORDS)) {
+				long[] words = this.toWords();
+				words[element >>> 6] |= 1L << element;
+				return fromWords(words);
+			} else {
+				if (this.size == this.starts.length) {
+					this.starts = Arrays.copyOf(this.starts, 2 * this.size);
+					this.lengths = Arrays.copyOf(this.lengths, 2 * this.size);
+				}
+				System.arraycopy(this.starts, index + 1, this.starts, index + 2, this.size - index - 1);
+				System.arraycopy(this.lengths, index + 1, this.lengths, index + 2, this.size - index - 1);
+				this.starts[index + 1] = (char) element;
+				this.lengths[index + 1] = 0;
+				this.size++;
+			}
+			this.cardinality++;
+			return this;
+		}
+
+		@Override
+		int next(int element) {
+			int index = this.run(element);
+			if (index >= 0 && element <= this.end(index)) {
+				return element;
+			} else if (index + 1 < this.size) {
+				return this.starts[index + 1];
+			} else {
+				return -1;
+			}
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		long[] toWords() {
+			long[] words = new long[WORDS];
+			for (int index = 0; index < this.size; index++) {
+				setRange(words, this.starts[index], this.end(index) + 1);
+			}
+			return words;
+		}
+
+		@Override
+		int hash() {
+			int hash = 1;
+			for (int index = 0; index < this.size; index++) {
+				hash = 31 * (31 * hash + this.starts[index]) + this.end(index);
+			}
+			return hash;
+		}
+
+		@Override
+		Container copy() {
+			return new RunContainer(Arrays.copyOf(this.starts, this.size), Arrays.copyOf(this.lengths, this.size), this.size, this.cardinality);
+		}
+
+		@Override
+		long getSize() {
+			return 4L * this.starts.length + 8;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An input stream that decompresses a gzip compressed file.  The file is
+ * decompressed by a separate thread, so that decompressing and processing the
+ * decompressed bytes happen concurrently.  The decompressed bytes are handed
+ * over in blocks through a bounded queue.
+ */
+class ConcurrentGZIPInputStream extends InputStream {
+
+	// size of the buffer used for reading the compressed file
+	private static final int BUFFER_SIZE = 1 << 16;
+	// size of a block of decompressed bytes
+	private static final int BLOCK_SIZE = 1 << 20;
+	// maximum number of blocks that have been decompressed but not yet read
+	private static final int CAPACITY = 4;
+	// marks the end of the decompressed bytes
+	private static final byte[] END = new byte[0];
+
+	private final BlockingQueue<byte[]> blocks;
+	private final Thread decompressor;
+	// exception thrown by the decompressor, if any
+	private volatile IOException exception;
+
+	// current block, the position of the next byte to be read and the number of bytes of the block
+	private byte[] block;
+	private int position;
+	private int length;
+
+	/**
+	 * Initializes this input stream for the gzip compressed file with the given name.
+	 *
+	 * @param fileName the name of a gzip compressed file
+	 * @throws IOException if the file cannot be opened or is not gzip compressed
+	 */
+	public ConcurrentGZIPInputStream(String fileName) throws IOException {
+		final InputStream input = new GZIPInputStream(new FileInputStream(fileName), BUFFER_SIZE);
+		this.blocks = new ArrayBlockingQueue<byte[]>(CAPACITY);
+		this.decompressor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				ConcurrentGZIPInputStream.this.decompress(input);
+			}
+		}, "decompress " + fileName);
+		this.decompressor.setDaemon(true);
+		this.decompressor.start();
+		this.block = END;
+		this.position = 0;
+		this.length = 0;
+	}
+
+	/**
+	 * Decompresses the given input into blocks and puts those in the queue.
+	 *
+	 * @param input the input to be decompressed
+	 */
+	private void decompress(InputStream input) {
+		try {
+			try {
+				int read;
+				do {
+					byte[] block = new byte[BLOCK_SIZE];
+					int length = 0;
+					do {
+						read = input.read(block, length, BLOCK_SIZE - length);
+						if (read > 0) {
+							length += read;
+						}
+					} while (read != -1 && length < BLOCK_SIZE);
+					if (length > 0) {
+						this.blocks.put(length == BLOCK_SIZE ? block : Arrays.copyOf(block, length));
+					}
+				} while (read != -1);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			this.exception = e;
+		} catch (InterruptedException e) {
+			return; // the stream has been closed
+		}
+		try {
+			this.blocks.put(END);
+		} catch (InterruptedException e) {
+			// the stream has been closed
+		}
+	}
+
+	/**
+	 * Makes sure that the current block has a byte that has not been read yet.
+	 *
+	 * @return true if there is such a byte, false if all bytes have been read
+	 * @throws IOException if something went wrong with decompressing
+	 */
+	private boolean hasNext() throws IOException {
+		if (this.position < this.length) {
+			return true;
+		} else if (this.block == null) { // end has been reached
+			return false;
+		} else {
+			try {
+				this.block = this.blocks.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Decompressing is interrupted");
+			}
+			if (this.block == END) {
+				this.block = null;
+				this.length = 0;
+				if (this.exception != null) {
+					throw this.exception;
+				}
+				return false;
+			}
+			this.position = 0;
+			this.length = this.block.length;
+			return true;
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (this.hasNext()) {
+			return this.block[this.position++] & 0xff;
+		} else {
+			return -1;
+		}
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		} else if (this.hasNext()) {
+			int read = Math.min(length, this.length - this.position);
+			System.arraycopy(this.block, this.position, buffer, offset, read);
+			this.position += read;
+			return read;
+		} else {
+			return -1;
+		}
+	}
+
+	@Override
+	public void close() {
+		this.decompressor.interrupt();
+	}
+}
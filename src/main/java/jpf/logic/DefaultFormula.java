@@ -32,6 +32,11 @@ public class DefaultFormula implements Formula {
 		return new HashSet<String>();
 	}
 
+	@Override
+	public boolean isStutterInsensitive() {
+		return false;
+	}
+
 	@Override
 	public Formula simplify() {
 		return this;
@@ -19,6 +19,8 @@ package jpf.logic;
 
 import java.util.Properties;
 
+import gov.nasa.jpf.search.Search;
+
 /**
  * A label representing a final state.
  * 
@@ -38,4 +40,14 @@ public class End extends Label {
 	public String getMangledName() {
 		return "end";
 	}
+
+	@Override
+	public boolean isBuiltIn() {
+		return true;
+	}
+
+	@Override
+	public boolean holds(Search search) {
+		return search.isEndState();
+	}
 }
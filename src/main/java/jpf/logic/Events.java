@@ -0,0 +1,116 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+/**
+ * Emits Java Flight Recorder events for the phases of jpf-logic and the
+ * fixpoints computed by the model checker.  The events are only created if
+ * the JVM supports Java Flight Recorder (Java 8 update 262 or later) and 
+ * are only committed if a recording is enabled for them, so that they can
+ * be left on.  The events are passed around as objects, so that the event 
+ * classes are not loaded by a JVM without Java Flight Recorder.
+ */
+public final class Events {
+
+	// whether the JVM supports Java Flight Recorder
+	private static final boolean SUPPORTED = isSupported();
+
+	private Events() { }
+
+	/**
+	 * Tests whether the JVM supports Java Flight Recorder events.
+	 * 
+	 * @return true if the JVM supports Java Flight Recorder events, false otherwise
+	 */
+	private static boolean isSupported() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Begins the phase with the given name.
+	 * 
+	 * @param phase the name of the phase
+	 * @return the event of the phase, or null if events are not supported
+	 */
+	public static Object beginPhase(String phase) {
+		if (SUPPORTED) {
+			PhaseEvent event = new PhaseEvent();
+			event.phase = phase;
+			event.begin();
+			return event;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Ends the phase of the given event.
+	 * 
+	 * @param event the event returned by beginPhase
+	 */
+	public static void endPhase(Object event) {
+		if (event != null) {
+			((PhaseEvent) event).commit();
+		}
+	}
+
+	/**
+	 * Begins a fixpoint computation.
+	 * 
+	 * @return the event of the fixpoint computation, or null if events are not supported
+	 */
+	public static Object beginFixpoint() {
+		if (SUPPORTED) {
+			FixpointEvent event = new FixpointEvent();
+			event.begin();
+			return event;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Ends the fixpoint computation of the given event.
+	 * 
+	 * @param event the event returned by beginFixpoint
+	 * @param formula the formula whose bound is computed
+	 * @param bound either lower or upper
+	 * @param iterations the number of iterations
+	 * @param states the number of states of the system
+	 * @param fixpoint the computed bound
+	 */
+	public static void endFixpoint(Object event, Formula formula, String bound, int iterations, int states, StateSet fixpoint) {
+		if (event != null) {
+			FixpointEvent fixpointEvent = (FixpointEvent) event;
+			fixpointEvent.end();
+			if (fixpointEvent.shouldCommit()) {
+				fixpointEvent.operator = formula.getClass().getSimpleName();
+				fixpointEvent.bound = bound;
+				fixpointEvent.iterations = iterations;
+				fixpointEvent.states = states;
+				fixpointEvent.size = fixpoint.cardinality();
+				fixpointEvent.commit();
+			}
+		}
+	}
+}
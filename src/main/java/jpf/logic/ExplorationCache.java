@@ -0,0 +1,161 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Decides whether the partial transition system produced by an earlier run
+ * of JPF can be reused.  The configuration of a run is fingerprinted by the
+ * properties that affect JPF's exploration and the files it produces (all
+ * properties except those of jpf-logic itself, apart from the aliases of the
+ * labels evaluated by {@link PartialTransitionSystemListener}, the labelling,
+ * whether the hashes of the states are recorded and the runs of a
+ * {@link Swarm}) and the contents of the
+ * class files and jar files on the classpath.  The fingerprint is stored in the file {@code <target>.fingerprint}
+ * next to the files {@code <target>.tra} and {@code <target>.lab}.
+ */
+public class ExplorationCache {
+
+	// prefix of the properties of jpf-logic, which do not affect the exploration
+	private static final String PREFIX = "jpf.logic.";
+	// prefix of the properties of jpf-logic that determine the labels evaluated by the listener
+	private static final String ALIAS = "jpf.logic.alias";
+	// prefix of the properties of jpf-logic that determine the runs of a swarm (see Swarm)
+	private static final String SWARM = "jpf.logic.swarm";
+	// properties of jpf-logic that determine the labelling and whether the .hash file is written
+	private static final Set<String> OUTPUT = new HashSet<String>(Arrays.asList("jpf.logic.labelling", "jpf.logic.hash"));
+
+	private final String target;
+
+	/**
+	 * Initializes this cache for the given target.
+	 *
+	 * @param target the base name of the .tra and .lab files
+	 */
+	public ExplorationCache(String target) {
+		this.target = target;
+	}
+
+	/**
+	 * Returns the fingerprint of the given configuration.
+	 *
+	 * @param properties the properties of a JPF configuration
+	 * @return the fingerprint of the configuration
+	 * @throws IOException if a file on the classpath cannot be read
+	 */
+	public static String fingerprint(Properties properties) throws IOException {
+		Fingerprint fingerprint = new Fingerprint();
+		for (String key : new TreeSet<String>(properties.stringPropertyNames())) {
+			if (!key.startsWith(PREFIX) || key.startsWith(ALIAS) || key.startsWith(SWARM) || OUTPUT.contains(key)) {
+				fingerprint.add(key + "=" + properties.getProperty(key));
+			}
+		}
+		String classpath = properties.getProperty("classpath");
+		if (classpath != null) {
+			for (String entry : classpath.split("[;,]")) {
+				File file = new File(entry.trim());
+				if (file.isDirectory()) {
+					addClassFiles(fingerprint, file, "");
+				} else if (file.isFile()) {
+					fingerprint.add(file.getPath());
+					fingerprint.add(file);
+				}
+			}
+		}
+		return fingerprint.digest();
+	}
+
+	/**
+	 * Adds the relative paths and contents of the class files in the given
+	 * directory and its subdirectories, in alphabetical order, to the given
+	 * fingerprint.
+	 */
+	private static void addClassFiles(Fingerprint fingerprint, File directory, String path) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			String name = path + "/" + file.getName();
+			if (file.isDirectory()) {
+				addClassFiles(fingerprint, file, name);
+			} else if (file.getName().endsWith(".class")) {
+				fingerprint.add(name);
+				fingerprint.add(file);
+			}
+		}
+	}
+
+	/**
+	 * Tests whether the partial transition system of the target has been
+	 * produced by a run of JPF with a configuration with the given fingerprint.
+	 *
+	 * @param fingerprint the fingerprint of a configuration
+	 * @return true if the .tra and .lab files of the target exist and have been
+	 * produced with the given fingerprint, false otherwise
+	 */
+	public boolean isExplored(String fingerprint) {
+		File file = new File(this.target + ".fingerprint");
+		if (!file.isFile()
+				|| !new File(PartialTransitionSystem.find(this.target + ".tra")).isFile()
+				|| !new File(PartialTransitionSystem.find(this.target + ".lab")).isFile()) {
+			return false;
+		}
+		try {
+			String stored = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+			return stored.equals(fingerprint);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Records that the partial transition system of the target is about to be
+	 * produced by a run of JPF whose configuration is not fingerprinted.
+	 */
+	public void invalidate() {
+		new File(this.target + ".fingerprint").delete();
+	}
+
+	/**
+	 * Records that the partial transition system of the target has been
+	 * produced by a run of JPF with a configuration with the given fingerprint.
+	 *
+	 * @param fingerprint the fingerprint of a configuration
+	 * @throws IOException if the fingerprint cannot be written
+	 */
+	public void store(String fingerprint) throws IOException {
+		PrintWriter writer = new PrintWriter(this.target + ".fingerprint");
+		writer.println(fingerprint);
+		writer.close();
+		if (writer.checkError()) {
+			throw new IOException("Fingerprint cannot be written to " + this.target + ".fingerprint");
+		}
+	}
+}
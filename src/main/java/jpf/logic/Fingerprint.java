@@ -0,0 +1,94 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A SHA-256 fingerprint of a sequence of strings and files.  Each string and
+ * file is terminated by a zero byte so that, for example, adding "ab" and "c"
+ * gives a different fingerprint than adding "a" and "bc".
+ */
+public class Fingerprint {
+
+	// size of the buffer used for reading files
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final MessageDigest digest;
+
+	/**
+	 * Initializes this fingerprint as the fingerprint of the empty sequence.
+	 */
+	public Fingerprint() {
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported");
+		}
+	}
+
+	/**
+	 * Adds the given string to this fingerprint.
+	 *
+	 * @param string a string
+	 */
+	public void add(String string) {
+		this.digest.update(string.getBytes(StandardCharsets.UTF_8));
+		this.digest.update((byte) 0);
+	}
+
+	/**
+	 * Adds the contents of the given file to this fingerprint.
+	 *
+	 * @param file a file
+	 * @throws IOException if the file cannot be read
+	 */
+	public void add(File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				this.digest.update(buffer, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+		this.digest.update((byte) 0);
+	}
+
+	/**
+	 * Returns this fingerprint as a hexadecimal string.  Afterwards, this
+	 * fingerprint is the fingerprint of the empty sequence.
+	 *
+	 * @return this fingerprint as a hexadecimal string
+	 */
+	public String digest() {
+		StringBuilder digest = new StringBuilder();
+		for (byte b : this.digest.digest()) {
+			digest.append(String.format("%02x", b));
+		}
+		return digest.toString();
+	}
+}
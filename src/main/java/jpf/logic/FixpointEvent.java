@@ -0,0 +1,49 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for the computation of a fixpoint by a model 
+ * checker.  This class should only be used through {@link Events}.
+ */
+@Name("jpf.logic.Fixpoint")
+@Label("Fixpoint")
+@Category("jpf-logic")
+@Description("Computation of a lower- or upperbound by a fixpoint")
+class FixpointEvent extends Event {
+	@Label("Operator")
+	String operator;
+
+	@Label("Bound")
+	String bound;
+
+	@Label("Iterations")
+	int iterations;
+
+	@Label("Number of states")
+	int states;
+
+	@Label("Size of the bound")
+	int size;
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * The states of a partial transition system on which a next run of JPF
+ * should focus to decide a verdict that may hold.  The value of the formula
+ * in the initial state is undecided because of the partially explored states
+ * that can be reached from the initial state via states whose value is
+ * undecided, that is, states in the upperbound but not in the lowerbound.
+ * The focus consists of these partially explored states and the states on
+ * shortest paths from the initial state to them, each ranked by its distance
+ * from the initial state.
+ *
+ * <p>
+ * Since the state numbers differ between runs of JPF, the focus is passed to
+ * the next run by the hashes of the states, which are recorded by
+ * {@link PartialTransitionSystemListener} in the file {@code <target>.hash}
+ * if the property jpf.logic.hash is true.  The focus file consists of lines
+ * of the form {@code <hash> <rank>}.
+ * </p>
+ */
+public class Focus {
+
+	// the states of the focus and their ranks, in order of increasing rank
+	private final Map<Integer, Integer> ranks;
+
+	/**
+	 * Initializes this focus for the given system and the given result of
+	 * model checking it.
+	 *
+	 * @param system a partial transition system
+	 * @param result the result of model checking a formula for the system
+	 */
+	public Focus(PartialTransitionSystem system, Result result) {
+		this(system, result, null);
+	}
+
+	/**
+	 * Initializes this focus for the given system, the given result of model
+	 * checking it and the given partially explored states that can influence
+	 * the verdict, as computed by {@link ModelChecker#getRelevant(Formula)}.
+	 * The focus then consists of the given states and the states on shortest
+	 * paths from the initial state to them.
+	 *
+	 * @param system a partial transition system
+	 * @param result the result of model checking a formula for the system
+	 * @param relevant the partially explored states that can influence the verdict, or null
+	 */
+	public Focus(PartialTransitionSystem system, Result result, Set<Integer> relevant) {
+		this.ranks = new LinkedHashMap<Integer, Integer>();
+		StateSet gap = result.getUpperSet();
+		gap.andNot(result.getLowerSet());
+		if (system.getNumberOfStates() == 0 || !gap.contains(0)) {
+			return;
+		}
+
+		// breadth first search from the initial state, through the undecided states unless the relevant states are known
+		CompactSuccessors successors = system.getCompactSuccessors();
+		BitSet partial = system.getPartial();
+		int[] parent = new int[system.getNumberOfStates()];
+		int[] distance = new int[system.getNumberOfStates()];
+		Arrays.fill(parent, -2);
+		parent[0] = -1;
+		Queue<Integer> queue = new ArrayDeque<Integer>();
+		queue.add(0);
+		Map<Integer, Integer> reached = new LinkedHashMap<Integer, Integer>();
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			if (partial.get(state) && (relevant == null || relevant.contains(state))) {
+				reached.put(state, distance[state]);
+			}
+			for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext();) {
+				int successor = iterator.nextInt();
+				if (parent[successor] == -2 && (relevant != null || gap.contains(successor))) {
+					parent[successor] = state;
+					distance[successor] = distance[state] + 1;
+					queue.add(successor);
+				}
+			}
+		}
+
+		// the partially explored states and their shortest paths
+		Map<Integer, Integer> focus = new HashMap<Integer, Integer>();
+		for (int state : reached.keySet()) {
+			for (int ancestor = state; ancestor != -1 && !focus.containsKey(ancestor); ancestor = parent[ancestor]) {
+				focus.put(ancestor, distance[ancestor]);
+			}
+		}
+		focus.entrySet().stream()
+				.sorted(Map.Entry.comparingByValue())
+				.forEach(entry -> this.ranks.put(entry.getKey(), entry.getValue()));
+	}
+
+	/**
+	 * Returns the states of this focus and their ranks, in order of increasing rank.
+	 *
+	 * @return the states of this focus and their ranks
+	 */
+	public Map<Integer, Integer> getRanks() {
+		return this.ranks;
+	}
+
+	/**
+	 * Writes this focus, in terms of the hashes of its states, to the file with
+	 * the given name.
+	 *
+	 * @param hashFileName the name of the file with the hashes of the states
+	 * @param focusFileName the name of the focus file
+	 * @return the number of states of this focus whose hash is written
+	 * @throws IOException if the hashes cannot be read or the focus cannot be written
+	 */
+	public int write(String hashFileName, String focusFileName) throws IOException {
+		PrintWriter writer = new PrintWriter(focusFileName);
+		int written = 0;
+		BufferedReader reader = new BufferedReader(new FileReader(hashFileName));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] part = line.trim().split(" ");
+				if (part.length == 2) {
+					Integer rank = this.ranks.get(Integer.parseInt(part[0]));
+					if (rank != null) {
+						writer.println(part[1] + " " + rank);
+						written++;
+					}
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("File " + hashFileName + " not in the correct format");
+		} finally {
+			reader.close();
+			writer.close();
+		}
+		return written;
+	}
+
+	/**
+	 * Reads the focus file with the given name.
+	 *
+	 * @param focusFileName the name of a focus file
+	 * @return a map from the hashes of the states of the focus to their ranks
+	 * @throws IOException if the focus file cannot be read
+	 */
+	public static Map<Long, Integer> read(String focusFileName) throws IOException {
+		Map<Long, Integer> ranks = new HashMap<Long, Integer>();
+		BufferedReader reader = new BufferedReader(new FileReader(focusFileName));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] part = line.trim().split(" ");
+				if (part.length == 2) {
+					ranks.put(Long.parseUnsignedLong(part[0], 16), Integer.parseInt(part[1]));
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("File " + focusFileName + " not in the correct format");
+		} finally {
+			reader.close();
+		}
+		return ranks;
+	}
+}
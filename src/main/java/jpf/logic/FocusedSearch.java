@@ -0,0 +1,99 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.search.heuristic.SimplePriorityHeuristic;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * A search of JPF that first expands the states of a {@link Focus}, in order
+ * of their rank, and then the remaining states in breadth first order.  The
+ * focus is read from the file given by the property jpf.logic.focus.  To use
+ * this search, set the property search.class to jpf.logic.FocusedSearch.
+ */
+public class FocusedSearch extends SimplePriorityHeuristic {
+
+	// heuristic value of the states that are not in the focus, before adding their depth
+	private static final int UNFOCUSED = Integer.MAX_VALUE / 2;
+
+	// the hashes of the states of the focus and their ranks
+	private final Map<Long, Integer> ranks;
+
+	/**
+	 * Initializes this search.
+	 *
+	 * @param config the configuration
+	 * @param vm the virtual machine
+	 */
+	public FocusedSearch(Config config, VM vm) {
+		super(config, vm);
+		Map<Long, Integer> ranks = new HashMap<Long, Integer>();
+		String fileName = config.getString("jpf.logic.focus");
+		if (fileName != null) {
+			try {
+				ranks = Focus.read(fileName);
+			} catch (IOException e) {
+				System.out.println("Search could not read file " + fileName);
+			}
+		}
+		this.ranks = ranks;
+	}
+
+	/**
+	 * Returns the rank of the current state if it is in the focus, and a larger
+	 * value that grows with the depth otherwise.  States with smaller values
+	 * are expanded first.
+	 *
+	 * @return the heuristic value of the current state
+	 */
+	@Override
+	protected int computeHeuristicValue() {
+		Integer rank = this.ranks.get(hash(this.vm));
+		if (rank == null) {
+			return UNFOCUSED + this.vm.getPathLength();
+		} else {
+			return rank;
+		}
+	}
+
+	/**
+	 * Returns a 64-bit hash of the current state of the given virtual machine.
+	 * The hash is computed from the same data as JPF's state matching, so that
+	 * it identifies the state across runs of JPF.
+	 *
+	 * @param vm a virtual machine
+	 * @return a hash of the current state
+	 */
+	public static long hash(VM vm) {
+		long hash = 0xcbf29ce484222325L; // FNV-1a
+		for (int value : vm.getSerializer().getStoringData()) {
+			hash ^= value;
+			hash *= 0x100000001b3L;
+		}
+		// spread the bits
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -59,6 +59,15 @@ public interface Formula {
 	 */
 	public Set<String> getAliases();
 	
+	/**
+	 * Tests whether this formula is insensitive to stuttering, that is, whether
+	 * its value in a state does not change if a state is merged with its only
+	 * successor that has the same labels.
+	 * 
+	 * @return true if this formula is insensitive to stuttering, false otherwise
+	 */
+	public boolean isStutterInsensitive();
+	
 	/**
 	 * Returns a simplified formula that is equivalent to this formula.
 	 * 
@@ -19,6 +19,8 @@ package jpf.logic;
 
 import java.util.Properties;
 
+import gov.nasa.jpf.search.Search;
+
 /**
  * A label representing the initial state.
  * 
@@ -39,4 +41,14 @@ public class Initial extends Label {
 	public String getMangledName() {
 		return "init";
 	}
+
+	@Override
+	public boolean isBuiltIn() {
+		return true;
+	}
+
+	@Override
+	public boolean holds(Search search) {
+		return search.getStateId() == 0;
+	}
 }
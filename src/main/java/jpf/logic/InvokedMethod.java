@@ -2,6 +2,8 @@ package jpf.logic;
 
 import java.util.Properties;
 
+import gov.nasa.jpf.vm.MethodInfo;
+
 /**
  * A label representing a method invocation.
  * 
@@ -35,4 +37,27 @@ public class InvokedMethod extends Label {
 			return "NO NAME";
 		}
 	}
+
+	@Override
+	public boolean isBuiltIn() {
+		return true;
+	}
+
+	@Override
+	public boolean isInvoked(MethodInfo method) {
+		return this.isInvoked(method.getBaseName(), method.getArgumentTypeNames());
+	}
+
+	/**
+	 * Tests whether the method with the given name and types of arguments is
+	 * the method of this label.
+	 * 
+	 * @param name the fully qualified name of a method
+	 * @param argumentTypeNames the names of the types of the arguments of the method
+	 * @return true if the method is the method of this label, false otherwise
+	 */
+	boolean isInvoked(String name, String[] argumentTypeNames) {
+		return name.equals(this.name) 
+				&& String.join(",", argumentTypeNames).equals(this.parameters.substring(1, this.parameters.length() - 1));
+	}
 }
@@ -22,6 +22,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.Types;
 
 /**
@@ -37,6 +40,49 @@ public abstract class Label {
 	public abstract Properties getProperties(); 
 	
 	public abstract String getMangledName();
+
+	/**
+	 * Tests whether this label can be evaluated by
+	 * {@link PartialTransitionSystemListener} itself, without jpf-label.
+	 * 
+	 * @return true if this label can be evaluated by the listener, false otherwise
+	 */
+	public boolean isBuiltIn() {
+		return false;
+	}
+
+	/**
+	 * Tests whether this label holds in the state the given search has just
+	 * advanced to.
+	 * 
+	 * @param search the search
+	 * @return true if this label holds in the current state, false otherwise
+	 */
+	public boolean holds(Search search) {
+		return false;
+	}
+
+	/**
+	 * Tests whether this label holds in the target state of a transition in 
+	 * which the given method is invoked.
+	 * 
+	 * @param method the invoked method
+	 * @return true if this label holds in the target state, false otherwise
+	 */
+	public boolean isInvoked(MethodInfo method) {
+		return false;
+	}
+
+	/**
+	 * Tests whether this label holds in the target state of a transition in 
+	 * which the given exception is thrown.
+	 * 
+	 * @param exception the thrown exception
+	 * @return true if this label holds in the target state, false otherwise
+	 */
+	public boolean isThrown(ElementInfo exception) {
+		return false;
+	}
 	
 	/**
 	 * It returns the Class object corresponding to the given string representation.
@@ -17,23 +17,26 @@
 
 package jpf.logic;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.report.Statistics;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.Constructor;
@@ -46,13 +49,25 @@ import java.lang.reflect.InvocationTargetException;
  */
 public class Main {
 
+	/**
+	 * Maximum number of relevant states that is printed.
+	 */
+	private static final int MAX_RELEVANT = 10;
+
+	/**
+	 * Locks of the targets, keyed by their canonical path.
+	 */
+	private static final Map<String, Object> TARGETS = new ConcurrentHashMap<String, Object>();
+
 	/**
 	 * Help message.
 	 */
 	private static final String HELP = "Usage:\n"
 			+ "  java jpf.logic.Main -help                 prints this message\n"
 			+ "  java jpf.logic.Main sample.jpf            runs jpf-logic with configuration file sample.jpf\n"
-			+ "  java jpf.logic.Main -verbose sample.jpf   runs jpf-logic with configuration file sample.jpf in verbose mode";
+			+ "  java jpf.logic.Main -verbose sample.jpf   runs jpf-logic with configuration file sample.jpf in verbose mode\n"
+			+ "  java jpf.logic.Main -sweep sample.jpf     runs jpf-logic for the grid of configurations of configuration file sample.jpf\n"
+			+ "  java jpf.logic.Main -server [port]        runs jpf-logic as a server listening on the given port (default " + Server.DEFAULT_PORT + ")";
 
 	/**
 	 * 
@@ -73,19 +88,80 @@ public class Main {
 		} else if (args.length > 1 && args[0].equals("-verbose") && args[1].endsWith(".jpf")) {
 			logger.setLevel(Level.INFO);
 			fileName = args[1];
+		} else if (args.length > 1 && args[0].equals("-sweep") && args[1].endsWith(".jpf")) {
+			logger.setLevel(Level.SEVERE);
+			try {
+				Sweep sweep = new Sweep(args[1], logger);
+				List<String> verdicts = sweep.run();
+				for (int index = 0; index < verdicts.size(); index++) {
+					System.out.println(sweep.getGrid().get(index) + ": " + verdicts.get(index));
+				}
+			} catch (CheckException e) {
+				logger.severe(e.getMessage());
+			}
+			System.exit(0);
+		} else if (args[0].equals("-server")) {
+			logger.setLevel(Level.SEVERE);
+			int port = Server.DEFAULT_PORT;
+			if (args.length > 1) {
+				try {
+					port = Integer.parseInt(args[1]);
+				} catch (NumberFormatException e) {
+					System.out.println(HELP);
+					System.exit(0);
+				}
+			}
+			File tokenFile = new File(System.getProperty("user.home"), ".jpf-logic-" + port + ".token");
+			try {
+				Server server = new Server(port, Runtime.getRuntime().availableProcessors(), Server.DEFAULT_SYSTEMS, tokenFile, logger);
+				System.out.println("Listening on port " + server.getPort() + " with the token in " + tokenFile);
+				server.run();
+			} catch (IOException e) {
+				logger.severe("Server cannot listen on port " + port + " or write its token to " + tokenFile);
+			}
+			System.exit(0);
 		} else {
 			System.out.println(HELP);
 			System.exit(0);
 		}
 
+		try {
+			check(fileName, null, logger, null, System.out);
+		} catch (CheckException e) {
+			logger.severe(e.getMessage());
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Runs jpf-logic with the configuration file with the given name and
+	 * returns the verdict: holds, does not hold or may hold.  If an output
+	 * stream is given, the verdict is printed to it and, if the formula may
+	 * hold, so are the partially explored states that can influence the
+	 * verdict.  The given properties, if any, override those of the
+	 * configuration file.  If a cache of systems is given, partial transition
+	 * systems are taken from and added to it.  Checks of the same target are
+	 * not concurrent, since they share the files of the target.
+	 *
+	 * @param fileName the name of a configuration file
+	 * @param overrides properties overriding those of the configuration file, or null
+	 * @param logger the logger
+	 * @param systems a cache of partial transition systems, or null
+	 * @param output the stream to which the verdict is printed, or null
+	 * @return the verdict
+	 * @throws CheckException if jpf-logic cannot be run with the configuration
+	 */
+	public static String check(String fileName, Properties overrides, Logger logger, SystemCache systems, PrintStream output) throws CheckException {
 		File file = new File(fileName);
 		if (file.exists() && !file.isDirectory()) { 
 			logger.info("Configuration file " + file + " is found");
 		} else {
-			logger.severe("Configuration file " + file + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Configuration file " + file + " cannot be found");
 		}
 
+		Report report = new Report();
+		Object phase = Events.beginPhase("load configuration");
+		long start = System.nanoTime();
 		Properties properties = new Properties();
 		try {
 			FileInputStream stream = new FileInputStream(file);
@@ -93,17 +169,21 @@ public class Main {
 			properties.load(stream);
 			logger.info("Properties of configuration file " + file + " are loaded");
 			stream.close();
+			if (overrides != null) {
+				properties.putAll(overrides);
+			}
 		} catch (FileNotFoundException e) {
-			logger.severe("Configuration file " + file + " cannot be read");
-			System.exit(0);
+			throw new CheckException("Configuration file " + file + " cannot be read");
 		} catch (IOException e) {
-			logger.severe("Configuration file " + file + " cannot be closed");
-			System.exit(0);
+			throw new CheckException("Configuration file " + file + " cannot be closed");
 		}
+		Events.endPhase(phase);
+		report.put("phases", "load configuration", (System.nanoTime() - start) / 1e6);
+		Swarm swarm = new Swarm(fileName, (Properties) properties.clone(), logger);
 
 		String formulaFileName = properties.getProperty("jpf.logic.formula");
 		if (formulaFileName == null) {
-			logger.severe("Property jpf.logic.formula cannot be found");
+			throw new CheckException("Property jpf.logic.formula cannot be found");
 		} else {
 			logger.info("Property jpf.logic.formula is found");
 		}
@@ -112,14 +192,12 @@ public class Main {
 		if (formulaFile.exists() && !formulaFile.isDirectory()) { 
 			logger.info("Formula file " + formulaFile + " is found");
 		} else {
-			logger.severe("Formula file " + formulaFile + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Formula file " + formulaFile + " cannot be found");
 		}
 
 		String parserName = properties.getProperty("jpf.logic.parser");
 		if (parserName == null) {
-			logger.severe("Property jpf.logic.parser cannot be found");
-			System.exit(0);
+			throw new CheckException("Property jpf.logic.parser cannot be found");
 		} else {
 			logger.info("Property jpf.logic.parser is found");
 		}
@@ -133,68 +211,40 @@ public class Main {
 			formulaParser = (FormulaParser) constructor.newInstance(new Object[] { });
 			logger.info("Instance of class " + parserName + " is constructed");
 		} catch (ClassNotFoundException e) {
-			logger.severe("Class " + parserName + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Class " + parserName + " cannot be found");
 		} catch (NoSuchMethodException e) {
-			logger.severe("Constructor of class " + parserName + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + parserName + " cannot be found");
 		} catch (SecurityException | IllegalAccessException e) {
-			logger.severe("Constructor of class " + parserName + " cannot be accessed");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + parserName + " cannot be accessed");
 		} catch (InstantiationException e) {
-			logger.severe("Class " + parserName + " is abstract");
-			System.exit(0);
+			throw new CheckException("Class " + parserName + " is abstract");
 		} catch (IllegalArgumentException e) {
-			logger.severe("Constructor of class " + parserName + " should not have parameters");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + parserName + " should not have parameters");
 		} catch (InvocationTargetException e) {
-			logger.severe("Constructor of class " + parserName + " throws an exception");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + parserName + " throws an exception");
 		}
 
 		String target = properties.getProperty("target");
 		if (target == null) {
-			logger.severe("Property target cannot be found");
-			System.exit(0);
+			throw new CheckException("Property target cannot be found");
 		} else {
 			logger.info("Property target is found");
 		}
 
 		String classpath = properties.getProperty("classpath");
 		if (classpath == null) {
-			logger.severe("Property classpath cannot be found");
-			System.exit(0);
+			throw new CheckException("Property classpath cannot be found");
 		} else {
 			logger.info("Property classpath is found");
 		}
 
-		// set listeners
-		String listener = properties.getProperty("listener");
-		if (listener == null) {
-			listener = "jpf.logic.PartialTransitionSystemListener;label.StateLabelText";
-		} else {
-			listener += ";jpf.logic.PartialTransitionSystemListener;label.StateLabelText";
-		}
-		properties.setProperty("listener", listener);
-		logger.info("Set property listener to " + listener);
-
-		// add listeners to native_classpath
-		String nativeClasspath = properties.getProperty("native_classpath");
-		if (nativeClasspath == null) {
-			nativeClasspath = "${jpf-logic}/build/libs/jpf-logic.jar;${jpf-label}/build/jpf-label.jar";
-		} else {
-			nativeClasspath += ";${jpf-logic}/build/libs/jpf-logic.jar;${jpf-label}/build/jpf-label.jar";
-		}
-		properties.setProperty("native_classpath", nativeClasspath);
-		logger.info("Set property native_classpath to " + nativeClasspath);
-
-		// use jpf-label
-		properties.setProperty("@using", "jpf-label");
-		logger.info("Use jpf-label");
-
 		// parse file with aliases and formula 
+		phase = Events.beginPhase("parse aliases and formula");
+		start = System.nanoTime();
 		Formula formula = null;
 		Map<String, String> namesToAliases = new HashMap<String, String>();
+		Map<String, Label> aliasesToLabels = new LinkedHashMap<String, Label>();
+		Map<String, String> aliasesToPropositions = new HashMap<String, String>();
 		try {
 			Scanner input = new Scanner(formulaFile);
 			int numberOfFormulas = 0;
@@ -205,48 +255,28 @@ public class Main {
 				} else if (line.contains(":")) { // alias
 					String[] part = line.split(":");
 					if (part.length != 2) {
-						logger.severe("Alias definition " + line + " is invalid");
-						System.exit(0);
+						throw new CheckException("Alias definition " + line + " is invalid");
 					} 
 					String alias = part[0].trim();
 					String atomicProposition = part[1].trim();
 					logger.info(alias + " is an alias for " + atomicProposition);
 
 					Label label = MyLabelParser.parse(atomicProposition);
-
-					String labelClass = properties.getProperty("label.class");
-					if (labelClass == null) {
-						labelClass = label.getLabelClass();
-					} else {
-						labelClass += ";" + label.getLabelClass();
-					}
-					properties.setProperty("label.class", labelClass);
-					logger.info("Add " + label.getLabelClass() + " to label.class");
-
-					for (String key : label.getProperties().stringPropertyNames()) {
-						String value = label.getProperties().getProperty(key);
-						String oldValue = properties.getProperty(key);
-						if (oldValue != null) {
-							value = oldValue + ";" + value;
-						}
-						properties.setProperty(key, value);
-						logger.info("Add " + value + " to " + key);
-					}
+					aliasesToLabels.put(alias, label);
+					aliasesToPropositions.put(alias, atomicProposition);
 
 					String mangledName = label.getMangledName();
 					namesToAliases.put(mangledName, alias);
 					logger.info("Map " + mangledName + " to " + alias);
 				} else { // formula
 					if (numberOfFormulas == 1) {
-						logger.severe("Line " + line + " is invalid (maybe more than one formula?)");
-						System.exit(0);
+						throw new CheckException("Line " + line + " is invalid (maybe more than one formula?)");
 					}
 					formula = formulaParser.parse(line);
 					String lineWithoutParentheses = line.replaceAll("\\(", "").replaceAll("\\)", "");
 					String formulaWithoutParentheses = formula.toString().replaceAll("\\(", "").replaceAll("\\)", "");
 					if (!lineWithoutParentheses.equals(formulaWithoutParentheses)) {
-						logger.severe("Formula " + line + " is invalid");
-						System.exit(0);
+						throw new CheckException("Formula " + line + " is invalid");
 					}
 					logger.info(formula + " is a formula");
 					numberOfFormulas++;
@@ -254,162 +284,564 @@ public class Main {
 			}
 			input.close();
 			if (numberOfFormulas == 0) {
-				logger.severe("No formula is found");
-				System.exit(0);
+				throw new CheckException("No formula is found");
 			}
 		} catch (FileNotFoundException e) {
-			logger.severe("Formula file " + formulaFile + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Formula file " + formulaFile + " cannot be found");
 		}
+		Events.endPhase(phase);
+		report.put("phases", "parse aliases and formula", (System.nanoTime() - start) / 1e6);
 
-		// run JPF
-		Config configuration = new Config(new String[] {});
-		configuration.putAll(properties);
-		logger.info(String.format("Create JPF configuration\n  target = %s\n  classpath = %s\n  native_classpath = %s\n  listener = %s\n  label.class = %s", 
-				configuration.getProperty("target"),
-				configuration.getProperty("classpath"),
-				configuration.getProperty("native_classpath"),
-				configuration.getProperty("listener"),
-				configuration.getProperty("label.class")));
-		JPF jpf = new JPF(configuration);
-		logger.info("Run JPF");
-		
-		PrintStream stdout = System.out;	
+		// evaluate the labels used by the formula in the listener, unless some label needs jpf-label
+		boolean builtIn = "builtin".equals(properties.getProperty("jpf.logic.labelling"));
+		for (String alias : formula.getAliases()) {
+			if (builtIn && (!aliasesToLabels.containsKey(alias) || !aliasesToLabels.get(alias).isBuiltIn())) {
+				logger.info("Label " + alias + " is evaluated by jpf-label");
+				builtIn = false;
+			}
+		}
+		if (builtIn) {
+			StringJoiner aliases = new StringJoiner(",");
+			namesToAliases.clear();
+			for (String alias : formula.getAliases()) {
+				aliases.add(alias);
+				properties.setProperty("jpf.logic.alias." + alias, aliasesToPropositions.get(alias));
+				namesToAliases.put(alias, alias);
+			}
+			properties.setProperty("jpf.logic.aliases", aliases.toString());
+			logger.info("Labels " + aliases + " are evaluated by the listener");
+		} else {
+			for (Label label : aliasesToLabels.values()) {
+				String labelClass = properties.getProperty("label.class");
+				if (labelClass == null) {
+					labelClass = label.getLabelClass();
+				} else {
+					labelClass += ";" + label.getLabelClass();
+				}
+				properties.setProperty("label.class", labelClass);
+				logger.info("Add " + label.getLabelClass() + " to label.class");
+
+				for (String key : label.getProperties().stringPropertyNames()) {
+					String value = label.getProperties().getProperty(key);
+					String oldValue = properties.getProperty(key);
+					if (oldValue != null) {
+						value = oldValue + ";" + value;
+					}
+					properties.setProperty(key, value);
+					logger.info("Add " + value + " to " + key);
+				}
+			}
+		}
+
+		// set listeners
+		String listener = properties.getProperty("listener");
+		if (listener == null) {
+			listener = builtIn ? "jpf.logic.PartialTransitionSystemListener" : "jpf.logic.PartialTransitionSystemListener;label.StateLabelText";
+		} else {
+			listener += builtIn ? ";jpf.logic.PartialTransitionSystemListener" : ";jpf.logic.PartialTransitionSystemListener;label.StateLabelText";
+		}
+		properties.setProperty("listener", listener);
+		logger.info("Set property listener to " + listener);
+
+		// add listeners to native_classpath
+		String nativeClasspath = properties.getProperty("native_classpath");
+		if (nativeClasspath == null) {
+			nativeClasspath = builtIn ? "${jpf-logic}/build/libs/jpf-logic.jar" : "${jpf-logic}/build/libs/jpf-logic.jar;${jpf-label}/build/jpf-label.jar";
+		} else {
+			nativeClasspath += builtIn ? ";${jpf-logic}/build/libs/jpf-logic.jar" : ";${jpf-logic}/build/libs/jpf-logic.jar;${jpf-label}/build/jpf-label.jar";
+		}
+		properties.setProperty("native_classpath", nativeClasspath);
+		logger.info("Set property native_classpath to " + nativeClasspath);
+
+		// use jpf-label
+		if (!builtIn) {
+			properties.setProperty("@using", "jpf-label");
+			logger.info("Use jpf-label");
+		}
+
+		// rounds of exploring the states that keep the verdict undecided
+		int rounds;
 		try {
-			if (logger.getLevel().equals(Level.SEVERE)) {
-				System.setOut(new PrintStream(target + ".log"));
+			rounds = Integer.parseInt(properties.getProperty("jpf.logic.focus.rounds", "0"));
+		} catch (NumberFormatException e) {
+			throw new CheckException("Property jpf.logic.focus.rounds is not a number");
+		}
+		if (rounds > 0) {
+			properties.setProperty("jpf.logic.hash", "true");
+		}
+
+		// checks of the same target share its files, so they are not concurrent
+		synchronized (lock(target)) {
+			// run JPF, unless the partial transition system can be reused
+			phase = Events.beginPhase("run JPF");
+			start = System.nanoTime();
+			Config configuration = new Config(new String[] {});
+			configuration.putAll(properties);
+			ExplorationCache explorations = new ExplorationCache(target);
+			String fingerprint = null;
+			if (Boolean.parseBoolean(properties.getProperty("jpf.logic.reuse", "false"))) {
+				try {
+					fingerprint = ExplorationCache.fingerprint(configuration);
+				} catch (IOException e) {
+					logger.severe("Classpath " + classpath + " cannot be read");
+				}
 			}
-		} catch (FileNotFoundException e1) {
-			logger.severe("Cannot write JPF's output to " + target + ".log");
-			System.exit(0);
-		}		
-		jpf.run();
-		System.setOut(stdout);
-		
-		// replace mangled names by aliases in .lab file
-		String inputFileName = target + ".lab";
-		String outputFileName = "temp.lab";
+			JPF jpf = null;
+			boolean checkpoint = Boolean.parseBoolean(properties.getProperty("jpf.logic.checkpoint.load", "false"))
+					&& new File(target + PartialTransitionSystem.CHECKPOINT).isFile();
+			if (checkpoint && !builtIn && !formula.getAliases().isEmpty()) {
+				// the labels of jpf-label are only written at the end of the search
+				throw new CheckException("Property jpf.logic.checkpoint.load requires jpf.logic.labelling=builtin");
+			}
+			if (checkpoint) {
+				logger.info("Load the latest checkpoint " + target + PartialTransitionSystem.CHECKPOINT);
+				report.put("jpf", "checkpoint", true);
+			} else if (fingerprint != null && explorations.isExplored(fingerprint)) {
+				logger.info("Reuse partial transition system " + target + ".tra/.lab");
+				report.put("jpf", "reused", true);
+			} else {
+				if (swarm.getSize() > 0) {
+					explorations.invalidate();
+					PartialTransitionSystem union = swarm.run(target);
+					report.put("swarm", "runs", swarm.getSize());
+					report.put("swarm", "states", union.getNumberOfStates());
+					report.put("swarm", "partial", union.getPartial().cardinality());
+				} else {
+					jpf = explore(configuration, target, explorations, logger);
+				}
+				if (fingerprint != null) {
+					try {
+						explorations.store(fingerprint);
+					} catch (IOException e) {
+						logger.severe("Cannot write fingerprint to " + target + ".fingerprint");
+					}
+				}
+			}
+			Events.endPhase(phase);
+			report.put("phases", "run JPF", (System.nanoTime() - start) / 1e6);
 		
-		File input = new File(inputFileName);
-		File output = new File(outputFileName);
+			String modelCheckerName = properties.getProperty("jpf.logic.model-checker");
+			if (modelCheckerName == null) {
+				throw new CheckException("Property jpf.logic.model-checker cannot be found");
+			} else {
+				logger.info("Property jpf.logic.model-checker is found");
+			}
+
+			ModelChecker modelChecker = createModelChecker(modelCheckerName, logger);
+
+			// consult the cache of results
+			ResultCache cache = null;
+			String key = null;
+			Result result = null;
+			String cacheDirectory = properties.getProperty("jpf.logic.cache");
+			if (cacheDirectory != null && rounds > 0) {
+				// the focus rounds need the partial transition system
+				logger.info("Cache " + cacheDirectory + " is not used since jpf.logic.focus.rounds is positive");
+			} else if (cacheDirectory != null && !checkpoint) {
+				try {
+					long cacheSize = Long.parseLong(properties.getProperty("jpf.logic.cache.size", "268435456"));
+					cache = new ResultCache(cacheDirectory, cacheSize);
+					key = ResultCache.key(target, namesToAliases, modelCheckerName, reductions(properties, formula), formula);
+					result = cache.get(key);
+					logger.info(result == null ? "Result is not cached" : "Result is found in cache " + cacheDirectory);
+				} catch (NumberFormatException e) {
+					throw new CheckException("Property jpf.logic.cache.size is not a number");
+				} catch (IOException e) {
+					logger.severe("Cache " + cacheDirectory + " cannot be used");
+					cache = null;
+				}
+				report.put("cache", "hit", result != null);
+			}
+
+			PartialTransitionSystem system = null;
+			List<Quotient> reductions = new ArrayList<Quotient>();
+			if (result == null) {
+				phase = Events.beginPhase("load partial transition system");
+				start = System.nanoTime();
+				String systemKey = systems == null || checkpoint ? null : SystemCache.key(target, namesToAliases, formula.getAliases());
+				system = systemKey == null ? null : systems.get(systemKey);
+				if (checkpoint) {
+					try {
+						system = PartialTransitionSystem.loadCheckpoint(target, namesToAliases, formula.getAliases());
+					} catch (IOException e) {
+						throw new CheckException("Checkpoint " + target + PartialTransitionSystem.CHECKPOINT + " cannot be read");
+					}
+				} else if (system == null) {
+					try {
+						// replace mangled names by aliases and only keep the labels used by the formula
+						system = new PartialTransitionSystem(target, namesToAliases, formula.getAliases());
+					} catch (IOException e) {
+						e.printStackTrace();
+						throw new CheckException("File " + target + " .tra/.lab cannot be read");
+					}
+					if (systemKey != null) {
+						systems.put(systemKey, system);
+					}
+				} else {
+					logger.info("Reuse loaded partial transition system");
+				}
+				Events.endPhase(phase);
+				report.put("phases", "load partial transition system", (System.nanoTime() - start) / 1e6);
+				logger.info("Create partial transition system");
+
+				phase = Events.beginPhase("model check");
+				start = System.nanoTime();
+				reductions = reduce(system, formula, properties, report, logger);
+				modelChecker.setPartialTransitionSystem(reduced(system, reductions));
+				result = expand(modelChecker.check(formula), reductions);
+				Events.endPhase(phase);
+				report.put("phases", "model check", (System.nanoTime() - start) / 1e6);
+				logger.info("Run model checker");
+
+				if (cache != null) {
+					try {
+						cache.put(key, result);
+						logger.info("Result is stored in cache " + cacheDirectory);
+					} catch (IOException e) {
+						logger.severe("Result cannot be stored in cache " + cacheDirectory);
+					}
+				}
+			}
+
+			Profile profile = modelChecker.getProfile();
+			if (profile != null && logger.isLoggable(Level.INFO)) {
+				logger.info("Profile of the model checker\n" + profile);
+			}
 		
-		try {
-			FileReader fileReader = new FileReader(input);
-			BufferedReader reader = new BufferedReader(fileReader);
+			String verdict = verdict(result);
 
-			try {
-				FileWriter fileWriter = new FileWriter(output);
-				BufferedWriter writer = new BufferedWriter(fileWriter);
-				String inputLine = reader.readLine();
-				String outputLine = "";
-				String[] mappings = inputLine.split(" ");
-				for (String mapping : mappings) {
-					String[] part = mapping.split("=");
-					String alias = namesToAliases.get(part[1]);
-					if (alias != null) {
-						outputLine += part[0]; // index
-						outputLine += "=";
-						outputLine += alias;
-						outputLine += " ";
-						logger.info("Replace " + part[1] + " with " + alias);
+			// explore the states that keep the verdict undecided and check again
+			for (int round = 1; round <= rounds && verdict.equals("may hold") && system != null; round++) {
+				phase = Events.beginPhase("focus");
+				start = System.nanoTime();
+				Map<Integer, Integer> relevant = relevant(modelChecker, formula, system, reductions);
+				Focus focus = new Focus(system, result, relevant == null ? null : relevant.keySet());
+				try {
+					if (focus.write(target + ".hash", target + ".focus") == 0) {
+						logger.info("Focus is empty");
+						break;
 					}
+				} catch (IOException e) {
+					logger.severe("Focus cannot be written to " + target + ".focus");
+					break;
+				}
+				logger.info("Focus round " + round + " on " + focus.getRanks().size() + " states");
+				configuration.setProperty("search.class", FocusedSearch.class.getName());
+				configuration.setProperty("jpf.logic.focus", target + ".focus");
+				jpf = explore(configuration, target, explorations, logger);
+				try {
+					system = new PartialTransitionSystem(target, namesToAliases, formula.getAliases());
+				} catch (IOException e) {
+					throw new CheckException("File " + target + " .tra/.lab cannot be read");
 				}
-				writer.write(outputLine, 0, outputLine.length());
-				writer.newLine();
-
-				final int BUFFER_SIZE = 512;
-				char[] buffer = new char[BUFFER_SIZE];
-				int length;
-				do {
-					length = reader.read(buffer, 0, BUFFER_SIZE);
-					if (length != -1) {
-						writer.write(buffer, 0, length);
+				modelChecker = createModelChecker(modelCheckerName, logger);
+				reductions = reduce(system, formula, properties, report, logger);
+				modelChecker.setPartialTransitionSystem(reduced(system, reductions));
+				result = expand(modelChecker.check(formula), reductions);
+				verdict = verdict(result);
+				Events.endPhase(phase);
+				report.put("focus", "rounds", round);
+				report.put("focus", "round " + round, (System.nanoTime() - start) / 1e6);
+			}
+
+			if (output != null) {
+				output.println("The formula " + verdict);
+			}
+			if (verdict.equals("may hold") && system != null) {
+				Map<Integer, Integer> relevant = relevant(modelChecker, formula, system, reductions);
+				if (relevant != null) {
+					StringBuilder states = new StringBuilder();
+					int shown = 0;
+					for (Map.Entry<Integer, Integer> entry : relevant.entrySet()) {
+						if (shown++ == MAX_RELEVANT) {
+							states.append(", ...");
+							break;
+						}
+						states.append((shown == 1 ? "" : ", ") + entry.getKey() + " (distance " + entry.getValue() + ")");
 					}
-				} while (length != -1);
+					if (output != null) {
+						output.println("The verdict depends on " + relevant.size() + " partially explored states: " + states);
+					}
+					report.put("relevance", "states", relevant.size());
+					if (!relevant.isEmpty()) {
+						report.put("relevance", "distance", relevant.values().iterator().next());
+					}
+				}
+			}
 
-				reader.close();
-				writer.flush();
-				writer.close();
-			} catch (IOException e) {
-				logger.severe("File " + outputFileName + " cannot be written or file " + inputFileName + " cannot be read");
-				System.exit(0);
+			if (Boolean.parseBoolean(properties.getProperty("jpf.logic.report", "false"))) {
+				report.put("target", target);
+				report.put("formula", formula.toString());
+				report.put("verdict", verdict);
+				if (system != null) {
+					report.put("system", "states", system.getNumberOfStates());
+					report.put("system", "transitions", system.getNumberOfTransitions());
+					report.put("system", "partial", system.getPartial().cardinality());
+				}
+				report.put("result", "lower", result.getLowerCardinality());
+				report.put("result", "upper", result.getUpperCardinality());
+				if (jpf != null && jpf.getReporter() != null && jpf.getReporter().getStatistics() != null) {
+					Statistics statistics = jpf.getReporter().getStatistics();
+					report.put("jpf", "newStates", statistics.newStates);
+					report.put("jpf", "visitedStates", statistics.visitedStates);
+					report.put("jpf", "backtracked", statistics.backtracked);
+					report.put("jpf", "endStates", statistics.endStates);
+					report.put("jpf", "maxDepth", statistics.maxDepth);
+					report.put("jpf", "instructions", statistics.insns);
+				}
+				if (profile != null) {
+					report.put(profile);
+				}
+				report.putPeakHeap();
+				try {
+					report.write(target + ".json");
+					logger.info("Report is written to " + target + ".json");
+				} catch (FileNotFoundException e) {
+					logger.severe("Cannot write report to " + target + ".json");
+				}
 			}
-		} catch (FileNotFoundException e) {
-			logger.severe("File " + inputFileName + " cannot be found");
-			System.exit(0);
-		}
 		
-		if (input.delete()) {
-			logger.info("File " + inputFileName + " is deleted");
-		} else {
-			logger.severe("File " + inputFileName + " cannot be deleted");
+			//System.out.println("Lower: " + result.getLower());
+			//System.out.println("Upper: " + result.getUpper());
+
+			return verdict;
 		}
-		
-		if (output.renameTo(input)) {
-			logger.info("File " + outputFileName + " is renamed to " + inputFileName);
-		} else {
-			logger.severe("File " + outputFileName + " cannot be renamed to " + inputFileName);
+	}
+
+	/**
+	 * Returns the lock of the given target.  The lock is shared by all the
+	 * names of the target.
+	 *
+	 * @param target the target of JPF
+	 * @return the lock of the target
+	 */
+	private static Object lock(String target) {
+		String path;
+		try {
+			path = new File(target).getCanonicalPath();
+		} catch (IOException e) {
+			path = new File(target).getAbsolutePath();
 		}
-		
-		String modelCheckerName = properties.getProperty("jpf.logic.model-checker");
-		if (modelCheckerName == null) {
-			logger.severe("Property jpf.logic.model-checker cannot be found");
-			System.exit(0);
+		return TARGETS.computeIfAbsent(path, key -> new Object());
+	}
+
+	/**
+	 * Returns the verdict of the given result in the initial state: holds,
+	 * does not hold or may hold.
+	 *
+	 * @param result the result of model checking
+	 * @return the verdict of the result
+	 */
+	private static String verdict(Result result) {
+		if (result.getLowerSet().contains(0)) {
+			return "holds";
+		} else if (!result.getUpperSet().contains(0)) {
+			return "does not hold";
 		} else {
-			logger.info("Property jpf.logic.model-checker is found");
+			return "may hold";
+		}
+	}
+
+	/**
+	 * Returns the names of the reductions for the given formula that are
+	 * enabled by the given properties, in the order in which they are applied.
+	 * With {@code jpf.logic.stutter=true}, stuttering chains are compressed if
+	 * the formula is insensitive to stuttering.  With
+	 * {@code jpf.logic.minimize=true}, bisimilar states are merged.  With
+	 * {@code jpf.logic.prune=true}, finally the states that cannot be reached
+	 * from the initial state are removed and the others are numbered in
+	 * breadth first order.
+	 *
+	 * @param properties the properties of jpf-logic
+	 * @param formula the formula
+	 * @return the names of the enabled reductions
+	 */
+	private static List<String> reductions(Properties properties, Formula formula) {
+		List<String> names = new ArrayList<String>();
+		if (Boolean.parseBoolean(properties.getProperty("jpf.logic.stutter", "false")) && formula.isStutterInsensitive()) {
+			names.add("stuttering");
 		}
+		if (Boolean.parseBoolean(properties.getProperty("jpf.logic.minimize", "false"))) {
+			names.add("bisimulation");
+		}
+		if (Boolean.parseBoolean(properties.getProperty("jpf.logic.prune", "false"))) {
+			names.add("reachable");
+		}
+		return names;
+	}
 
-		ModelChecker modelChecker = null;
+	/**
+	 * Returns the reductions of the given system for the given formula that are
+	 * enabled by the given properties, in the order in which they are applied:
+	 * each reduction is a quotient of the system resulting from the previous
+	 * one.
+	 *
+	 * @param system a partial transition system
+	 * @param formula the formula
+	 * @param properties the properties of jpf-logic
+	 * @param report the report
+	 * @param logger the logger
+	 * @return the reductions of the system
+	 * @see #reductions(Properties, Formula)
+	 */
+	private static List<Quotient> reduce(PartialTransitionSystem system, Formula formula, Properties properties, Report report, Logger logger) {
+		List<Quotient> reductions = new ArrayList<Quotient>();
+		List<String> names = reductions(properties, formula);
+		if (names.contains("stuttering")) {
+			Stuttering stuttering = new Stuttering(system);
+			Quotient quotient = new Quotient(system, stuttering.getPartition(), stuttering.getSources());
+			reductions.add(quotient);
+			system = quotient.getSystem();
+			logger.info("Compressed partial transition system has " + system.getNumberOfStates() + " states");
+			report.put("reduction", "stuttering", system.getNumberOfStates());
+		}
+		if (names.contains("bisimulation")) {
+			Quotient quotient = new Quotient(system, new Bisimulation(system).getPartition());
+			reductions.add(quotient);
+			system = quotient.getSystem();
+			logger.info("Minimized partial transition system has " + system.getNumberOfStates() + " states");
+			report.put("reduction", "bisimulation", system.getNumberOfStates());
+		}
+		if (names.contains("reachable")) {
+			Quotient quotient = new Quotient(system, new Reachability(system).getPartition());
+			reductions.add(quotient);
+			system = quotient.getSystem();
+			logger.info("Pruned partial transition system has " + system.getNumberOfStates() + " states");
+			report.put("reduction", "reachable", system.getNumberOfStates());
+		}
+		return reductions;
+	}
+
+	/**
+	 * Returns the system that results from the given reductions of the given system.
+	 *
+	 * @param system a partial transition system
+	 * @param reductions the reductions of the system
+	 * @return the reduced system
+	 */
+	private static PartialTransitionSystem reduced(PartialTransitionSystem system, List<Quotient> reductions) {
+		return reductions.isEmpty() ? system : reductions.get(reductions.size() - 1).getSystem();
+	}
+
+	/**
+	 * Returns the result for the states of the original system of the given
+	 * result for the states of the reduced system.
+	 *
+	 * @param result a result for the reduced system
+	 * @param reductions the reductions of the original system
+	 * @return the corresponding result for the original system
+	 */
+	private static Result expand(Result result, List<Quotient> reductions) {
+		for (int index = reductions.size() - 1; index >= 0; index--) {
+			result = reductions.get(index).expand(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the partially explored states of the original system that can
+	 * influence whether the given formula holds in the initial state, mapped to
+	 * their distance from the initial state, in order of increasing distance,
+	 * or null if the model checker does not support this analysis.  These are
+	 * the partially explored states of the blocks of the reduced system that
+	 * can influence the verdict.
+	 *
+	 * @param modelChecker the model checker of the reduced system
+	 * @param formula the formula
+	 * @param system the original system
+	 * @param reductions the reductions of the original system
+	 * @return the partially explored states that can influence the verdict and their distances
+	 */
+	private static Map<Integer, Integer> relevant(ModelChecker modelChecker, Formula formula, PartialTransitionSystem system, List<Quotient> reductions) {
+		Map<Integer, Integer> relevant = modelChecker.getRelevant(formula);
+		if (relevant == null || reductions.isEmpty()) {
+			return relevant;
+		}
+		StateSet states = new CompressedStateSet();
+		for (int state : relevant.keySet()) {
+			states.add(state);
+		}
+		for (int index = reductions.size() - 1; index >= 0; index--) {
+			states = reductions.get(index).expand(states);
+		}
+		BitSet partial = new BitSet();
+		for (int state = states.next(0); state != -1; state = states.next(state + 1)) {
+			if (system.getPartial().get(state)) {
+				partial.set(state);
+			}
+		}
+		return system.getDistances(new CompressedStateSet(partial));
+	}
+
+	/**
+	 * Runs JPF with the given configuration.  Runs of JPF are not concurrent,
+	 * since JPF and the redirection of its output are global.
+	 *
+	 * @param configuration the configuration of JPF
+	 * @param target the target of JPF
+	 * @param explorations the cache of explorations of the target
+	 * @param logger the logger
+	 * @return JPF after the run
+	 * @throws CheckException if JPF's output cannot be written
+	 */
+	private static JPF explore(Config configuration, String target, ExplorationCache explorations, Logger logger) throws CheckException {
+		logger.info(String.format("Create JPF configuration\n  target = %s\n  classpath = %s\n  native_classpath = %s\n  listener = %s\n  label.class = %s", 
+				configuration.getProperty("target"),
+				configuration.getProperty("classpath"),
+				configuration.getProperty("native_classpath"),
+				configuration.getProperty("listener"),
+				configuration.getProperty("label.class")));
+		JPF jpf = new JPF(configuration);
+		logger.info("Run JPF");
+
+		synchronized (JPF.class) {
+			PrintStream stdout = System.out;	
+			try {
+				if (logger.getLevel().equals(Level.SEVERE)) {
+					System.setOut(new PrintStream(target + ".log"));
+				}
+			} catch (FileNotFoundException e1) {
+				throw new CheckException("Cannot write JPF's output to " + target + ".log");
+			}
+			explorations.invalidate();
+			try {
+				jpf.run();
+			} finally {
+				System.setOut(stdout);
+			}
+		}
+		return jpf;
+	}
+
+	/**
+	 * Returns a new instance of the model checker class with the given name.
+	 *
+	 * @param modelCheckerName the name of a model checker class
+	 * @param logger the logger
+	 * @return a new model checker
+	 * @throws CheckException if the model checker cannot be instantiated
+	 */
+	private static ModelChecker createModelChecker(String modelCheckerName, Logger logger) throws CheckException {
 		try {
 			Class<?> clazz = Class.forName(modelCheckerName);
 			logger.info("Class " + modelCheckerName + " is found");
 			Constructor<?> constructor = clazz.getConstructor();
 			logger.info("Constructor of class " + modelCheckerName + " is found");
-			modelChecker = (ModelChecker) constructor.newInstance(new Object[] { });
+			ModelChecker modelChecker = (ModelChecker) constructor.newInstance(new Object[] { });
 			logger.info("Instance of class " + modelCheckerName + " is constructed");
+			return modelChecker;
 		} catch (ClassNotFoundException e) {
-			logger.severe("Class " + modelCheckerName + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Class " + modelCheckerName + " cannot be found");
 		} catch (NoSuchMethodException e) {
-			logger.severe("Constructor of class " + modelCheckerName + " cannot be found");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + modelCheckerName + " cannot be found");
 		} catch (SecurityException | IllegalAccessException e) {
-			logger.severe("Constructor of class " + modelCheckerName + " cannot be accessed");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + modelCheckerName + " cannot be accessed");
 		} catch (InstantiationException e) {
-			logger.severe("Class " + modelCheckerName + " is abstract");
-			System.exit(0);
+			throw new CheckException("Class " + modelCheckerName + " is abstract");
 		} catch (IllegalArgumentException e) {
-			logger.severe("Constructor of class " + modelCheckerName + " should not have parameters");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + modelCheckerName + " should not have parameters");
 		} catch (InvocationTargetException e) {
-			logger.severe("Constructor of class " + modelCheckerName + " throws an exception");
-			System.exit(0);
-		}
-		
-		PartialTransitionSystem system = null;
-		try {
-			system = new PartialTransitionSystem(target);
-		} catch (IOException e) {
-			e.printStackTrace();
-			logger.severe("File " + target + " .tra/.lab cannot be read");
-			System.exit(0);
+			throw new CheckException("Constructor of class " + modelCheckerName + " throws an exception");
 		}
-		logger.info("Create partial transition system");
-		
-		modelChecker.setPartialTransitionSystem(system);
-		Result result = modelChecker.check(formula);
-		logger.info("Run model checker");
-		
-		if (result.getLower().get(0)) {
-			System.out.println("The formula holds");
-		} else if (!result.getUpper().get(0)) {
-			System.out.println("The formula does not hold");
-		} else {
-			System.out.println("The formula may hold");
-		}
-		
-		//System.out.println("Lower: " + result.getLower());
-		//System.out.println("Upper: " + result.getUpper());
 	}
 }
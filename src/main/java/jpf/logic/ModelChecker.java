@@ -17,6 +17,8 @@
 
 package jpf.logic;
 
+import java.util.Map;
+
 /**
  * Model checking for partial transition systems.
  * 
@@ -49,4 +51,28 @@ public abstract class ModelChecker {
 	 * @return a lower- and upperbound of the satisfaction set of the given formula
 	 */
 	public abstract Result check(Formula formula);
-}
\ No newline at end of file
+
+	/**
+	 * Returns the profile of the last formula that was checked, or null if 
+	 * this model checker does not support profiling or no formula has been 
+	 * checked yet.
+	 * 
+	 * @return the profile of the last formula that was checked
+	 */
+	public Profile getProfile() {
+		return null;
+	}
+
+	/**
+	 * Returns the partially explored states that can influence whether the given
+	 * formula holds in the initial state, mapped to their distance from the
+	 * initial state, in order of increasing distance, or null if this model
+	 * checker does not support this analysis.
+	 * 
+	 * @param formula the formula
+	 * @return the partially explored states that can influence the verdict and their distances
+	 */
+	public Map<Integer, Integer> getRelevant(Formula formula) {
+		return null;
+	}
+}
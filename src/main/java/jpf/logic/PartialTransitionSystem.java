@@ -17,18 +17,31 @@
 
 package jpf.logic;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.StringJoiner;
 
 /**
  * A class which represents a partial transition system.  The states of the system
@@ -40,9 +53,9 @@ import java.util.Set;
 public class PartialTransitionSystem {
 
 	// for each state, its successors
-	private final Map<Integer, BitSet> successors;
+	private final CompactSuccessors successors;
 	// for each label, its states
-	private final Map<String, BitSet> labelling;
+	private final Map<String, StateSet> labelling;
 	// states that are partially explored
 	private BitSet partial;
 	// number of states
@@ -54,6 +67,15 @@ public class PartialTransitionSystem {
 	public static final String TRANSITION_SEPARATOR = " -> ";
 	// separates the state and its labels
 	public static final String LABEL_SEPARATOR = ": ";
+	// extension of the file with the transitions of the checkpoints
+	public static final String SEGMENTS = ".segments";
+	// extension of the file with the labels of the checkpoints
+	public static final String LABEL_SEGMENTS = ".labels";
+	// extension of the file with the index of the latest checkpoint
+	public static final String CHECKPOINT = ".checkpoint";
+
+	// size of the buffer used for reading files
+	private static final int BUFFER_SIZE = 1 << 16;
 
 	// introduces randomness
 	private static final Random random = new Random();
@@ -74,7 +96,7 @@ public class PartialTransitionSystem {
 		this.partial = new BitSet(numberOfStates);
 
 		final double TRANSITIONS = 2 * Math.log(this.numberOfStates) / this.numberOfStates;
-		this.successors = new HashMap<Integer, BitSet>();
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
 		for (int source = 0; source < this.numberOfStates; source++) {
 			BitSet post = new BitSet(this.numberOfStates);
 			for (int target = 0; target < this.numberOfStates; target++) {
@@ -84,23 +106,24 @@ public class PartialTransitionSystem {
 				}
 			}
 			if (!post.isEmpty()) {
-				this.successors.put(source, post);
+				successors.put(source, post);
 			}
 			if (random.nextDouble() > FULLY_EXPLORED) {
 				this.partial.set(source);
 			}
 		}
+		this.successors = new CompactSuccessors(successors);
 
 		int labels = 1 + random.nextInt(MAX_LABELS);
-		this.labelling = new HashMap<String, BitSet>();
+		this.labelling = new HashMap<String, StateSet>();
 		for (int index = 0; index < labels; index++) {
-			BitSet stateSet = new BitSet(this.numberOfStates);
+			StateSet stateSet = new CompressedStateSet();
 			this.labelling.put("label" + index, stateSet);
 			if (random.nextDouble() < LABELLED) {
 				do {
 					for (int state = 0; state < this.numberOfStates; state++) {
 						if (random.nextDouble() < LABELLED / this.numberOfStates) {
-							stateSet.set(state);
+							stateSet.add(state);
 						}
 					}
 				} while (stateSet.isEmpty());
@@ -118,7 +141,7 @@ public class PartialTransitionSystem {
 		this.partial = new BitSet();
 
 		final double TRANSITIONS = 2 * Math.log(this.numberOfStates) / this.numberOfStates;
-		this.successors = new HashMap<Integer, BitSet>();
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
 		for (int source = 0; source < this.numberOfStates; source++) {
 			BitSet post = new BitSet(this.numberOfStates);
 			for (int target = 0; target < this.numberOfStates; target++) {
@@ -128,22 +151,23 @@ public class PartialTransitionSystem {
 				}
 			}
 			if (!post.isEmpty()) {
-				this.successors.put(source, post);
+				successors.put(source, post);
 			}
 			if (random.nextDouble() > FULLY_EXPLORED) {
 				this.partial.nextSetBit(source);
 			}
 		}
+		this.successors = new CompactSuccessors(successors);
 
-		this.labelling = new HashMap<String, BitSet>();
+		this.labelling = new HashMap<String, StateSet>();
 		for (String label : labels) {
-			BitSet stateSet = new BitSet(this.numberOfStates);
+			StateSet stateSet = new CompressedStateSet();
 			this.labelling.put(label, stateSet);
 			if (random.nextDouble() < LABELLED) {
 				do {
 					for (int state = 0; state < this.numberOfStates; state++) {
 						if (random.nextDouble() < LABELLED / this.numberOfStates) {
-							stateSet.set(state);
+							stateSet.add(state);
 						}
 					}
 				} while (stateSet.isEmpty());
@@ -151,6 +175,23 @@ public class PartialTransitionSystem {
 		}
 	}
 
+	/**
+	 * Initializes this partial transition system with the given number of states,
+	 * successors, partially explored states and labelling.
+	 * 
+	 * @param numberOfStates the number of states
+	 * @param successors the successors of the states
+	 * @param partial the states that are partially explored
+	 * @param labelling for each label, its states
+	 */
+	public PartialTransitionSystem(int numberOfStates, CompactSuccessors successors, BitSet partial, Map<String, StateSet> labelling) {
+		this.numberOfStates = numberOfStates;
+		this.numberOfTransitions = successors.getNumberOfTransitions();
+		this.successors = successors;
+		this.partial = partial;
+		this.labelling = labelling;
+	}
+
 	/**
 	 * Initializes this partial transition system from the file with the given name.
 	 * The transitions are extracted from a file named fileName.tra and the
@@ -161,151 +202,483 @@ public class PartialTransitionSystem {
 	 * @throws IOException if something goes wrong with reading the files
 	 */
 	public PartialTransitionSystem(String fileName) throws IOException {
-		final String TRANSITION = "\\d+" + TRANSITION_SEPARATOR + "\\d+"; 
-		final String PARTIAL = "\\d+( \\d+)*";
-		final String STATES_AND_TRANSTIONS = "\\d+ \\d+";
+		this(fileName, null);
+	}
 
-		Scanner input = new Scanner(new File(fileName + ".tra"));
+	/**
+	 * Initializes this partial transition system from the file with the given name.
+	 * The transitions are extracted from a file named fileName.tra and the
+	 * labelling of the states is extracted from a file named fileName.lab.
+	 * The labels of the fileName.lab file are renamed according to the given map
+	 * while they are read; labels that are not mapped are ignored.  If the map
+	 * is null, then all labels are kept with their original names.
+	 * 
+	 * @param fileName the base name of the file containing the description of
+	 * this transition system and its labelling
+	 * @param names a map from the names of the labels in the fileName.lab file 
+	 * to the names used in this transition system
+	 * @throws IOException if something goes wrong with reading the files
+	 */
+	public PartialTransitionSystem(String fileName, Map<String, String> names) throws IOException {
+		this(fileName, names, null);
+	}
 
-		// first line contains the number of states and the number of transitions
-		String line = null;
-		try {
-			line = input.nextLine().trim();
-			if (line.matches(STATES_AND_TRANSTIONS)) {
-				this.parseNumberOfStatesAndTransitions(line);
-			} else {
-				throw new IOException("File " + fileName + ".tra not in the correct format");
-			}
-		} catch (NoSuchElementException e) {
-			throw new IOException("File " + fileName + ".tra not in the correct format");
+	/**
+	 * Initializes this partial transition system from the file with the given name.
+	 * The transitions are extracted from a file named fileName.tra and the
+	 * labelling of the states is extracted from a file named fileName.lab.
+	 * The labels of the fileName.lab file are renamed according to the given map
+	 * while they are read; labels that are not mapped are ignored.  Furthermore, 
+	 * only the (renamed) labels in the given set are kept; all other labels are 
+	 * skipped while the fileName.lab file is parsed.  If the map (set) is null, 
+	 * then no labels are renamed (skipped).  If the file fileName.tra (fileName.lab)
+	 * does not exist, then its gzip compressed version fileName.tra.gz 
+	 * (fileName.lab.gz) is read instead.
+	 * 
+	 * @param fileName the base name of the file containing the description of
+	 * this transition system and its labelling
+	 * @param names a map from the names of the labels in the fileName.lab file 
+	 * to the names used in this transition system
+	 * @param labels the set of (renamed) labels that are kept
+	 * @throws IOException if something goes wrong with reading the files
+	 */
+	public PartialTransitionSystem(String fileName, Map<String, String> names, Set<String> labels) throws IOException {
+		TransitionReader transitions = new TransitionReader(find(fileName + ".tra"));
+		this.numberOfStates = transitions.getNumberOfStates();
+		this.numberOfTransitions = transitions.getNumberOfTransitions();
+		this.partial = transitions.getPartial();
+		this.successors = new CompactSuccessors(transitions.getOffsets(), transitions.getTargets());
+
+		this.labelling = readLabelling(fileName, names, labels);
+	}
+
+	/**
+	 * Reads the labelling from the file named fileName.lab, or its gzip
+	 * compressed version fileName.lab.gz, renaming and skipping labels as
+	 * described in {@link #PartialTransitionSystem(String, Map, Set)}.
+	 *
+	 * @param fileName the base name of the file containing the labelling
+	 * @param names a map from the names of the labels in the file to their new names
+	 * @param labels the set of (renamed) labels that are kept
+	 * @return for each label, its states
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	private static Map<String, StateSet> readLabelling(String fileName, Map<String, String> names, Set<String> labels) throws IOException {
+		String labFileName = find(fileName + ".lab");
+		InputStream input;
+		if (labFileName.endsWith(".gz")) {
+			input = new ConcurrentGZIPInputStream(labFileName);
+		} else {
+			input = new FileInputStream(labFileName);
 		}
+		return readLabelling(new BufferedReader(new InputStreamReader(input), BUFFER_SIZE), fileName + ".lab", names, labels);
+	}
 
-		this.successors = new HashMap<Integer, BitSet>();
-		try {
-			line = input.nextLine().trim();
-			while (line.matches(TRANSITION)) { // line represents a transition
-				this.parseTransition(line);
-				line = input.nextLine().trim();
+	/**
+	 * Reads the labelling in the format of jpf-label from the given reader and
+	 * closes it.
+	 *
+	 * @param reader reads the labelling
+	 * @param fileName the name of the file containing the labelling
+	 * @param names a map from the names of the labels in the file to their new names
+	 * @param labels the set of (renamed) labels that are kept
+	 * @return for each label, its states
+	 * @throws IOException if something goes wrong with reading the labelling
+	 */
+	private static Map<String, StateSet> readLabelling(BufferedReader reader, String fileName, Map<String, String> names, Set<String> labels) throws IOException {
+		Map<Integer, String> indices = new HashMap<Integer, String>();
+		String line = reader.readLine(); // first line containing the labels and their indices
+		if (line == null) {
+			reader.close();
+			throw new IOException("File " + fileName + " not in the correct format");
+		}
+		parseIndices(line, indices, names, labels);
+
+		// for each index, the states of the corresponding label (null if the label is skipped)
+		int maxIndex = -1;
+		for (int index : indices.keySet()) {
+			maxIndex = Math.max(maxIndex, index);
+		}
+		StateSet[] stateSets = new StateSet[maxIndex + 1];
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		for (Map.Entry<Integer, String> entry : indices.entrySet()) { 
+			String label = entry.getValue();
+			if (!labelling.containsKey(label)) {
+				labelling.put(label, new CompressedStateSet());
 			}
-		} catch (NoSuchElementException e) {
-			throw new IOException("File " + fileName + ".tra not in the correct format");
+			stateSets[entry.getKey()] = labelling.get(label);
 		}
+		if (!labelling.isEmpty()) {
+			line = reader.readLine();
+			while (line != null) { // line represents a state labelling
+				if (!line.isEmpty()) {
+					parseLabelling(line, stateSets);
+				}
+				line = reader.readLine();
+			}
+		}
+		reader.close();
+		return labelling;
+	}
 
-		// last line contains the partially explored states
-		this.partial = new BitSet();
-		if (line.length() > 0) {
-			if (line.matches(PARTIAL)) {
-				this.parsePartial(line);
-			} else {
-				throw new IOException("File " + fileName + ".tra not in the correct format");	
+	/**
+	 * Returns the partial transition system of the latest checkpoint written
+	 * by {@link PartialTransitionSystemListener} while exploring the target with
+	 * the given name.  The file fileName.checkpoint is the index of the latest
+	 * checkpoint: its first line consists of the length of the file
+	 * fileName.segments at the checkpoint and the number of states and 
+	 * transitions explored so far, and its second line consists of the states 
+	 * that have not been fully explored yet.  Transitions that were appended 
+	 * to the file fileName.segments after the checkpoint are ignored.  If the
+	 * labels are evaluated by the listener, then the first line also contains
+	 * the length of the file fileName.labels at the checkpoint, which contains
+	 * the labelling, in the format of jpf-label, of the states explored so far.
+	 * Otherwise, the labelling of the states at the checkpoint is unknown, so
+	 * that only formulas without labels can be checked.
+	 *
+	 * @param fileName the base name of the files of the checkpoint
+	 * @param names a map from the names of the labels in the fileName.lab file 
+	 * to the names used in this transition system
+	 * @param labels the set of (renamed) labels that are kept
+	 * @return the partial transition system of the latest checkpoint
+	 * @throws IOException if something goes wrong with reading the files or 
+	 * labels are kept but the checkpoint has no labelling
+	 */
+	public static PartialTransitionSystem loadCheckpoint(String fileName, Map<String, String> names, Set<String> labels) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(fileName + CHECKPOINT));
+		long length;
+		int numberOfStates;
+		int numberOfTransitions;
+		long labelsLength;
+		BitSet partial = new BitSet();
+		try {
+			String[] counts = reader.readLine().trim().split(" ");
+			length = Long.parseLong(counts[0]);
+			numberOfStates = Integer.parseInt(counts[1]);
+			numberOfTransitions = Integer.parseInt(counts[2]);
+			labelsLength = counts.length > 3 ? Long.parseLong(counts[3]) : -1;
+			if (length < 0 || numberOfStates < 0 || numberOfTransitions < 0 || labelsLength < -1 || labelsLength > Integer.MAX_VALUE) {
+				throw new NumberFormatException();
+			}
+			String line = reader.readLine();
+			for (String state : line.trim().split(" ")) {
+				if (!state.isEmpty()) {
+					int partialState = Integer.parseInt(state);
+					if (partialState < 0 || partialState >= numberOfStates) {
+						throw new NumberFormatException();
+					}
+					partial.set(partialState);
+				}
 			}
+		} catch (NullPointerException | ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IOException("File " + fileName + CHECKPOINT + " not in the correct format");
+		} finally {
+			reader.close();
 		}
-		input.close();
 
-		input = new Scanner(new File(fileName + ".lab"));
-		Map<Integer, String> indices = new HashMap<Integer, String>();
+		// transitions in the order in which they were appended
+		int[] sources = new int[numberOfTransitions];
+		int[] targets = new int[numberOfTransitions];
+		int transitions = 0;
+		InputStream input = new BufferedInputStream(new FileInputStream(fileName + SEGMENTS), BUFFER_SIZE);
 		try {
-			line = input.nextLine(); // first line containing the labels and their indices
-			this.parseIndices(line, indices);
-		} catch (NoSuchElementException e) {
-			throw new IOException("File " + fileName + ".lab not in the correct format");
+			int number = 0;
+			boolean digits = false;
+			boolean source = true;
+			for (long position = 0; position < length; position++) {
+				int c = input.read();
+				if (c == -1) {
+					throw new IOException("File " + fileName + SEGMENTS + " is shorter than its checkpoint");
+				} else if (c >= '0' && c <= '9') {
+					number = 10 * number + (c - '0');
+					digits = true;
+					if (number >= numberOfStates) {
+						throw new IOException("File " + fileName + SEGMENTS + " contains a state that does not exist at its checkpoint");
+					}
+				} else if (digits) {
+					if (transitions == numberOfTransitions) {
+						throw new IOException("File " + fileName + SEGMENTS + " contains more transitions than its checkpoint");
+					}
+					if (source) {
+						sources[transitions] = number;
+					} else {
+						targets[transitions++] = number;
+					}
+					source = !source;
+					number = 0;
+					digits = false;
+				}
+			}
+		} finally {
+			input.close();
+		}
+		if (transitions != numberOfTransitions) {
+			throw new IOException("File " + fileName + SEGMENTS + " does not match its checkpoint");
 		}
 
-		this.labelling = new HashMap<String, BitSet>();
-		for (String label : indices.values()) { 
-			this.labelling.put(label, new BitSet(this.numberOfStates));
+		int[] offsets = new int[numberOfStates + 1];
+		for (int transition = 0; transition < transitions; transition++) {
+			offsets[sources[transition] + 1]++;
+		}
+		for (int state = 0; state < numberOfStates; state++) {
+			offsets[state + 1] += offsets[state];
 		}
-		while (input.hasNextLine()) { 
-			line = input.nextLine(); // line represents a state labelling
-			this.parseLabelling(line, indices);
+		int[] sorted = new int[transitions];
+		int[] next = Arrays.copyOf(offsets, numberOfStates);
+		for (int transition = 0; transition < transitions; transition++) {
+			sorted[next[sources[transition]]++] = targets[transition];
 		}
-		input.close();
+
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		if (labelsLength != -1) {
+			byte[] bytes = new byte[(int) labelsLength];
+			input = new FileInputStream(fileName + LABEL_SEGMENTS);
+			try {
+				for (int read = 0; read < bytes.length; ) {
+					int count = input.read(bytes, read, bytes.length - read);
+					if (count == -1) {
+						throw new IOException("File " + fileName + LABEL_SEGMENTS + " is shorter than its checkpoint");
+					}
+					read += count;
+				}
+			} finally {
+				input.close();
+			}
+			BufferedReader labelReader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.US_ASCII));
+			labelling = readLabelling(labelReader, fileName + LABEL_SEGMENTS, names, labels);
+		} else if (labels == null || !labels.isEmpty()) {
+			throw new IOException("Checkpoint " + fileName + CHECKPOINT + " has no labelling");
+		}
+		return new PartialTransitionSystem(numberOfStates, new CompactSuccessors(offsets, sorted), partial, labelling);
 	}
 
 	/**
-	 * Parses the given line. 
+	 * Returns the given file name if the file exists or its gzip compressed 
+	 * version does not exist.  Otherwise, returns the name of the gzip 
+	 * compressed version.
 	 * 
-	 * @param line a line representing a transition
+	 * @param fileName the name of a file
+	 * @return the name of the file or its gzip compressed version
 	 */
-	private void parseTransition(String line) {
-		String[] part = line.split(TRANSITION_SEPARATOR);
-		int source = Integer.parseInt(part[0]);
-		int target = Integer.parseInt(part[1]);
-
-		BitSet post;
-		if (this.successors.containsKey(source)) {
-			post = this.successors.get(source);
+	static String find(String fileName) {
+		if (!new File(fileName).exists() && new File(fileName + ".gz").exists()) {
+			return fileName + ".gz";
 		} else {
-			post = new BitSet();
-			this.successors.put(source, post);
+			return fileName;
 		}
-		post.set(target);
 	}
 
 	/**
-	 * Parses the given line.
-	 * 
-	 * @param line a line representing the states that are partially explored
-	 * @pre. line.length() > 0
+	 * Returns the union of the given partial transition systems, produced by
+	 * different runs of JPF on the same target.  The states of the runs are
+	 * identified by their hashes: states with the same hash are the same state
+	 * of the union and the initial states of the runs are the initial state 0
+	 * of the union.  The union contains the transitions and labels of all runs.
+	 * Since a state that is fully explored by some run has all its successors
+	 * in that run, a state of the union is partially explored only if it is
+	 * partially explored by every run that contains it.  The given map is
+	 * extended with the states of the union of the hashes.
+	 *
+	 * @param systems the partial transition systems of the runs
+	 * @param hashes for each run, the hashes of its states
+	 * @param identities a map from hashes to the states of the union
+	 * @return the union of the partial transition systems
 	 */
-	private void parsePartial(String line) {
-		for (String state : line.split(" ")) {
-			int source = Integer.parseInt(state);
-			this.partial.set(source);
+	public static PartialTransitionSystem union(List<PartialTransitionSystem> systems, List<long[]> hashes, Map<Long, Integer> identities) {
+		// for each run, a map from its states to the states of the union
+		int[][] states = new int[systems.size()][];
+		int numberOfStates = 1;
+		for (int run = 0; run < systems.size(); run++) {
+			long[] hash = hashes.get(run);
+			states[run] = new int[systems.get(run).numberOfStates];
+			identities.putIfAbsent(hash[0], 0);
+			for (int state = 1; state < states[run].length; state++) {
+				Integer identity = identities.get(hash[state]);
+				if (identity == null) {
+					identity = numberOfStates++;
+					identities.put(hash[state], identity);
+				}
+				states[run][state] = identity;
+			}
 		}
+
+		// compressed sparse row representation of the transitions, possibly with duplicates
+		int[] offsets = new int[numberOfStates + 1];
+		for (int run = 0; run < systems.size(); run++) {
+			CompactSuccessors successors = systems.get(run).successors;
+			for (int source = 0; source < successors.getNumberOfStates(); source++) {
+				offsets[states[run][source] + 1] += successors.getNumberOfSuccessors(source);
+			}
+		}
+		for (int state = 0; state < numberOfStates; state++) {
+			offsets[state + 1] += offsets[state];
+		}
+		int[] targets = new int[offsets[numberOfStates]];
+		int[] next = Arrays.copyOf(offsets, numberOfStates);
+		for (int run = 0; run < systems.size(); run++) {
+			CompactSuccessors successors = systems.get(run).successors;
+			for (int source = 0; source < successors.getNumberOfStates(); source++) {
+				int union = states[run][source];
+				for (PrimitiveIterator.OfInt iterator = successors.iterator(source); iterator.hasNext(); ) {
+					targets[next[union]++] = states[run][iterator.nextInt()];
+				}
+			}
+		}
+
+		BitSet partial = new BitSet(numberOfStates);
+		BitSet explored = new BitSet(numberOfStates);
+		Map<String, BitSet> labelling = new HashMap<String, BitSet>();
+		for (int run = 0; run < systems.size(); run++) {
+			PartialTransitionSystem system = systems.get(run);
+			for (int state = 0; state < system.numberOfStates; state++) {
+				(system.partial.get(state) ? partial : explored).set(states[run][state]);
+			}
+			for (Map.Entry<String, StateSet> entry : system.labelling.entrySet()) {
+				if (!labelling.containsKey(entry.getKey())) {
+					labelling.put(entry.getKey(), new BitSet(numberOfStates));
+				}
+				BitSet labelled = labelling.get(entry.getKey());
+				for (int state = entry.getValue().next(0); state != -1 && state < system.numberOfStates; state = entry.getValue().next(state + 1)) {
+					labelled.set(states[run][state]);
+				}
+			}
+		}
+		partial.andNot(explored);
+
+		Map<String, StateSet> labelSets = new HashMap<String, StateSet>();
+		for (Map.Entry<String, BitSet> entry : labelling.entrySet()) {
+			labelSets.put(entry.getKey(), new CompressedStateSet(entry.getValue()));
+		}
+		return new PartialTransitionSystem(numberOfStates, new CompactSuccessors(offsets, targets), partial, labelSets);
 	}
 
 	/**
-	 * Parses the given line.
+	 * Writes this partial transition system to files in the formats read by
+	 * the constructor: its transitions and partially explored states to a file
+	 * named fileName.tra and its labelling to a file named fileName.lab.
+	 *
+	 * @param fileName the base name of the files
+	 * @throws IOException if something goes wrong with writing the files
+	 */
+	public void write(String fileName) throws IOException {
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(fileName + ".tra"), BUFFER_SIZE));
+		writer.println(this.numberOfStates + " " + this.numberOfTransitions);
+		for (int source = 0; source < this.successors.getNumberOfStates(); source++) {
+			for (PrimitiveIterator.OfInt iterator = this.successors.iterator(source); iterator.hasNext(); ) {
+				writer.println(source + TRANSITION_SEPARATOR + iterator.nextInt());
+			}
+		}
+		StringJoiner partial = new StringJoiner(" ");
+		for (int state = this.partial.nextSetBit(0); state != -1; state = this.partial.nextSetBit(state + 1)) {
+			partial.add("" + state);
+		}
+		writer.println(partial);
+		writer.close();
+		if (writer.checkError()) {
+			throw new IOException("File " + fileName + ".tra cannot be written");
+		}
+
+		List<String> labels = new ArrayList<String>(this.labelling.keySet());
+		List<List<Integer>> states = new ArrayList<List<Integer>>();
+		StringJoiner indices = new StringJoiner(" ");
+		for (int index = 0; index < labels.size(); index++) {
+			indices.add(index + "=" + labels.get(index));
+		}
+		for (int state = 0; state < this.numberOfStates; state++) {
+			states.add(null);
+		}
+		for (int index = 0; index < labels.size(); index++) {
+			StateSet stateSet = this.labelling.get(labels.get(index));
+			for (int state = stateSet.next(0); state != -1 && state < this.numberOfStates; state = stateSet.next(state + 1)) {
+				if (states.get(state) == null) {
+					states.set(state, new ArrayList<Integer>());
+				}
+				states.get(state).add(index);
+			}
+		}
+		writer = new PrintWriter(new BufferedWriter(new FileWriter(fileName + ".lab"), BUFFER_SIZE));
+		writer.println(indices);
+		for (int state = 0; state < this.numberOfStates; state++) {
+			if (states.get(state) != null) {
+				StringJoiner line = new StringJoiner(" ");
+				for (int index : states.get(state)) {
+					line.add("" + index);
+				}
+				writer.println(state + LABEL_SEPARATOR + line);
+			}
+		}
+		writer.close();
+		if (writer.checkError()) {
+			throw new IOException("File " + fileName + ".lab cannot be written");
+		}
+	}
+
+	/**
+	 * Parses the given line.  Only the labels that are mapped by the given
+	 * names, unless names is null, and that are contained in the given labels,
+	 * unless labels is null, are kept.
 	 * 
 	 * @param line a line representing names of the labels and their indices
+	 * @param indices a map from indices to the names of the labels that are kept
+	 * @param names a map from the names of the labels in the line to their new names
+	 * @param labels the set of new names of the labels that are kept
 	 */
-	private void parseIndices(String line, Map<Integer, String> indices) {
+	private static void parseIndices(String line, Map<Integer, String> indices, Map<String, String> names, Set<String> labels) {
 		for (String item : line.split(" ")) {
+			if (item.isEmpty()) {
+				continue;
+			}
 			String[] pair = item.split("=");
 			int index = Integer.parseInt(pair[0]);
 			String label = pair[1];
-			indices.put(index, label);
+			if (names != null) {
+				label = names.get(label);
+			}
+			if (label != null && (labels == null || labels.contains(label))) {
+				indices.put(index, label);
+			}
 		}
 	}
 
 	/**
-	 * Parses the given line.
+	 * Parses the given line.  The labels whose index is beyond the given array 
+	 * or whose entry is null are skipped.
 	 * 
 	 * @param line a line representing a state and its labels
+	 * @param stateSets for each index, the set of states of the corresponding label 
 	 */
-	private void parseLabelling(String line, Map<Integer, String> indices) {
-		String[] part = line.split(LABEL_SEPARATOR);
-		int state = Integer.parseInt(part[0]);
-		for (String label : part[1].split(" ")) {
-			int index = Integer.parseInt(label);
-			if (indices.containsKey(index)) {
-				this.labelling.get(indices.get(index)).set(state);
+	private static void parseLabelling(String line, StateSet[] stateSets) {
+		int separator = line.indexOf(LABEL_SEPARATOR);
+		if (separator == -1) { // truncated line of a file that is still being written
+			return;
+		}
+		int state = Integer.parseInt(line.substring(0, separator));
+		int position = separator + LABEL_SEPARATOR.length();
+		while (position < line.length()) {
+			int index = 0;
+			boolean digits = false;
+			char c;
+			while (position < line.length() && (c = line.charAt(position)) >= '0' && c <= '9') {
+				index = 10 * index + (c - '0');
+				digits = true;
+				position++;
+			}
+			if (digits && index < stateSets.length && stateSets[index] != null) {
+				stateSets[index].add(state);
 			}
+			position++; // skip space
 		}
 	}
 
-	/**
-	 * Parses the given line. 
-	 * 
-	 * @param line a line representing the number of states
-	 */
-	private void parseNumberOfStatesAndTransitions(String line) {
-		String[] pair = line.split(" ");
-		this.numberOfStates = Integer.parseInt(pair[0]);
-		this.numberOfTransitions = Integer.parseInt(pair[1]);
-	}
-
 	@Override
 	public String toString() {
 		StringBuffer toString = new StringBuffer();
 
 		toString.append(this.numberOfStates + " " + this.numberOfTransitions + "\n");
 
-		for (Integer source : this.successors.keySet()) {
-			BitSet post = this.successors.get(source);
-			for (int target = post.nextSetBit(0); target != -1; target = post.nextSetBit(target + 1)) {
-				toString.append(source + TRANSITION_SEPARATOR + target);
+		for (int source = 0; source < this.successors.getNumberOfStates(); source++) {
+			for (PrimitiveIterator.OfInt iterator = this.successors.iterator(source); iterator.hasNext(); ) {
+				toString.append(source + TRANSITION_SEPARATOR + iterator.nextInt());
 				toString.append("\n");
 			}
 		}
@@ -325,7 +698,7 @@ public class PartialTransitionSystem {
 			Set<Integer> labelSet = new HashSet<Integer>();
 			for (int index = 0; index < labels.size(); index++) {
 				String label = labels.get(index);
-				if (this.labelling.get(label).get(state)) {
+				if (this.labelling.get(label).contains(state)) {
 					labelSet.add(index);
 				}
 			}
@@ -375,23 +748,139 @@ public class PartialTransitionSystem {
 	}
 
 	/**
-	 * Returns the set of successors of this partial transition system.
+	 * Returns the set of successors of this partial transition system.  Note 
+	 * that the map is created from the compact representation of the successors
+	 * each time this method is invoked.
 	 * 
 	 * @return the set of successors of this partial transition system
 	 */
 	public Map<Integer, BitSet> getSuccessors() {
+		return this.successors.toMap();
+	}
+
+	/**
+	 * Returns the compact representation of the successors of this partial 
+	 * transition system.
+	 * 
+	 * @return the compact representation of the successors of this partial 
+	 * transition system
+	 */
+	public CompactSuccessors getCompactSuccessors() {
 		return this.successors;
 	}
 
 	/**
-	 * Returns the labelling of this partial transition system.
+	 * Returns the labelling of this partial transition system.  Note that the
+	 * map is created from the compressed sets of states each time this method
+	 * is invoked.
 	 * 
 	 * @return the labelling of this partial transition system
 	 */
 	public Map<String, BitSet> getLabelling() {
+		Map<String, BitSet> labelling = new HashMap<String, BitSet>();
+		for (Map.Entry<String, StateSet> entry : this.labelling.entrySet()) {
+			labelling.put(entry.getKey(), entry.getValue().toBitSet());
+		}
+		return labelling;
+	}
+
+	/**
+	 * Returns the labelling of this partial transition system as compressed 
+	 * sets of states.
+	 * 
+	 * @return the labelling of this partial transition system
+	 */
+	public Map<String, StateSet> getLabelSets() {
 		return this.labelling;
 	}
 
+	/**
+	 * Returns the given states that can be reached from the initial state, 
+	 * mapped to their distance from the initial state, in order of increasing
+	 * distance.
+	 * 
+	 * @param states a set of states
+	 * @return the reachable states of the given set and their distances
+	 */
+	public Map<Integer, Integer> getDistances(StateSet states) {
+		// breadth first search from the initial state
+		Map<Integer, Integer> distances = new LinkedHashMap<Integer, Integer>();
+		if (states.isEmpty() || this.numberOfStates == 0) {
+			return distances;
+		}
+		int[] distance = new int[this.numberOfStates];
+		Arrays.fill(distance, -1);
+		distance[0] = 0;
+		int[] queue = new int[this.numberOfStates];
+		int size = 1;
+		int remaining = states.cardinality();
+		for (int head = 0; head < size && remaining > 0; head++) {
+			int state = queue[head];
+			if (states.contains(state)) {
+				distances.put(state, distance[state]);
+				remaining--;
+			}
+			for (PrimitiveIterator.OfInt iterator = this.successors.iterator(state); iterator.hasNext();) {
+				int successor = iterator.nextInt();
+				if (distance[successor] == -1) {
+					distance[successor] = distance[state] + 1;
+					queue[size++] = successor;
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Returns the states from which some of the given states can be reached,
+	 * including the given states themselves.
+	 * 
+	 * @param states a set of states
+	 * @return the states from which some of the given states can be reached
+	 */
+	public StateSet getReaching(BitSet states) {
+		BitSet reaching = new BitSet(this.numberOfStates);
+		int[] queue = new int[this.numberOfStates];
+		int size = 0;
+		for (int state = states.nextSetBit(0); state != -1 && state < this.numberOfStates; state = states.nextSetBit(state + 1)) {
+			reaching.set(state);
+			queue[size++] = state;
+		}
+		if (size == 0) {
+			return new CompressedStateSet(reaching);
+		}
+
+		// compressed sparse row representation of the predecessors
+		int[] offsets = new int[this.numberOfStates + 1];
+		for (int source = 0; source < this.successors.getNumberOfStates(); source++) {
+			for (PrimitiveIterator.OfInt iterator = this.successors.iterator(source); iterator.hasNext();) {
+				offsets[iterator.nextInt() + 1]++;
+			}
+		}
+		for (int state = 0; state < this.numberOfStates; state++) {
+			offsets[state + 1] += offsets[state];
+		}
+		int[] predecessors = new int[offsets[this.numberOfStates]];
+		int[] next = Arrays.copyOf(offsets, this.numberOfStates);
+		for (int source = 0; source < this.successors.getNumberOfStates(); source++) {
+			for (PrimitiveIterator.OfInt iterator = this.successors.iterator(source); iterator.hasNext();) {
+				predecessors[next[iterator.nextInt()]++] = source;
+			}
+		}
+
+		// breadth first search backwards from the given states
+		for (int head = 0; head < size; head++) {
+			int state = queue[head];
+			for (int index = offsets[state]; index < offsets[state + 1]; index++) {
+				if (!reaching.get(predecessors[index])) {
+					reaching.set(predecessors[index]);
+					queue[size++] = predecessors[index];
+				}
+			}
+		}
+		return new CompressedStateSet(reaching);
+	}
+
 	/**
 	 * Returns the set of states that are partially explored.
 	 * 
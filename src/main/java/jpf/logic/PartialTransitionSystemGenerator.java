@@ -0,0 +1,253 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates large partial transition systems of different shapes, for
+ * benchmarks and stress tests.  A system with states S and transitions T
+ * is generated in O(|S| + |T|) time.  Each state is partially explored with
+ * the given probability and labelled with each label with the label's given
+ * probability.  The generator is seeded, so that the same systems are
+ * generated in the same order for the same seed.
+ */
+public class PartialTransitionSystemGenerator {
+
+	// introduces randomness
+	private final Random random;
+	// probability that a state is partially explored
+	private final double partial;
+	// for each label, the probability that a state is labelled with it
+	private final Map<String, Double> labels;
+
+	/**
+	 * Initializes this generator.
+	 *
+	 * @param seed the seed of the random number generator
+	 * @param partial the probability that a state is partially explored
+	 * @param labels for each label, the probability that a state is labelled with it
+	 */
+	public PartialTransitionSystemGenerator(long seed, double partial, Map<String, Double> labels) {
+		this.random = new Random(seed);
+		this.partial = partial;
+		this.labels = new HashMap<String, Double>(labels);
+	}
+
+	/**
+	 * Generates a system in which each state has the given number of successors,
+	 * chosen uniformly at random.  Since successors that coincide are identified,
+	 * a state may have fewer successors.
+	 *
+	 * @param states the number of states
+	 * @param degree the number of successors of each state
+	 * @return a random system of the given size
+	 */
+	public PartialTransitionSystem random(int states, int degree) {
+		int[] offsets = new int[states + 1];
+		int[] targets = new int[checkedSize((long) states * degree)];
+		for (int source = 0; source < states; source++) {
+			offsets[source + 1] = offsets[source] + degree;
+			for (int index = offsets[source]; index < offsets[source + 1]; index++) {
+				targets[index] = this.random.nextInt(states);
+			}
+		}
+		return this.create(states, offsets, targets);
+	}
+
+	/**
+	 * Generates a chain 0 -> 1 -> ... -> states - 1.
+	 *
+	 * @param states the number of states
+	 * @return a chain of the given length
+	 */
+	public PartialTransitionSystem chain(int states) {
+		int[] offsets = new int[states + 1];
+		int[] targets = new int[Math.max(states - 1, 0)];
+		for (int source = 0; source < states - 1; source++) {
+			offsets[source + 1] = source + 1;
+			targets[source] = source + 1;
+		}
+		offsets[states] = targets.length;
+		return this.create(states, offsets, targets);
+	}
+
+	/**
+	 * Generates a grid of the given width and height in which each state has
+	 * a transition to its right and its lower neighbour, if any.  The state in
+	 * row r and column c is numbered r * width + c.
+	 *
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @return a grid of the given dimensions
+	 */
+	public PartialTransitionSystem grid(int width, int height) {
+		int states = checkedSize((long) width * height);
+		int[] offsets = new int[states + 1];
+		int[] targets = new int[checkedSize(2L * states)];
+		int index = 0;
+		for (int source = 0; source < states; source++) {
+			if (source % width < width - 1) {
+				targets[index++] = source + 1;
+			}
+			if (source / width < height - 1) {
+				targets[index++] = source + width;
+			}
+			offsets[source + 1] = index;
+		}
+		return this.create(states, offsets, targets);
+	}
+
+	/**
+	 * Generates a system consisting of the given number of nested strongly
+	 * connected components, each of the given size.  Each component is a cycle
+	 * with a random chord.  The components are ordered by depth: from the
+	 * last state of each component there is a transition to the first state
+	 * of the next component, but not back.  Hence, computing a fixpoint
+	 * from the deepest component outwards takes a number of iterations that
+	 * grows with the depth.
+	 *
+	 * @param depth the number of components
+	 * @param size the number of states of each component
+	 * @return a system of nested strongly connected components
+	 */
+	public PartialTransitionSystem components(int depth, int size) {
+		int states = checkedSize((long) depth * size);
+		int[] offsets = new int[states + 1];
+		int[] targets = new int[checkedSize(3L * states)];
+		int index = 0;
+		for (int component = 0; component < depth; component++) {
+			int first = component * size;
+			for (int offset = 0; offset < size; offset++) {
+				int source = first + offset;
+				targets[index++] = first + (offset + 1) % size; // cycle
+				if (this.random.nextBoolean()) {
+					targets[index++] = first + this.random.nextInt(size); // chord
+				}
+				if (offset == size - 1 && component < depth - 1) {
+					targets[index++] = first + size; // next component
+				}
+				offsets[source + 1] = index;
+			}
+		}
+		return this.create(states, offsets, targets);
+	}
+
+	/**
+	 * Generates all interleavings of the given number of independent threads,
+	 * each taking the given number of steps.  A state is a tuple of the
+	 * number of steps taken by each thread, encoded as a number in base
+	 * steps + 1, and each thread that has not finished can take its next step.
+	 * The system has (steps + 1)^threads states.
+	 *
+	 * @param threads the number of threads
+	 * @param steps the number of steps of each thread
+	 * @return the interleavings of the threads
+	 * @throws IllegalArgumentException if the system has too many states
+	 */
+	public PartialTransitionSystem interleavings(int threads, int steps) {
+		long size = 1;
+		for (int thread = 0; thread < threads; thread++) {
+			size *= steps + 1;
+			checkedSize(size);
+		}
+		int states = (int) size;
+		int[] offsets = new int[states + 1];
+		int[] targets = new int[checkedSize((long) states * threads)];
+		int index = 0;
+		for (int source = 0; source < states; source++) {
+			int remainder = source;
+			int weight = 1;
+			for (int thread = 0; thread < threads; thread++) {
+				if (remainder % (steps + 1) < steps) { // thread has not finished
+					targets[index++] = source + weight;
+				}
+				remainder /= steps + 1;
+				weight *= steps + 1;
+			}
+			offsets[source + 1] = index;
+		}
+		return this.create(states, offsets, targets);
+	}
+
+	/**
+	 * Returns the given size if it fits in an array.
+	 *
+	 * @param size a size
+	 * @return the given size
+	 * @throws IllegalArgumentException if the size does not fit in an array
+	 */
+	private static int checkedSize(long size) {
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The system is too large (" + size + ")");
+		}
+		return (int) size;
+	}
+
+	/**
+	 * Creates the system with the given transitions, in the compressed sparse
+	 * row representation, and with random partially explored states and labelling.
+	 *
+	 * @param states the number of states
+	 * @param offsets for each state, the index of its first successor in targets
+	 * @param targets the successors of all states
+	 * @return the system with the given transitions
+	 */
+	private PartialTransitionSystem create(int states, int[] offsets, int[] targets) {
+		BitSet partial = new BitSet(states);
+		for (int state = this.next(-1, this.partial, states); state < states; state = this.next(state, this.partial, states)) {
+			partial.set(state);
+		}
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		for (Map.Entry<String, Double> entry : this.labels.entrySet()) {
+			StateSet stateSet = new CompressedStateSet();
+			double probability = entry.getValue();
+			for (int state = this.next(-1, probability, states); state < states; state = this.next(state, probability, states)) {
+				stateSet.add(state);
+			}
+			labelling.put(entry.getKey(), stateSet);
+		}
+		return new PartialTransitionSystem(states, new CompactSuccessors(offsets, targets), partial, labelling);
+	}
+
+	/**
+	 * Returns the next selected state after the given state, where each state
+	 * is selected with the given probability.  The gap between selected states
+	 * is geometrically distributed, so that the time needed is proportional
+	 * to the number of selected states.
+	 *
+	 * @param state the last selected state, or -1
+	 * @param probability the probability that a state is selected
+	 * @param states the number of states
+	 * @return the next selected state, or a number greater than or equal to
+	 * the number of states if there is none
+	 */
+	private int next(int state, double probability, int states) {
+		if (probability <= 0) {
+			return states;
+		} else if (probability >= 1) {
+			return state + 1;
+		} else {
+			double gap = Math.floor(Math.log(1 - this.random.nextDouble()) / Math.log(1 - probability));
+			return (int) Math.min(state + 1 + gap, states);
+		}
+	}
+}
@@ -18,17 +18,32 @@
 package jpf.logic;
 
 import gov.nasa.jpf.Config;
+import gov.nasa.jpf.ListenerAdapter;
 import gov.nasa.jpf.search.Search;
-import gov.nasa.jpf.search.SearchListenerAdapter;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Add a partial state space observer to JPF and build a graph of the state
@@ -39,11 +54,52 @@ import java.util.TreeSet;
  * @author Richard Robinson
  * @author Matt Walker
  */
-public class PartialTransitionSystemListener extends SearchListenerAdapter {
+public class PartialTransitionSystemListener extends ListenerAdapter {
 	private final Map<Integer, Set<Integer>> transitions;
 	private final Set<Integer> unexploredStates;
 
 	private PrintWriter writer;
+	// whether the output is gzip compressed
+	private final boolean compress;
+	// writes the hashes of the states, if recorded
+	private PrintWriter hashWriter;
+	// whether the hashes of the states are recorded
+	private final boolean hash;
+
+	// number of new states after which a checkpoint is written, or 0
+	private final int checkpointStates;
+	// number of milliseconds after which a checkpoint is written, or 0
+	private final long checkpointMillis;
+	// base name of the files of the checkpoints, or null if no checkpoints are written
+	private String checkpointName;
+	// appends the transitions of the checkpoints
+	private FileOutputStream segments;
+	// transitions since the latest checkpoint: source, target, source, target, ...
+	private int[] pending;
+	private int numberOfPending;
+	// appends the labels of the checkpoints, or null if the labels are not evaluated by this listener
+	private FileOutputStream labelSegments;
+	// labels since the latest checkpoint: state, index, state, index, ...
+	private int[] pendingLabels;
+	private int numberOfPendingLabels;
+	// number of states at the latest checkpoint
+	private int checkpointedStates;
+	// time of the latest checkpoint
+	private long checkpointedTime;
+
+	// aliases of the labels evaluated by this listener
+	private final String[] aliases;
+	// labels evaluated by this listener
+	private final Label[] labels;
+	// for each label, the states in which it holds
+	private final BitSet[] labelled;
+	// labels that hold because of the events of the current transition
+	private final BitSet events;
+	// name of the file of the labelling, or null if the labels are not evaluated by this listener
+	private String labelName;
+
+	// size of the buffer used for writing the file
+	private static final int BUFFER_SIZE = 1 << 16;
 
 	private int source;
 	private int target;
@@ -53,13 +109,45 @@ public class PartialTransitionSystemListener extends SearchListenerAdapter {
 
 	/**
 	 * Initializes this partial transition system as empty (no states and no transitions).
+	 * If the property jpf.logic.compress of the given configuration is true, then
+	 * the output is gzip compressed.  The .tra and .lab files of an earlier run
+	 * in the other format are removed, so that they are not read instead (see
+	 * {@link PartialTransitionSystem#find(String)}).  If the property jpf.logic.hash is true,
+	 * then the hashes of the states are recorded as well (see {@link Focus}).
+	 * If the property jpf.logic.checkpoint.states (jpf.logic.checkpoint.seconds)
+	 * is positive, then a checkpoint of the partial transition system explored
+	 * so far is written every that many new states (seconds), so that it can be
+	 * checked even if the search does not finish (see
+	 * {@link PartialTransitionSystem#loadCheckpoint(String, Map, Set)}).
+	 * The labels of the property jpf.logic.aliases, a comma separated list of
+	 * aliases, are evaluated by this listener: the atomic proposition of alias
+	 * a is the property jpf.logic.alias.a and the labelling is written to the
+	 * .lab file with the aliases as names of the labels (see {@link Label#isBuiltIn()}).
 	 * 
 	 * @param config a configuration
 	 */
 	public PartialTransitionSystemListener(Config config) {
+		this.compress = config.getBoolean("jpf.logic.compress", false);
+		this.hash = config.getBoolean("jpf.logic.hash", false);
+		this.checkpointStates = config.getInt("jpf.logic.checkpoint.states", 0);
+		this.checkpointMillis = 1000L * config.getInt("jpf.logic.checkpoint.seconds", 0);
+		this.pending = new int[2 * BUFFER_SIZE];
+		this.numberOfPending = 0;
+		this.pendingLabels = new int[2 * BUFFER_SIZE];
+		this.numberOfPendingLabels = 0;
 		this.transitions = new LinkedHashMap<>();
 		this.unexploredStates = new TreeSet<>();
 
+		String aliases = config.getString("jpf.logic.aliases", "").trim();
+		this.aliases = aliases.isEmpty() ? new String[0] : aliases.split("\\s*,\\s*");
+		this.labels = new Label[this.aliases.length];
+		this.labelled = new BitSet[this.aliases.length];
+		for (int index = 0; index < this.aliases.length; index++) {
+			this.labels[index] = MyLabelParser.parse(config.getString("jpf.logic.alias." + this.aliases[index]));
+			this.labelled[index] = new BitSet();
+		}
+		this.events = new BitSet(this.aliases.length);
+
 		this.source = -1;
 		this.target = -1;
 
@@ -72,18 +160,75 @@ public class PartialTransitionSystemListener extends SearchListenerAdapter {
 	 *
 	 * @implNote Creates and instantiates a {@code PrintWriter} to be used for
 	 *           output. The path of the outputted file is the SUT name of the VM
-	 *           concatenated with {@code .tra}.
+	 *           concatenated with {@code .tra}, or {@code .tra.gz} if the output
+	 *           is compressed.
 	 *
 	 * @param search the Search instance
 	 */
 	public void searchStarted(Search search) {
-		String name = search.getVM().getSUTName() + ".tra"; //TODO revert this
+		if (!this.open(search.getVM().getSUTName())) {
+			search.terminate();
+		}
+	}
+
+	/**
+	 * Opens the files to which the partial transition system of the system
+	 * under test with the given name is written.
+	 *
+	 * @param sut the name of the system under test
+	 * @return true if the transitions and the hashes of the states can be
+	 * written, false otherwise
+	 */
+	boolean open(String sut) {
+		boolean opened = true;
+		String name = sut + ".tra"; //TODO revert this
+		// remove the other variant, which PartialTransitionSystem.find may prefer
+		new File(this.compress ? name : name + ".gz").delete();
 		try {
-			this.writer = new PrintWriter(name);
-		} catch (FileNotFoundException e) {
+			OutputStream output = new FileOutputStream(this.compress ? name + ".gz" : name);
+			if (this.compress) {
+				output = new GZIPOutputStream(output, BUFFER_SIZE);
+			}
+			this.writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(output), BUFFER_SIZE));
+		} catch (IOException e) {
 			System.out.println("Listener could not write to file " + name);
-			search.terminate();
+			opened = false;
+		}
+		if (this.hash) {
+			String hashName = sut + ".hash";
+			try {
+				this.hashWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(hashName)), BUFFER_SIZE));
+			} catch (IOException e) {
+				System.out.println("Listener could not write to file " + hashName);
+				opened = false;
+			}
+		}
+		if (this.labels.length > 0) {
+			this.labelName = sut + (this.compress ? ".lab.gz" : ".lab");
+			new File(this.compress ? sut + ".lab" : sut + ".lab.gz").delete();
+		}
+		if (this.checkpointStates > 0 || this.checkpointMillis > 0) {
+			this.checkpointName = sut;
+			new File(this.checkpointName + PartialTransitionSystem.CHECKPOINT).delete();
+			try {
+				this.segments = new FileOutputStream(this.checkpointName + PartialTransitionSystem.SEGMENTS);
+			} catch (IOException e) {
+				System.out.println("Listener could not write to file " + this.checkpointName + PartialTransitionSystem.SEGMENTS);
+				this.checkpointName = null;
+			}
+			if (this.checkpointName != null && this.labelName != null) {
+				String labelSegmentsName = this.checkpointName + PartialTransitionSystem.LABEL_SEGMENTS;
+				try {
+					this.labelSegments = new FileOutputStream(labelSegmentsName);
+					this.labelSegments.write((this.indices() + "\n").getBytes(StandardCharsets.US_ASCII));
+				} catch (IOException e) {
+					System.out.println("Listener could not write to file " + labelSegmentsName);
+					this.checkpointName = null;
+				}
+			}
+			this.checkpointedTime = System.currentTimeMillis();
 		}
+		return opened;
 	}
 
 	/**
@@ -114,16 +259,109 @@ public class PartialTransitionSystemListener extends SearchListenerAdapter {
 			}
 			if (this.transitions.get(this.source).add(this.target)) {
 				this.numberOfTransitions++;
+				if (this.checkpointName != null) {
+					if (this.numberOfPending == this.pending.length) {
+						this.pending = Arrays.copyOf(this.pending, 2 * this.pending.length);
+					}
+					this.pending[this.numberOfPending++] = this.source;
+					this.pending[this.numberOfPending++] = this.target;
+				}
 			}
 		}
 		
 		if (search.isNewState()) {
 			this.numberOfStates++;
 			this.unexploredStates.add(this.target);
+			if (this.hashWriter != null) {
+				this.hashWriter.println(this.target + " " + Long.toHexString(FocusedSearch.hash(search.getVM())));
+			}
 		}
 		if (search.isEndState()) {
 			this.unexploredStates.remove(this.target);
 		}
+
+		for (int index = 0; index < this.labels.length; index++) {
+			if (!this.labelled[index].get(this.target) && (this.events.get(index) || search.isNewState() && this.labels[index].holds(search))) {
+				this.labelled[index].set(this.target);
+				if (this.labelSegments != null) {
+					if (this.numberOfPendingLabels == this.pendingLabels.length) {
+						this.pendingLabels = Arrays.copyOf(this.pendingLabels, 2 * this.pendingLabels.length);
+					}
+					this.pendingLabels[this.numberOfPendingLabels++] = this.target;
+					this.pendingLabels[this.numberOfPendingLabels++] = index;
+				}
+			}
+		}
+		this.events.clear();
+
+		if (this.checkpointName != null 
+				&& (this.checkpointStates > 0 && this.numberOfStates - this.checkpointedStates >= this.checkpointStates
+				|| this.checkpointMillis > 0 && System.currentTimeMillis() - this.checkpointedTime >= this.checkpointMillis)) {
+			this.checkpoint();
+		}
+	}
+
+	/**
+	 * Writes a checkpoint.  The transitions since the previous checkpoint are
+	 * appended to the file {@code <SUT>.segments}, the labels since the previous
+	 * checkpoint, if evaluated by this listener, to the file {@code <SUT>.labels}
+	 * and, once they are on disk, the index {@code <SUT>.checkpoint} is replaced
+	 * atomically.  Hence, the index always describes a consistent prefix of the
+	 * segments, even if the search is killed while a checkpoint is written, and
+	 * the time needed for a checkpoint is proportional to what is new.
+	 */
+	private void checkpoint() {
+		try {
+			StringBuilder segment = new StringBuilder();
+			for (int index = 0; index < this.numberOfPending; index += 2) {
+				segment.append(this.pending[index]);
+				segment.append(PartialTransitionSystem.TRANSITION_SEPARATOR);
+				segment.append(this.pending[index + 1]);
+				segment.append('\n');
+			}
+			this.segments.write(segment.toString().getBytes(StandardCharsets.US_ASCII));
+			this.segments.getFD().sync();
+			long length = this.segments.getChannel().position();
+
+			long labelsLength = -1;
+			if (this.labelSegments != null) {
+				StringBuilder labels = new StringBuilder();
+				for (int index = 0; index < this.numberOfPendingLabels; index += 2) {
+					labels.append(this.pendingLabels[index]);
+					labels.append(PartialTransitionSystem.LABEL_SEPARATOR);
+					labels.append(this.pendingLabels[index + 1]);
+					labels.append('\n');
+				}
+				this.labelSegments.write(labels.toString().getBytes(StandardCharsets.US_ASCII));
+				this.labelSegments.getFD().sync();
+				labelsLength = this.labelSegments.getChannel().position();
+			}
+
+			File index = new File(this.checkpointName + PartialTransitionSystem.CHECKPOINT);
+			File temporary = new File(index.getPath() + ".tmp");
+			PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary)), BUFFER_SIZE));
+			if (labelsLength == -1) {
+				writer.printf("%d %d %d%n", length, this.numberOfStates, this.numberOfTransitions);
+			} else {
+				writer.printf("%d %d %d %d%n", length, this.numberOfStates, this.numberOfTransitions, labelsLength);
+			}
+			StringJoiner statesList = new StringJoiner(" ");
+			for (int state : this.unexploredStates) {
+				statesList.add("" + state);
+			}
+			writer.println(statesList.toString());
+			writer.close();
+			if (writer.checkError()) {
+				throw new IOException("File " + temporary + " cannot be written");
+			}
+			Files.move(temporary.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("Listener could not write checkpoint " + this.checkpointName + PartialTransitionSystem.CHECKPOINT);
+		}
+		this.numberOfPending = 0;
+		this.numberOfPendingLabels = 0;
+		this.checkpointedStates = this.numberOfStates;
+		this.checkpointedTime = System.currentTimeMillis();
 	}
 
 	/**
@@ -142,11 +380,47 @@ public class PartialTransitionSystemListener extends SearchListenerAdapter {
 	@Override
 	public void stateBacktracked(Search search) {
 		this.target = search.getStateId();
+		this.events.clear();
 	}
 
 	@Override
 	public void stateRestored(Search search) {
 		this.target = search.getStateId();
+		this.events.clear();
+	}
+
+	/**
+	 * Invoked when a method is entered.  Records the labels that hold because
+	 * the method is invoked in the current transition.
+	 * 
+	 * @param vm the VM
+	 * @param thread the thread invoking the method
+	 * @param method the invoked method
+	 */
+	@Override
+	public void methodEntered(VM vm, ThreadInfo thread, MethodInfo method) {
+		for (int index = 0; index < this.labels.length; index++) {
+			if (this.labels[index].isInvoked(method)) {
+				this.events.set(index);
+			}
+		}
+	}
+
+	/**
+	 * Invoked when an exception is thrown.  Records the labels that hold because
+	 * the exception is thrown in the current transition.
+	 * 
+	 * @param vm the VM
+	 * @param thread the thread throwing the exception
+	 * @param exception the thrown exception
+	 */
+	@Override
+	public void exceptionThrown(VM vm, ThreadInfo thread, ElementInfo exception) {
+		for (int index = 0; index < this.labels.length; index++) {
+			if (this.labels[index].isThrown(exception)) {
+				this.events.set(index);
+			}
+		}
 	}
 
 	/**
@@ -178,7 +452,9 @@ public class PartialTransitionSystemListener extends SearchListenerAdapter {
 			Set<Integer> targets = entry.getValue();
 
 			for (int target : targets) {
-				writer.printf("%d -> %d%n", source, target);
+				writer.print(source);
+				writer.print(PartialTransitionSystem.TRANSITION_SEPARATOR);
+				writer.println(target);
 			}
 		}
 
@@ -189,5 +465,81 @@ public class PartialTransitionSystemListener extends SearchListenerAdapter {
 		writer.println(statesList.toString());
 
 		this.writer.close();
+		if (this.hashWriter != null) {
+			this.hashWriter.close();
+		}
+		if (this.labelName != null) {
+			try {
+				this.writeLabelling();
+			} catch (IOException e) {
+				System.out.println("Listener could not write to file " + this.labelName);
+			}
+		}
+		if (this.checkpointName != null) { // superseded by the partial transition system
+			try {
+				this.segments.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			new File(this.checkpointName + PartialTransitionSystem.CHECKPOINT).delete();
+			new File(this.checkpointName + PartialTransitionSystem.SEGMENTS).delete();
+			if (this.labelSegments != null) {
+				try {
+					this.labelSegments.close();
+				} catch (IOException e) {
+					// ignore
+				}
+				new File(this.checkpointName + PartialTransitionSystem.LABEL_SEGMENTS).delete();
+				this.labelSegments = null;
+			}
+			this.checkpointName = null;
+		}
+	}
+
+	/**
+	 * Writes the labelling of the states explored, in the format of jpf-label,
+	 * to a temporary file which then atomically replaces the .lab file.
+	 */
+	private void writeLabelling() throws IOException {
+		File file = new File(this.labelName);
+		File temporary = new File(this.labelName + ".tmp");
+		OutputStream output = new FileOutputStream(temporary);
+		if (this.compress) {
+			output = new GZIPOutputStream(output, BUFFER_SIZE);
+		}
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(output), BUFFER_SIZE));
+		writer.println(this.indices());
+		BitSet labelledStates = new BitSet();
+		for (BitSet states : this.labelled) {
+			labelledStates.or(states);
+		}
+		for (int state = labelledStates.nextSetBit(0); state != -1; state = labelledStates.nextSetBit(state + 1)) {
+			writer.print(state);
+			writer.print(PartialTransitionSystem.LABEL_SEPARATOR);
+			StringJoiner labels = new StringJoiner(" ");
+			for (int index = 0; index < this.labelled.length; index++) {
+				if (this.labelled[index].get(state)) {
+					labels.add("" + index);
+				}
+			}
+			writer.println(labels.toString());
+		}
+		writer.close();
+		if (writer.checkError()) {
+			throw new IOException("File " + temporary + " cannot be written");
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the first line of a file in the format of jpf-label: the indices
+	 * of the labels evaluated by this listener and their aliases.
+	 */
+	private String indices() {
+		StringJoiner indices = new StringJoiner(" ");
+		for (int index = 0; index < this.aliases.length; index++) {
+			indices.add(index + "=" + this.aliases[index]);
+		}
+		return indices.toString();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Profile of model checking a formula.  It records the time it took, the
+ * number of iterations of the fixpoint computations of the lower- and
+ * upperbound, the number of states visited, whether the result was cached,
+ * and the size of the lower- and upperbound.  The profiles of the subformulas
+ * that were checked are its children, so that the profiles form a tree.
+ */
+public class Profile {
+	private final String formula;
+	private final List<Profile> children;
+	// time in nanoseconds, including the time for the subformulas
+	private long time;
+	private int lowerIterations;
+	private int upperIterations;
+	private long visited;
+	private boolean cached;
+	private int lower;
+	private int upper;
+
+	/**
+	 * Initializes this profile for the given formula.
+	 * 
+	 * @param formula a formula
+	 */
+	public Profile(Formula formula) {
+		this.formula = formula.toString();
+		this.children = new ArrayList<Profile>();
+	}
+
+	/**
+	 * Adds the given profile of a subformula.
+	 * 
+	 * @param child the profile of a subformula
+	 */
+	public void add(Profile child) {
+		this.children.add(child);
+	}
+
+	/**
+	 * Records an iteration of the fixpoint computation of the lowerbound in which
+	 * the given number of states is visited.
+	 * 
+	 * @param visited the number of states visited
+	 */
+	public void iterateLower(long visited) {
+		this.lowerIterations++;
+		this.visited += visited;
+	}
+
+	/**
+	 * Records an iteration of the fixpoint computation of the upperbound in which
+	 * the given number of states is visited.
+	 * 
+	 * @param visited the number of states visited
+	 */
+	public void iterateUpper(long visited) {
+		this.upperIterations++;
+		this.visited += visited;
+	}
+
+	/**
+	 * Records that the given number of states is visited, outside a fixpoint computation.
+	 * 
+	 * @param visited the number of states visited
+	 */
+	public void visit(long visited) {
+		this.visited += visited;
+	}
+
+	/**
+	 * Records that the result was found in the cache.
+	 */
+	public void setCached() {
+		this.cached = true;
+	}
+
+	/**
+	 * Records the given result and the given time.
+	 * 
+	 * @param result the result of model checking the formula
+	 * @param time the time it took in nanoseconds
+	 */
+	public void setResult(Result result, long time) {
+		this.lower = result.getLowerCardinality();
+		this.upper = result.getUpperCardinality();
+		this.time = time;
+	}
+
+	/**
+	 * Returns the formula of this profile.
+	 * 
+	 * @return the formula of this profile
+	 */
+	public String getFormula() {
+		return this.formula;
+	}
+
+	/**
+	 * Returns the profiles of the subformulas.
+	 * 
+	 * @return the profiles of the subformulas
+	 */
+	public List<Profile> getChildren() {
+		return Collections.unmodifiableList(this.children);
+	}
+
+	/**
+	 * Returns the time it took to model check the formula in nanoseconds.
+	 * 
+	 * @return the time it took to model check the formula in nanoseconds
+	 */
+	public long getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the number of iterations of the fixpoint computation of the lowerbound.
+	 * 
+	 * @return the number of iterations of the fixpoint computation of the lowerbound
+	 */
+	public int getLowerIterations() {
+		return this.lowerIterations;
+	}
+
+	/**
+	 * Returns the number of iterations of the fixpoint computation of the upperbound.
+	 * 
+	 * @return the number of iterations of the fixpoint computation of the upperbound
+	 */
+	public int getUpperIterations() {
+		return this.upperIterations;
+	}
+
+	/**
+	 * Returns the number of states visited, excluding those visited for the subformulas.
+	 * 
+	 * @return the number of states visited
+	 */
+	public long getVisited() {
+		return this.visited;
+	}
+
+	/**
+	 * Tests whether the result was found in the cache.
+	 * 
+	 * @return true if the result was found in the cache, false otherwise
+	 */
+	public boolean isCached() {
+		return this.cached;
+	}
+
+	/**
+	 * Returns the number of cache hits of this profile and those of the subformulas.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public int getCacheHits() {
+		int hits = this.cached ? 1 : 0;
+		for (Profile child : this.children) {
+			hits += child.getCacheHits();
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the number of cache misses of this profile and those of the subformulas.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public int getCacheMisses() {
+		int misses = this.cached ? 0 : 1;
+		for (Profile child : this.children) {
+			misses += child.getCacheMisses();
+		}
+		return misses;
+	}
+
+	/**
+	 * Returns the size of the lowerbound.
+	 * 
+	 * @return the size of the lowerbound
+	 */
+	public int getLower() {
+		return this.lower;
+	}
+
+	/**
+	 * Returns the size of the upperbound.
+	 * 
+	 * @return the size of the upperbound
+	 */
+	public int getUpper() {
+		return this.upper;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder toString = new StringBuilder();
+		this.append(toString, "");
+		return toString.toString();
+	}
+
+	/**
+	 * Appends this profile, indented by the given prefix, and those of the 
+	 * subformulas, indented further, to the given string builder.
+	 */
+	private void append(StringBuilder toString, String indentation) {
+		toString.append(indentation + this.formula);
+		if (this.cached) {
+			toString.append(String.format(" [cached, lower = %d, upper = %d]%n", this.lower, this.upper));
+		} else {
+			toString.append(String.format(" [%.3f ms, iterations = %d/%d, visited = %d, lower = %d, upper = %d]%n", 
+					this.time / 1e6, this.lowerIterations, this.upperIterations, this.visited, this.lower, this.upper));
+		}
+		for (Profile child : this.children) {
+			child.append(toString, indentation + "  ");
+		}
+	}
+}
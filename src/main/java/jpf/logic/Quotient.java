@@ -0,0 +1,194 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * The quotient of a partial transition system with respect to a partition of
+ * its states.  Each block of the partition is a state of the quotient; the
+ * block of the initial state 0 is the initial state 0 of the quotient and the
+ * other blocks are numbered in the order of their identifiers, so that the
+ * partition also determines the order of the states of the quotient.  A block has
+ * a transition to another block if some state of the former has a transition
+ * to some state of the latter, it is partially explored if some of its states
+ * is, and it has the labels of its states.  States that are not in any block
+ * are removed.  Results of model checking the quotient can be expanded to
+ * results for the states of the original system.
+ */
+public class Quotient {
+
+	// for each state of the original system, its block, or -1 if it is removed
+	private final int[] blocks;
+	// the quotient
+	private final PartialTransitionSystem quotient;
+
+	/**
+	 * Initializes this quotient of the given system with respect to the given
+	 * partition.
+	 *
+	 * @param system a partial transition system
+	 * @param partition for each state, an identifier of its block smaller than the number of states, or -1 if it is removed
+	 */
+	public Quotient(PartialTransitionSystem system, int[] partition) {
+		this(system, partition, null);
+	}
+
+	/**
+	 * Initializes this quotient of the given system with respect to the given
+	 * partition, keeping only the transitions of the given states.
+	 *
+	 * @param system a partial transition system
+	 * @param partition for each state, an identifier of its block smaller than the number of states, or -1 if it is removed
+	 * @param sources the states whose transitions are kept, or null if all transitions are kept
+	 */
+	public Quotient(PartialTransitionSystem system, int[] partition, BitSet sources) {
+		int numberOfStates = system.getNumberOfStates();
+
+		// number the block of the initial state 0 and the other blocks in the order of their identifiers
+		BitSet identifiers = new BitSet(numberOfStates);
+		for (int state = 0; state < numberOfStates; state++) {
+			if (partition[state] != -1) {
+				identifiers.set(partition[state]);
+			}
+		}
+		int[] numbers = new int[numberOfStates];
+		int numberOfBlocks = 0;
+		if (numberOfStates > 0 && partition[0] != -1) {
+			numbers[partition[0]] = numberOfBlocks++;
+			identifiers.clear(partition[0]);
+		}
+		for (int identifier = identifiers.nextSetBit(0); identifier != -1; identifier = identifiers.nextSetBit(identifier + 1)) {
+			numbers[identifier] = numberOfBlocks++;
+		}
+		this.blocks = new int[numberOfStates];
+		for (int state = 0; state < numberOfStates; state++) {
+			this.blocks[state] = partition[state] == -1 ? -1 : numbers[partition[state]];
+		}
+
+		// compressed sparse row representation of the transitions, possibly with duplicates
+		CompactSuccessors successors = system.getCompactSuccessors();
+		int[] offsets = new int[numberOfBlocks + 1];
+		for (int state = 0; state < successors.getNumberOfStates(); state++) {
+			if (this.blocks[state] != -1 && (sources == null || sources.get(state))) {
+				for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext(); ) {
+					if (this.blocks[iterator.nextInt()] != -1) {
+						offsets[this.blocks[state] + 1]++;
+					}
+				}
+			}
+		}
+		for (int block = 0; block < numberOfBlocks; block++) {
+			offsets[block + 1] += offsets[block];
+		}
+		int[] targets = new int[offsets[numberOfBlocks]];
+		int[] next = Arrays.copyOf(offsets, numberOfBlocks);
+		for (int state = 0; state < successors.getNumberOfStates(); state++) {
+			if (this.blocks[state] != -1 && (sources == null || sources.get(state))) {
+				for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext(); ) {
+					int target = this.blocks[iterator.nextInt()];
+					if (target != -1) {
+						targets[next[this.blocks[state]]++] = target;
+					}
+				}
+			}
+		}
+
+		BitSet partial = new BitSet(numberOfBlocks);
+		for (int state = system.getPartial().nextSetBit(0); state != -1 && state < numberOfStates; state = system.getPartial().nextSetBit(state + 1)) {
+			if (this.blocks[state] != -1) {
+				partial.set(this.blocks[state]);
+			}
+		}
+
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		for (Map.Entry<String, StateSet> entry : system.getLabelSets().entrySet()) {
+			BitSet labelled = new BitSet(numberOfBlocks);
+			StateSet states = entry.getValue();
+			for (int state = states.next(0); state != -1 && state < numberOfStates; state = states.next(state + 1)) {
+				if (this.blocks[state] != -1) {
+					labelled.set(this.blocks[state]);
+				}
+			}
+			labelling.put(entry.getKey(), new CompressedStateSet(labelled));
+		}
+
+		this.quotient = new PartialTransitionSystem(numberOfBlocks, new CompactSuccessors(offsets, targets), partial, labelling);
+	}
+
+	/**
+	 * Returns the quotient.
+	 *
+	 * @return the quotient
+	 */
+	public PartialTransitionSystem getSystem() {
+		return this.quotient;
+	}
+
+	/**
+	 * Returns the state of the quotient of the given state of the original system.
+	 *
+	 * @param state a state of the original system
+	 * @return the state of the quotient of the given state, or -1 if the state is removed
+	 */
+	public int getState(int state) {
+		return this.blocks[state];
+	}
+
+	/**
+	 * Returns the states of the original system whose state of the quotient is
+	 * in the given set.
+	 *
+	 * @param states a set of states of the quotient
+	 * @return the states of the original system whose state of the quotient is in the given set
+	 */
+	public StateSet expand(StateSet states) {
+		return new CompressedStateSet(this.expand(states, false));
+	}
+
+	/**
+	 * Returns the result for the states of the original system of the given
+	 * result for the states of the quotient.  Since the value of a formula in a
+	 * removed state is unknown, a removed state is contained in the upperbound
+	 * but not in the lowerbound.
+	 *
+	 * @param result a result for the states of the quotient
+	 * @return the corresponding result for the states of the original system
+	 */
+	public Result expand(Result result) {
+		return new Result(this.expand(result.getLowerSet(), false), this.expand(result.getUpperSet(), true));
+	}
+
+	/**
+	 * Returns the states of the original system whose state of the quotient is
+	 * in the given set, together with the removed states if so specified.
+	 */
+	private BitSet expand(StateSet states, boolean removed) {
+		BitSet expanded = new BitSet(this.blocks.length);
+		for (int state = 0; state < this.blocks.length; state++) {
+			if (this.blocks[state] == -1 ? removed : states.contains(this.blocks[state])) {
+				expanded.set(state);
+			}
+		}
+		return expanded;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * The states of a partial transition system that can be reached from its
+ * initial state, numbered in breadth first order.  States that cannot be
+ * reached do not influence whether a formula holds in the initial state, yet
+ * they occupy positions in every set of states and take part in every fixed
+ * point computation.  The quotient (see {@link Quotient}) of the system with
+ * respect to the partition of this class removes them and renumbers the
+ * other states, so that states that are close to each other in the system
+ * are also close to each other in the sets of states.  This improves the
+ * locality of the operations on the sets of states and the successors.
+ */
+public class Reachability {
+
+	// for each state, its index in breadth first order, or -1 if it cannot be reached
+	private final int[] partition;
+	// number of states that can be reached
+	private final int numberOfReachable;
+
+	/**
+	 * Computes the states of the given partial transition system that can be
+	 * reached from its initial state.
+	 *
+	 * @param system a partial transition system
+	 */
+	public Reachability(PartialTransitionSystem system) {
+		int n = system.getNumberOfStates();
+		this.partition = new int[n];
+		Arrays.fill(this.partition, -1);
+		if (n == 0) {
+			this.numberOfReachable = 0;
+			return;
+		}
+
+		// breadth first search from the initial state
+		CompactSuccessors successors = system.getCompactSuccessors();
+		int[] queue = new int[n];
+		int size = 1;
+		this.partition[0] = 0;
+		for (int head = 0; head < size; head++) {
+			int state = queue[head];
+			if (state < successors.getNumberOfStates()) {
+				for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext(); ) {
+					int successor = iterator.nextInt();
+					if (this.partition[successor] == -1) {
+						this.partition[successor] = size;
+						queue[size++] = successor;
+					}
+				}
+			}
+		}
+		this.numberOfReachable = size;
+	}
+
+	/**
+	 * Returns the numbering of the states that can be reached.
+	 *
+	 * @return for each state, its index in breadth first order, or -1 if it cannot be reached
+	 */
+	public int[] getPartition() {
+		return this.partition;
+	}
+
+	/**
+	 * Returns the number of states that can be reached from the initial state.
+	 *
+	 * @return the number of states that can be reached
+	 */
+	public int getNumberOfReachable() {
+		return this.numberOfReachable;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Report of a run of jpf-logic, written as a JSON object.  The report
+ * consists of sections, each mapping keys to numbers, strings or booleans.
+ * Entries that are not in a section are put at the top level.  Sections and
+ * keys are written in the order in which they are first added.
+ */
+public class Report {
+
+	// the top level entries and sections
+	private final Map<String, Object> entries;
+
+	/**
+	 * Initializes this report as empty.
+	 */
+	public Report() {
+		this.entries = new LinkedHashMap<String, Object>();
+	}
+
+	/**
+	 * Adds the given key with the given value at the top level.
+	 *
+	 * @param key the key
+	 * @param value a number, string or boolean
+	 */
+	public void put(String key, Object value) {
+		this.entries.put(key, value);
+	}
+
+	/**
+	 * Adds the given key with the given value to the given section.
+	 *
+	 * @param section the name of the section
+	 * @param key the key
+	 * @param value a number, string or boolean
+	 */
+	@SuppressWarnings("unchecked")
+	public void put(String section, String key, Object value) {
+		Object entry = this.entries.get(section);
+		if (!(entry instanceof Map)) {
+			entry = new LinkedHashMap<String, Object>();
+			this.entries.put(section, entry);
+		}
+		((Map<String, Object>) entry).put(key, value);
+	}
+
+	/**
+	 * Adds the profile of a model checker to the section checker: the number of
+	 * cache hits and misses, and the total number of fixpoint iterations and
+	 * states visited.
+	 *
+	 * @param profile the profile of a model checker
+	 */
+	public void put(Profile profile) {
+		this.put("checker", "cacheHits", profile.getCacheHits());
+		this.put("checker", "cacheMisses", profile.getCacheMisses());
+		long[] totals = new long[3];
+		total(profile, totals);
+		this.put("checker", "lowerIterations", totals[0]);
+		this.put("checker", "upperIterations", totals[1]);
+		this.put("checker", "visited", totals[2]);
+	}
+
+	/**
+	 * Adds the number of lower iterations, upper iterations and states visited
+	 * of the given profile and its descendants to the given totals.
+	 */
+	private static void total(Profile profile, long[] totals) {
+		totals[0] += profile.getLowerIterations();
+		totals[1] += profile.getUpperIterations();
+		totals[2] += profile.getVisited();
+		for (Profile child : profile.getChildren()) {
+			total(child, totals);
+		}
+	}
+
+	/**
+	 * Adds the peak usage of the heap, in bytes, to the section memory.  The
+	 * peak usage is the sum of the peak usages of the heap memory pools.
+	 */
+	public void putPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		this.put("memory", "peakHeap", peak);
+		this.put("memory", "maxHeap", Runtime.getRuntime().maxMemory());
+	}
+
+	/**
+	 * Writes this report to the file with the given name.
+	 *
+	 * @param fileName the name of the file
+	 * @throws FileNotFoundException if the file cannot be written
+	 */
+	public void write(String fileName) throws FileNotFoundException {
+		PrintWriter writer = new PrintWriter(fileName);
+		writer.println(this.toString());
+		writer.close();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder toString = new StringBuilder();
+		append(toString, this.entries, "");
+		return toString.toString();
+	}
+
+	/**
+	 * Appends the given entries as a JSON object, indented by the given prefix,
+	 * to the given string builder.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void append(StringBuilder toString, Map<String, Object> entries, String indentation) {
+		toString.append("{");
+		String separator = "\n";
+		for (Map.Entry<String, Object> entry : entries.entrySet()) {
+			toString.append(separator + indentation + "  ");
+			appendString(toString, entry.getKey());
+			toString.append(": ");
+			Object value = entry.getValue();
+			if (value instanceof Map) {
+				append(toString, (Map<String, Object>) value, indentation + "  ");
+			} else if (value instanceof Number || value instanceof Boolean) {
+				toString.append(value);
+			} else {
+				appendString(toString, String.valueOf(value));
+			}
+			separator = ",\n";
+		}
+		toString.append("\n" + indentation + "}");
+	}
+
+	/**
+	 * Appends the given string as a JSON string to the given string builder.
+	 */
+	private static void appendString(StringBuilder toString, String string) {
+		toString.append('"');
+		for (int index = 0; index < string.length(); index++) {
+			char c = string.charAt(index);
+			if (c == '"' || c == '\\') {
+				toString.append('\\').append(c);
+			} else if (c == '\n') {
+				toString.append("\\n");
+			} else if (c < ' ') {
+				toString.append(String.format("\\u%04x", (int) c));
+			} else {
+				toString.append(c);
+			}
+		}
+		toString.append('"');
+	}
+}
@@ -31,8 +31,8 @@ import java.util.BitSet;
  * @author Franck van Breugel
  */
 public class Result {
-	private BitSet lower;
-	private BitSet upper;
+	private StateSet lower;
+	private StateSet upper;
 
 	/**
 	 * Initializes this result with the given lower- and upperbound.
@@ -40,18 +40,28 @@ public class Result {
 	 * @param lower the lowerbound of this result
 	 * @param upper the upperbound of this result
 	 */
-	public Result(BitSet lower, BitSet upper) {
+	public Result(StateSet lower, StateSet upper) {
 		this.lower = lower;
 		this.upper = upper;
 	}
 
+	/**
+	 * Initializes this result with the given lower- and upperbound.
+	 * 
+	 * @param lower the lowerbound of this result
+	 * @param upper the upperbound of this result
+	 */
+	public Result(BitSet lower, BitSet upper) {
+		this(new CompressedStateSet(lower), new CompressedStateSet(upper));
+	}
+
 	/**
 	 * Returns the lowerbound of this result.
 	 * 
 	 * @return the lowerbound of this result
 	 */
 	public BitSet getLower() {
-		return (BitSet) this.lower.clone();
+		return this.lower.toBitSet();
 	}
 
 	/**
@@ -60,7 +70,43 @@ public class Result {
 	 * @return the upperbound of this result
 	 */
 	public BitSet getUpper() {
-		return (BitSet) this.upper.clone();
+		return this.upper.toBitSet();
+	}
+
+	/**
+	 * Returns a copy of the lowerbound of this result.
+	 * 
+	 * @return a copy of the lowerbound of this result
+	 */
+	public StateSet getLowerSet() {
+		return this.lower.copy();
+	}
+
+	/**
+	 * Returns a copy of the upperbound of this result.
+	 * 
+	 * @return a copy of the upperbound of this result
+	 */
+	public StateSet getUpperSet() {
+		return this.upper.copy();
+	}
+
+	/**
+	 * Returns the size of the lowerbound of this result.
+	 * 
+	 * @return the size of the lowerbound of this result
+	 */
+	public int getLowerCardinality() {
+		return this.lower.cardinality();
+	}
+
+	/**
+	 * Returns the size of the upperbound of this result.
+	 * 
+	 * @return the size of the upperbound of this result
+	 */
+	public int getUpperCardinality() {
+		return this.upper.cardinality();
 	}
 
 	@Override
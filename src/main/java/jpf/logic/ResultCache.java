@@ -0,0 +1,214 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A cache of results of model checking, stored on disk so that it survives
+ * the process.  A result is keyed by the SHA-256 hash of the contents of the
+ * .tra and .lab files of the partial transition system, the mapping of the
+ * labels to aliases, the model checker, the reductions applied before model
+ * checking and the simplified formula.  Each
+ * result is stored in its own file as the deflated words of its lower- and
+ * upperbound.  When the total size of the files exceeds the maximum size,
+ * the least recently used results are removed.
+ */
+public class ResultCache {
+
+	// extension of the files containing the results
+	private static final String EXTENSION = ".res";
+	// first int of a file containing a result
+	private static final int MAGIC = 0x6a70666c;
+
+	private final File directory;
+	private final long maxSize;
+
+	/**
+	 * Initializes this cache in the given directory.  The directory is
+	 * created if it does not exist yet.
+	 *
+	 * @param directory the directory of the cache
+	 * @param maxSize the maximum total size of the cached results in bytes
+	 * @throws IOException if the directory cannot be created
+	 */
+	public ResultCache(String directory, long maxSize) throws IOException {
+		this.directory = new File(directory);
+		this.maxSize = maxSize;
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			throw new IOException("Directory " + directory + " cannot be created");
+		}
+	}
+
+	/**
+	 * Returns the key of the result of model checking the given formula with
+	 * the given model checker, after the given reductions, for the partial
+	 * transition system with the given base name whose labels are renamed
+	 * according to the given map.
+	 *
+	 * @param fileName the base name of the .tra and .lab files
+	 * @param names a map from the names of the labels to their aliases
+	 * @param modelChecker the name of the class of the model checker
+	 * @param reductions the names of the reductions, in the order in which they are applied
+	 * @param formula a formula
+	 * @return the key of the result
+	 * @throws IOException if the .tra or .lab file cannot be read
+	 */
+	public static String key(String fileName, Map<String, String> names, String modelChecker, List<String> reductions, Formula formula) throws IOException {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.add(new File(PartialTransitionSystem.find(fileName + ".tra")));
+		fingerprint.add(new File(PartialTransitionSystem.find(fileName + ".lab")));
+		for (Map.Entry<String, String> entry : new TreeMap<String, String>(names).entrySet()) {
+			fingerprint.add(entry.getKey() + "=" + entry.getValue());
+		}
+		fingerprint.add(modelChecker);
+		for (String reduction : reductions) {
+			fingerprint.add("reduction=" + reduction);
+		}
+		fingerprint.add(formula.simplify().toString());
+		return fingerprint.digest();
+	}
+
+	/**
+	 * Returns the file of the result with the given key.
+	 */
+	private File file(String key) {
+		return new File(this.directory, key + EXTENSION);
+	}
+
+	/**
+	 * Returns the result with the given key, or null if the cache does not
+	 * contain the key.
+	 *
+	 * @param key the key of a result
+	 * @return the result with the given key, or null if there is no such result
+	 */
+	public Result get(String key) {
+		File file = this.file(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream input = new DataInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))));
+			try {
+				if (input.readInt() != MAGIC) {
+					return null;
+				}
+				BitSet lower = read(input);
+				BitSet upper = read(input);
+				file.setLastModified(System.currentTimeMillis()); // most recently used
+				return new Result(lower, upper);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			file.delete(); // corrupt
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the given result with the given key to the cache.  Afterwards, the
+	 * least recently used results are removed until the cache fits.
+	 *
+	 * @param key the key of the result
+	 * @param result the result
+	 * @throws IOException if the result cannot be written
+	 */
+	public void put(String key, Result result) throws IOException {
+		File temporary = File.createTempFile(key, ".tmp", this.directory);
+		try {
+			DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(temporary))));
+			try {
+				output.writeInt(MAGIC);
+				write(output, result.getLower());
+				write(output, result.getUpper());
+			} finally {
+				output.close();
+			}
+			// readers never see a partially written result
+			Files.move(temporary.toPath(), this.file(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temporary.delete();
+		}
+		this.evict();
+	}
+
+	/**
+	 * Removes the least recently used results until the total size of the
+	 * results is at most the maximum size.
+	 */
+	private void evict() {
+		File[] files = this.directory.listFiles((directory, name) -> name.endsWith(EXTENSION));
+		if (files == null) {
+			return;
+		}
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (int index = 0; index < files.length && size > this.maxSize; index++) {
+			size -= files[index].length();
+			files[index].delete();
+		}
+	}
+
+	/**
+	 * Writes the given set as its number of words followed by its words.
+	 */
+	private static void write(DataOutputStream output, BitSet set) throws IOException {
+		long[] words = set.toLongArray();
+		output.writeInt(words.length);
+		for (long word : words) {
+			output.writeLong(word);
+		}
+	}
+
+	/**
+	 * Reads a set written by write.
+	 */
+	private static BitSet read(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if (length < 0) {
+			throw new IOException("Negative length");
+		}
+		long[] words = new long[length];
+		for (int index = 0; index < length; index++) {
+			words[index] = input.readLong();
+		}
+		return BitSet.valueOf(words);
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * A long-running jpf-logic server, which avoids paying for starting the JVM,
+ * loading classes and warming up the JIT compiler for every check.
+ * The server listens on a port of the loopback interface only.  Since any user
+ * of the machine can connect to that port, the server generates a random token
+ * and writes it to a file that only its owner can read.  A client sends
+ * requests, one per line, each preceded by the token and a space, and receives
+ * one line in response to each request.  A request with another token is
+ * answered with {@code error Token is invalid}.  The requests are
+ * <ul>
+ * <li>{@code check <configuration file> [<formula file>]}, which runs
+ * jpf-logic with the given configuration file, using the given formula file
+ * instead of the property jpf.logic.formula if present, and responds with
+ * {@code holds}, {@code does not hold} or {@code may hold}, or
+ * {@code error <message>} if jpf-logic cannot be run, and</li>
+ * <li>{@code shutdown}, which stops the server and responds with {@code bye}.</li>
+ * </ul>
+ * File names may not contain whitespace.  The checks are run by a fixed
+ * number of workers.  Loaded partial transition systems are kept in a cache,
+ * so that checking another formula for the same system does not reload it.
+ * Runs of JPF are not concurrent, and neither are checks of the same target.
+ */
+public class Server {
+
+	/**
+	 * Port on which the server listens by default.
+	 */
+	public static final int DEFAULT_PORT = 8642;
+
+	/**
+	 * Number of partial transition systems kept by default.
+	 */
+	public static final int DEFAULT_SYSTEMS = 16;
+
+	/**
+	 * Number of random bytes of the token.
+	 */
+	private static final int TOKEN_BYTES = 32;
+
+	private final ServerSocket socket;
+	private final File tokenFile;
+	private final byte[] token;
+	private final ExecutorService workers;
+	private final SystemCache systems;
+	private final Logger logger;
+
+	/**
+	 * Initializes this server.
+	 *
+	 * @param port the port on which to listen, or 0 for any free port
+	 * @param threads the number of workers
+	 * @param capacity the maximum number of partial transition systems kept
+	 * @param tokenFile the file to which the token is written
+	 * @param logger the logger
+	 * @throws IOException if the server cannot listen on the port or the token
+	 * cannot be written
+	 */
+	public Server(int port, int threads, int capacity, File tokenFile, Logger logger) throws IOException {
+		byte[] random = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(random);
+		StringBuilder token = new StringBuilder();
+		for (byte b : random) {
+			token.append(String.format("%02x", b));
+		}
+		this.socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		try {
+			writeToken(tokenFile, token.toString());
+		} catch (IOException e) {
+			this.socket.close();
+			throw e;
+		}
+		this.tokenFile = tokenFile;
+		this.token = token.toString().getBytes(StandardCharsets.US_ASCII);
+		this.workers = Executors.newFixedThreadPool(threads);
+		this.systems = new SystemCache(capacity);
+		this.logger = logger;
+	}
+
+	/**
+	 * Writes the given token to the given file, which only its owner can read
+	 * and write.  The file is created with these permissions, so that the
+	 * token cannot be read in between.
+	 */
+	private static void writeToken(File file, String token) throws IOException {
+		Path path = file.toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) { // not a POSIX file system
+			Files.createFile(path);
+			if (!file.setReadable(false, false) || !file.setReadable(true, true) 
+					|| !file.setWritable(false, false) || !file.setWritable(true, true)) {
+				throw new IOException("Permissions of " + file + " cannot be restricted");
+			}
+		}
+		Files.write(path, (token + "\n").getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Returns the port on which this server listens.
+	 *
+	 * @return the port on which this server listens
+	 */
+	public int getPort() {
+		return this.socket.getLocalPort();
+	}
+
+	/**
+	 * Accepts clients until this server is shut down.  Each client is served
+	 * by its own thread.
+	 */
+	public void run() {
+		while (!this.socket.isClosed()) {
+			try {
+				Socket client = this.socket.accept();
+				Thread thread = new Thread(() -> this.serve(client));
+				thread.setDaemon(true);
+				thread.start();
+			} catch (SocketException e) {
+				// the socket is closed by shutdown
+			} catch (IOException e) {
+				this.logger.severe("Client cannot be accepted");
+			}
+		}
+		this.workers.shutdown();
+		this.tokenFile.delete();
+	}
+
+	/**
+	 * Stops accepting clients and requests.
+	 */
+	public void shutdown() {
+		try {
+			this.socket.close();
+		} catch (IOException e) {
+			this.logger.severe("Server cannot be shut down");
+		}
+	}
+
+	/**
+	 * Responds to the requests of the given client.
+	 */
+	private void serve(Socket client) {
+		try {
+			BufferedReader input = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter output = new PrintWriter(client.getOutputStream(), true);
+			String line;
+			while ((line = input.readLine()) != null) {
+				String response = this.respond(line.trim());
+				output.println(response);
+				if (response.equals("bye")) {
+					break;
+				}
+			}
+			client.close();
+		} catch (IOException e) {
+			this.logger.severe("Client cannot be served");
+		}
+	}
+
+	/**
+	 * Returns the response to the given request, preceded by a token.
+	 *
+	 * @param line a token and a request
+	 * @return the response to the request
+	 */
+	String respond(String line) {
+		int space = line.indexOf(' ');
+		byte[] token = (space == -1 ? "" : line.substring(0, space)).getBytes(StandardCharsets.US_ASCII);
+		if (!MessageDigest.isEqual(token, this.token)) {
+			return "error Token is invalid";
+		}
+		String request = line.substring(space + 1).trim();
+		String[] part = request.split("\\s+");
+		if (part.length == 1 && part[0].equals("shutdown")) {
+			this.shutdown();
+			return "bye";
+		} else if ((part.length == 2 || part.length == 3) && part[0].equals("check")) {
+			Properties overrides = new Properties();
+			if (part.length == 3) {
+				overrides.setProperty("jpf.logic.formula", part[2]);
+			}
+			try {
+				Future<String> verdict = this.workers.submit(() -> Main.check(part[1], overrides, this.logger, this.systems, null));
+				return verdict.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				return "error " + (cause instanceof CheckException ? cause.getMessage() : cause.toString());
+			} catch (InterruptedException e) {
+				return "error Check is interrupted";
+			} catch (RejectedExecutionException e) {
+				return "error Server is shut down";
+			}
+		} else {
+			return "error Request " + request + " is invalid";
+		}
+	}
+}
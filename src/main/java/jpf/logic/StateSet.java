@@ -0,0 +1,126 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.BitSet;
+
+/**
+ * A set of states of a partial transition system.  The states are 
+ * nonnegative integers.  The operations and, or, andNot and flip modify 
+ * this set, like the corresponding methods of BitSet.
+ */
+public interface StateSet {
+
+	/**
+	 * Tests whether the given state is in this set.
+	 * 
+	 * @param state a state
+	 * @return true if the given state is in this set, false otherwise
+	 */
+	boolean contains(int state);
+
+	/**
+	 * Adds the given state to this set.
+	 * 
+	 * @param state a state
+	 */
+	void add(int state);
+
+	/**
+	 * Adds the states from (inclusive) to (exclusive) to this set.
+	 * 
+	 * @param from the first state to be added
+	 * @param to the state after the last state to be added
+	 */
+	void add(int from, int to);
+
+	/**
+	 * Returns the smallest state in this set that is greater than or equal to
+	 * the given state, or -1 if there is no such state.
+	 * 
+	 * @param state a state
+	 * @return the next state in this set, or -1 if there is no such state
+	 */
+	int next(int state);
+
+	/**
+	 * Tests whether this set is empty.
+	 * 
+	 * @return true if this set is empty, false otherwise
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Returns the number of states in this set.
+	 * 
+	 * @return the number of states in this set
+	 */
+	int cardinality();
+
+	/**
+	 * Tests whether this set and the given set have a state in common.
+	 * 
+	 * @param other a set of states
+	 * @return true if this set and the given set have a state in common, false otherwise
+	 */
+	boolean intersects(StateSet other);
+
+	/**
+	 * Removes the states from this set that are not in the given set.
+	 * 
+	 * @param other a set of states
+	 */
+	void and(StateSet other);
+
+	/**
+	 * Adds the states of the given set to this set.
+	 * 
+	 * @param other a set of states
+	 */
+	void or(StateSet other);
+
+	/**
+	 * Removes the states of the given set from this set.
+	 * 
+	 * @param other a set of states
+	 */
+	void andNot(StateSet other);
+
+	/**
+	 * Adds the states from (inclusive) to (exclusive) that are not in this set
+	 * and removes those that are.
+	 * 
+	 * @param from the first state to be flipped
+	 * @param to the state after the last state to be flipped
+	 */
+	void flip(int from, int to);
+
+	/**
+	 * Returns a copy of this set.
+	 * 
+	 * @return a copy of this set
+	 */
+	StateSet copy();
+
+	/**
+	 * Returns this set as a bit set.
+	 * 
+	 * @return this set as a bit set
+	 */
+	BitSet toBitSet();
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * The compression of the deterministic stuttering chains of a partial
+ * transition system.  A state stutters if it is fully explored and has a
+ * single successor, other than itself, with the same labels.  Such a state
+ * satisfies the same formulas without next operators as its successor, so that
+ * it can be merged with its successor.  Each maximal chain of stuttering states
+ * is merged with the state at its end.  A cycle of stuttering states, which
+ * has no such end, becomes a single state with a transition to itself.
+ *
+ * <p>
+ * The compression is the quotient (see {@link Quotient}) of the system with
+ * respect to the partition of this class, keeping only the transitions of the
+ * states that do not stutter or lie on a cycle.  It takes time linear in the
+ * number of states and transitions.
+ * </p>
+ */
+public class Stuttering {
+
+	// for each state, the state with which it is merged
+	private final int[] partition;
+	// states that do not stutter or lie on a cycle of stuttering states
+	private final BitSet sources;
+
+	/**
+	 * Computes the stuttering chains of the given partial transition system.
+	 *
+	 * @param system a partial transition system
+	 */
+	public Stuttering(PartialTransitionSystem system) {
+		int n = system.getNumberOfStates();
+		CompactSuccessors successors = system.getCompactSuccessors();
+
+		// for each state that stutters, its successor, and -1 otherwise
+		int[] next = new int[n];
+		for (int state = 0; state < n; state++) {
+			next[state] = -1;
+			if (!system.getPartial().get(state) && state < successors.getNumberOfStates()) {
+				PrimitiveIterator.OfInt iterator = successors.iterator(state);
+				if (iterator.hasNext()) {
+					int successor = iterator.nextInt();
+					if (!iterator.hasNext() && successor != state && sameLabels(system, state, successor)) {
+						next[state] = successor;
+					}
+				}
+			}
+		}
+
+		// follow each chain to its end or to a cycle
+		this.partition = new int[n];
+		this.sources = new BitSet(n);
+		for (int state = 0; state < n; state++) {
+			this.partition[state] = -1;
+			if (next[state] == -1) {
+				this.sources.set(state);
+			}
+		}
+		boolean[] onChain = new boolean[n];
+		int[] chain = new int[n];
+		for (int state = 0; state < n; state++) {
+			int length = 0;
+			int current = state;
+			while (this.partition[current] == -1 && !onChain[current] && next[current] != -1) {
+				onChain[current] = true;
+				chain[length++] = current;
+				current = next[current];
+			}
+			int end;
+			if (this.partition[current] != -1) {
+				end = this.partition[current];
+			} else if (onChain[current]) {
+				// the chain ends in a cycle, whose states keep their transitions
+				end = current;
+				for (int index = length - 1; chain[index] != current; index--) {
+					this.sources.set(chain[index]);
+				}
+				this.sources.set(current);
+			} else {
+				end = current;
+				this.partition[current] = current;
+			}
+			for (int index = 0; index < length; index++) {
+				this.partition[chain[index]] = end;
+				onChain[chain[index]] = false;
+			}
+		}
+	}
+
+	/**
+	 * Tests whether the given states have the same labels.
+	 */
+	private static boolean sameLabels(PartialTransitionSystem system, int state, int other) {
+		for (Map.Entry<String, StateSet> entry : system.getLabelSets().entrySet()) {
+			if (entry.getValue().contains(state) != entry.getValue().contains(other)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the partition of the states into stuttering chains.
+	 *
+	 * @return for each state, the state with which it is merged
+	 */
+	public int[] getPartition() {
+		return this.partition;
+	}
+
+	/**
+	 * Returns the states whose transitions are kept: the states that do not
+	 * stutter and the states that lie on a cycle of stuttering states.
+	 *
+	 * @return the states whose transitions are kept
+	 */
+	public BitSet getSources() {
+		return this.sources;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Explores the target of a configuration by a swarm of runs of JPF.  The
+ * property {@code jpf.logic.swarm} of the configuration is the number of runs.
+ * Each run is a separate JVM in its own directory
+ * {@code <configuration>.swarm/<index>} and uses a different search strategy
+ * and random seed: the runs take the search classes of the property
+ * {@code jpf.logic.swarm.search = <class> | ... | <class>} in turn and
+ * randomize the order of the choices with their index as seed.  At most
+ * {@code jpf.logic.parallel} runs, by default the number of processors, are
+ * concurrent.  The partial transition systems of the runs are merged into
+ * their union (see {@link PartialTransitionSystem#union(List, List, Map)}),
+ * which is written to the files {@code <target>.tra}, {@code <target>.lab} and
+ * {@code <target>.hash}.
+ */
+public class Swarm {
+
+	// prefix of the properties of the swarm, which are not passed to the runs
+	private static final String PREFIX = "jpf.logic.swarm";
+	// properties of the focus, which are not passed to the runs
+	private static final String FOCUS = "jpf.logic.focus";
+	// separator of the search classes
+	private static final String SEPARATOR = "\\|";
+	// default search classes
+	private static final String SEARCH = "gov.nasa.jpf.search.DFSearch | gov.nasa.jpf.search.heuristic.BFSHeuristic";
+
+	private final File directory;
+	private final Properties properties;
+	private final int size;
+	private final Logger logger;
+
+	/**
+	 * Initializes this swarm for the configuration file with the given name and
+	 * the given properties of the configuration.
+	 *
+	 * @param fileName the name of a configuration file
+	 * @param properties the properties of the configuration
+	 * @param logger the logger
+	 * @throws CheckException if the property jpf.logic.swarm is not a number
+	 */
+	public Swarm(String fileName, Properties properties, Logger logger) throws CheckException {
+		this.directory = new File(fileName.replaceAll("\\.jpf$", "") + ".swarm");
+		this.properties = properties;
+		try {
+			this.size = Integer.parseInt(properties.getProperty(PREFIX, "0"));
+		} catch (NumberFormatException e) {
+			throw new CheckException("Property " + PREFIX + " is not a number");
+		}
+		this.logger = logger;
+	}
+
+	/**
+	 * Returns the number of runs of this swarm.
+	 *
+	 * @return the number of runs of this swarm
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the configuration of the run with the given index.
+	 *
+	 * @param index the index of a run
+	 * @return the properties of the configuration of the run
+	 */
+	Properties getConfiguration(int index) {
+		Properties configuration = new Properties();
+		for (String key : this.properties.stringPropertyNames()) {
+			if (!key.startsWith(PREFIX) && !key.startsWith(FOCUS)) {
+				configuration.setProperty(key, this.properties.getProperty(key));
+			}
+		}
+		String[] searches = this.properties.getProperty(PREFIX + ".search", SEARCH).split(SEPARATOR);
+		configuration.setProperty("search.class", searches[index % searches.length].trim());
+		configuration.setProperty("cg.randomize_choices", "VAR_SEED");
+		configuration.setProperty("cg.seed", "" + index);
+		configuration.setProperty("jpf.logic.hash", "true");
+		return configuration;
+	}
+
+	/**
+	 * Runs the swarm, merges the partial transition systems of its runs and
+	 * writes their union to the files {@code <target>.tra}, {@code <target>.lab}
+	 * and {@code <target>.hash}.  Runs that fail are skipped.
+	 *
+	 * @param target the target of the configuration
+	 * @return the union of the partial transition systems of the runs
+	 * @throws CheckException if no run succeeds or the union cannot be written
+	 */
+	public PartialTransitionSystem run(String target) throws CheckException {
+		int parallel;
+		try {
+			parallel = Integer.parseInt(this.properties.getProperty("jpf.logic.parallel", "" + Runtime.getRuntime().availableProcessors()));
+		} catch (NumberFormatException e) {
+			throw new CheckException("Property jpf.logic.parallel is not a number");
+		}
+
+		ExecutorService workers = Executors.newFixedThreadPool(Math.max(parallel, 1));
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int index = 0; index < this.size; index++) {
+			final int run = index;
+			futures.add(workers.submit(() -> Sweep.launch(this.getConfiguration(run), new File(this.directory, "" + run), "run " + run + " of " + this.directory, this.logger)));
+		}
+
+		List<PartialTransitionSystem> systems = new ArrayList<PartialTransitionSystem>();
+		List<long[]> hashes = new ArrayList<long[]>();
+		for (int index = 0; index < this.size; index++) {
+			String fileName = new File(new File(this.directory, "" + index), target).getAbsolutePath();
+			try {
+				futures.get(index).get();
+				PartialTransitionSystem system = new PartialTransitionSystem(fileName);
+				hashes.add(readHashes(fileName + ".hash", system.getNumberOfStates()));
+				systems.add(system);
+			} catch (ExecutionException | InterruptedException | IOException e) {
+				this.logger.severe("Run " + index + " of " + this.directory + " failed");
+			}
+		}
+		workers.shutdown();
+		if (systems.isEmpty()) {
+			throw new CheckException("All runs of " + this.directory + " failed");
+		}
+
+		Map<Long, Integer> identities = new LinkedHashMap<Long, Integer>();
+		PartialTransitionSystem union = PartialTransitionSystem.union(systems, hashes, identities);
+		try {
+			union.write(target);
+			PrintWriter writer = new PrintWriter(target + ".hash");
+			for (Map.Entry<Long, Integer> entry : identities.entrySet()) {
+				writer.println(entry.getValue() + " " + Long.toHexString(entry.getKey()));
+			}
+			writer.close();
+		} catch (IOException e) {
+			throw new CheckException("File " + target + " .tra/.lab/.hash cannot be written");
+		}
+		this.logger.info("Union of " + systems.size() + " runs has " + union.getNumberOfStates() + " states of which " + union.getPartial().cardinality() + " are partially explored");
+		return union;
+	}
+
+	/**
+	 * Reads the hashes of the states from the file with the given name, which
+	 * consists of lines of the form {@code <state> <hash>}.
+	 *
+	 * @param fileName the name of a file with the hashes of the states
+	 * @param numberOfStates the number of states
+	 * @return for each state, its hash
+	 * @throws IOException if the file cannot be read or the hash of some state is missing
+	 */
+	static long[] readHashes(String fileName, int numberOfStates) throws IOException {
+		long[] hashes = new long[numberOfStates];
+		boolean[] read = new boolean[numberOfStates];
+		int missing = numberOfStates;
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] part = line.trim().split(" ");
+				if (part.length == 2) {
+					int state = Integer.parseInt(part[0]);
+					if (state < numberOfStates && !read[state]) {
+						hashes[state] = Long.parseUnsignedLong(part[1], 16);
+						read[state] = true;
+						missing--;
+					}
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("File " + fileName + " not in the correct format");
+		} finally {
+			reader.close();
+		}
+		if (missing > 0) {
+			throw new IOException("File " + fileName + " lacks the hashes of " + missing + " states");
+		}
+		return hashes;
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Runs jpf-logic for a grid of configurations.  For each property
+ * {@code jpf.logic.sweep.<key> = <value> | ... | <value>} of the given
+ * configuration, the property {@code <key>} takes each of the values in turn;
+ * the grid consists of all combinations of the values.  Each configuration of
+ * the grid is run by a separate JVM in its own directory
+ * {@code <configuration>.sweep/<index>}, so that the runs do not share the
+ * state of JPF and their .tra and .lab files do not collide.  At most
+ * {@code jpf.logic.parallel} runs, by default the number of processors, are
+ * concurrent.  The verdicts are collected in the table
+ * {@code <configuration>.sweep/results.csv}.
+ */
+public class Sweep {
+
+	// prefix of the properties that are swept
+	private static final String PREFIX = "jpf.logic.sweep.";
+	// separator of the values of a property that is swept
+	private static final String SEPARATOR = "\\|";
+	// prefix of the line containing the verdict in the output of a run
+	private static final String VERDICT = "The formula ";
+	// properties whose values are lists of files, which are resolved against the working directory
+	private static final String[] FILES = { "jpf.logic.formula", "jpf.logic.cache", "classpath", "sourcepath" };
+
+	private final File directory;
+	private final Properties properties;
+	private final List<Map<String, String>> grid;
+	private final Logger logger;
+
+	/**
+	 * Initializes this sweep for the configuration file with the given name.
+	 *
+	 * @param fileName the name of a configuration file
+	 * @param logger the logger
+	 * @throws CheckException if the configuration file cannot be read
+	 */
+	public Sweep(String fileName, Logger logger) throws CheckException {
+		this.properties = new Properties();
+		try {
+			FileInputStream stream = new FileInputStream(fileName);
+			this.properties.load(stream);
+			stream.close();
+		} catch (IOException e) {
+			throw new CheckException("Configuration file " + fileName + " cannot be read");
+		}
+		this.directory = new File(fileName.replaceAll("\\.jpf$", "") + ".sweep");
+		this.grid = expand(this.properties);
+		this.logger = logger;
+	}
+
+	/**
+	 * Returns the grid of the given configuration: all combinations of the
+	 * values of the properties that are swept, in the alphabetical order of
+	 * the properties and the given order of the values.
+	 *
+	 * @param properties a configuration
+	 * @return for each configuration of the grid, the values of the properties that are swept
+	 */
+	public static List<Map<String, String>> expand(Properties properties) {
+		List<Map<String, String>> grid = new ArrayList<Map<String, String>>();
+		grid.add(new LinkedHashMap<String, String>());
+		for (String name : new TreeSet<String>(properties.stringPropertyNames())) {
+			if (name.startsWith(PREFIX)) {
+				String key = name.substring(PREFIX.length());
+				List<Map<String, String>> product = new ArrayList<Map<String, String>>();
+				for (Map<String, String> configuration : grid) {
+					for (String value : properties.getProperty(name).split(SEPARATOR)) {
+						Map<String, String> extended = new LinkedHashMap<String, String>(configuration);
+						extended.put(key, value.trim());
+						product.add(extended);
+					}
+				}
+				grid = product;
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Returns the grid of this sweep.
+	 *
+	 * @return for each configuration of the grid, the values of the properties that are swept
+	 */
+	public List<Map<String, String>> getGrid() {
+		return this.grid;
+	}
+
+	/**
+	 * Runs jpf-logic for each configuration of the grid and returns the verdicts,
+	 * in the order of the grid.  A verdict is holds, does not hold, may hold or,
+	 * if the run failed, error.
+	 *
+	 * @return the verdicts of the configurations
+	 * @throws CheckException if the directory of the sweep cannot be created or the table cannot be written
+	 */
+	public List<String> run() throws CheckException {
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			throw new CheckException("Directory " + this.directory + " cannot be created");
+		}
+		int parallel;
+		try {
+			parallel = Integer.parseInt(this.properties.getProperty("jpf.logic.parallel", "" + Runtime.getRuntime().availableProcessors()));
+		} catch (NumberFormatException e) {
+			throw new CheckException("Property jpf.logic.parallel is not a number");
+		}
+
+		ExecutorService workers = Executors.newFixedThreadPool(Math.max(parallel, 1));
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int index = 0; index < this.grid.size(); index++) {
+			final int configuration = index;
+			futures.add(workers.submit(() -> this.run(configuration)));
+		}
+		List<String> verdicts = new ArrayList<String>();
+		for (Future<String> future : futures) {
+			try {
+				verdicts.add(future.get());
+			} catch (ExecutionException | InterruptedException e) {
+				verdicts.add("error");
+			}
+		}
+		workers.shutdown();
+
+		File table = new File(this.directory, "results.csv");
+		try {
+			PrintWriter writer = new PrintWriter(table);
+			List<String> keys = this.grid.isEmpty() ? new ArrayList<String>() : new ArrayList<String>(this.grid.get(0).keySet());
+			for (String key : keys) {
+				writer.print(quote(key) + ",");
+			}
+			writer.println("directory,verdict");
+			for (int index = 0; index < this.grid.size(); index++) {
+				for (String key : keys) {
+					writer.print(quote(this.grid.get(index).get(key)) + ",");
+				}
+				writer.println(quote(new File(this.directory, "" + index).getPath()) + "," + verdicts.get(index));
+			}
+			writer.close();
+		} catch (FileNotFoundException e) {
+			throw new CheckException("Cannot write table to " + table);
+		}
+		this.logger.info("Table is written to " + table);
+		return verdicts;
+	}
+
+	/**
+	 * Runs jpf-logic for the configuration of the grid with the given index in a
+	 * separate JVM and returns its verdict.
+	 */
+	private String run(int index) throws IOException, InterruptedException {
+		File directory = new File(this.directory, "" + index);
+		Properties configuration = new Properties();
+		for (String key : this.properties.stringPropertyNames()) {
+			if (!key.startsWith(PREFIX)) {
+				configuration.setProperty(key, this.properties.getProperty(key));
+			}
+		}
+		configuration.putAll(this.grid.get(index));
+		this.logger.info("Run configuration " + index + " in " + directory);
+		return launch(configuration, directory, "configuration " + index + " of " + this.directory, this.logger);
+	}
+
+	/**
+	 * Runs jpf-logic for the given configuration in a separate JVM in the given
+	 * directory and returns its verdict.  The files of the configuration are
+	 * resolved against the working directory, the configuration is written to
+	 * the file configuration.jpf and the output of the run to the file
+	 * output.txt of the given directory.
+	 *
+	 * @param configuration the properties of a configuration
+	 * @param directory the directory of the run
+	 * @param comment the comment of the configuration file
+	 * @param logger the logger
+	 * @return the verdict: holds, does not hold, may hold or, if the run failed, error
+	 * @throws IOException if the configuration cannot be written or the output cannot be read
+	 * @throws InterruptedException if the run is interrupted
+	 */
+	static String launch(Properties configuration, File directory, String comment, Logger logger) throws IOException, InterruptedException {
+		directory = directory.getAbsoluteFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Directory " + directory + " cannot be created");
+		}
+		for (String key : FILES) {
+			String value = configuration.getProperty(key);
+			if (value != null) {
+				configuration.setProperty(key, resolve(value));
+			}
+		}
+		File file = new File(directory, "configuration.jpf");
+		FileOutputStream stream = new FileOutputStream(file);
+		configuration.store(stream, comment);
+		stream.close();
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Main.class.getName(), file.getName());
+		builder.directory(directory);
+		builder.redirectErrorStream(true);
+		File output = new File(directory, "output.txt");
+		builder.redirectOutput(output);
+		int status = builder.start().waitFor();
+
+		String verdict = "error";
+		for (String line : Files.readAllLines(output.toPath(), StandardCharsets.UTF_8)) {
+			if (line.startsWith(VERDICT)) {
+				verdict = line.substring(VERDICT.length());
+			}
+		}
+		logger.info("Run in " + directory + " ends with status " + status + " and verdict " + verdict);
+		return verdict;
+	}
+
+	/**
+	 * Returns the given list of files, separated by ; or , with each file that
+	 * exists relative to the working directory replaced by its absolute path.
+	 */
+	private static String resolve(String files) {
+		StringBuilder resolved = new StringBuilder();
+		int start = 0;
+		for (int index = 0; index <= files.length(); index++) {
+			if (index == files.length() || files.charAt(index) == ';' || files.charAt(index) == ',') {
+				String name = files.substring(start, index);
+				File file = new File(name.trim());
+				resolved.append(!name.trim().isEmpty() && file.exists() ? file.getAbsolutePath() : name);
+				if (index < files.length()) {
+					resolved.append(files.charAt(index));
+				}
+				start = index + 1;
+			}
+		}
+		return resolved.toString();
+	}
+
+	/**
+	 * Returns the given value as a field of a CSV file.
+	 */
+	private static String quote(String value) {
+		if (value.contains(",") || value.contains("\"")) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		} else {
+			return value;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A cache of loaded partial transition systems that keeps at most a given
+ * number of systems and evicts the least recently used one.  A system is
+ * keyed by the path, size and modification time of its .tra and .lab files,
+ * the mapping of the labels to aliases and the labels that are kept, so that
+ * a system is reloaded once JPF has rewritten its files.  The cache can be
+ * used by multiple threads.
+ */
+public class SystemCache {
+
+	private final Map<String, PartialTransitionSystem> systems;
+
+	/**
+	 * Initializes this cache as empty.
+	 *
+	 * @param capacity the maximum number of systems kept
+	 */
+	public SystemCache(int capacity) {
+		this.systems = new LinkedHashMap<String, PartialTransitionSystem>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PartialTransitionSystem> eldest) {
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the key of the partial transition system with the given base name,
+	 * whose labels are renamed according to the given map and restricted to the
+	 * given labels.
+	 *
+	 * @param fileName the base name of the .tra and .lab files
+	 * @param names a map from the names of the labels to their aliases
+	 * @param labels the labels that are kept
+	 * @return the key of the system
+	 */
+	public static String key(String fileName, Map<String, String> names, Set<String> labels) {
+		StringBuilder key = new StringBuilder();
+		for (String extension : new String[] { ".tra", ".lab" }) {
+			File file = new File(PartialTransitionSystem.find(fileName + extension)).getAbsoluteFile();
+			key.append(file + " " + file.length() + " " + file.lastModified() + "\n");
+		}
+		key.append(new TreeMap<String, String>(names) + "\n");
+		key.append(new TreeSet<String>(labels));
+		return key.toString();
+	}
+
+	/**
+	 * Returns the system with the given key, or null if the cache does not
+	 * contain the key.
+	 *
+	 * @param key the key of a system
+	 * @return the system with the given key, or null if there is no such system
+	 */
+	public synchronized PartialTransitionSystem get(String key) {
+		return this.systems.get(key);
+	}
+
+	/**
+	 * Adds the given system with the given key to the cache, evicting the least
+	 * recently used system if the cache is full.
+	 *
+	 * @param key the key of the system
+	 * @param system the system
+	 */
+	public synchronized void put(String key, PartialTransitionSystem system) {
+		this.systems.put(key, system);
+	}
+
+	/**
+	 * Returns the number of systems in the cache.
+	 *
+	 * @return the number of systems in the cache
+	 */
+	public synchronized int size() {
+		return this.systems.size();
+	}
+}
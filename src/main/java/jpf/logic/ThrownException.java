@@ -2,6 +2,8 @@ package jpf.logic;
 
 import java.util.Properties;
 
+import gov.nasa.jpf.vm.ElementInfo;
+
 /**
  * A label representing a thrown exception.
  * 
@@ -28,4 +30,25 @@ public class ThrownException extends Label {
 	public String getMangledName() {
 		return "thrown__" + this.name.replaceAll("[$.]", "_");
 	}
+
+	@Override
+	public boolean isBuiltIn() {
+		return true;
+	}
+
+	@Override
+	public boolean isThrown(ElementInfo exception) {
+		return this.isThrown(exception.getClassInfo().getName());
+	}
+
+	/**
+	 * Tests whether an exception of the class with the given name is the
+	 * exception of this label.
+	 * 
+	 * @param className the fully qualified name of the class of an exception
+	 * @return true if the exception is the exception of this label, false otherwise
+	 */
+	boolean isThrown(String className) {
+		return className.equals(this.name);
+	}
 }
@@ -0,0 +1,639 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the transitions of a partial transition system from a .tra file.  The
+ * file consists of a line containing the number of states and transitions, a
+ * line for each transition, and a line containing the partially explored states.
+ * The lines representing transitions are split into chunks, aligned on line
+ * boundaries, which are parsed concurrently.  The transitions of the chunks are
+ * merged, by means of a counting sort on their sources, into a compressed sparse
+ * row representation: the targets of source s are targets[offsets[s]], ...,
+ * targets[offsets[s + 1] - 1].  A gzip compressed file, whose name ends with
+ * .gz, cannot be split into chunks.  Such a file is decompressed by a separate
+ * thread while its lines are parsed.
+ */
+class TransitionReader {
+
+	// size of the buffer used for reading files
+	private static final int BUFFER_SIZE = 1 << 16;
+	// minimal size (in bytes) of a chunk that is parsed by a separate thread
+	private static final long MIN_CHUNK_SIZE = 1 << 22;
+
+	// the bytes of the separator of the source and target of a transition
+	private static final byte[] SEPARATOR = PartialTransitionSystem.TRANSITION_SEPARATOR.getBytes(StandardCharsets.US_ASCII);
+
+	private final String fileName;
+
+	private int numberOfStates;
+	private int numberOfTransitions;
+	private int[] offsets;
+	private int[] targets;
+	private BitSet partial;
+
+	/**
+	 * Reads the transitions from the file with the given name using as many
+	 * threads as there are processors available.
+	 *
+	 * @param fileName the name of the .tra file
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	public TransitionReader(String fileName) throws IOException {
+		this(fileName, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Reads the transitions from the file with the given name using at most
+	 * the given number of threads.
+	 *
+	 * @param fileName the name of the .tra file
+	 * @param threads the maximum number of threads
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	public TransitionReader(String fileName, int threads) throws IOException {
+		this(fileName, threads, MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * Reads the transitions from the file with the given name using at most
+	 * the given number of threads, each parsing at least the given number of bytes.
+	 *
+	 * @param fileName the name of the .tra file
+	 * @param threads the maximum number of threads
+	 * @param minChunkSize the minimal number of bytes parsed by a thread
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	TransitionReader(String fileName, int threads, long minChunkSize) throws IOException {
+		this.fileName = fileName;
+
+		if (fileName.endsWith(".gz")) {
+			InputStream input = new ConcurrentGZIPInputStream(fileName);
+			try {
+				this.parseCompressed(input);
+			} finally {
+				input.close();
+			}
+			return;
+		}
+
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			// first line contains the number of states and the number of transitions
+			this.parseNumberOfStatesAndTransitions(file.readLine());
+			long start = file.getFilePointer();
+
+			// last line contains the partially explored states
+			long end = lastLineStart(file, start);
+			byte[] last = new byte[(int) (file.length() - end)];
+			file.seek(end);
+			file.readFully(last);
+			this.parsePartial(new String(last, StandardCharsets.US_ASCII));
+
+			// lines in between represent transitions
+			List<Long> boundaries = new ArrayList<Long>();
+			boundaries.add(start);
+			int chunks = (int) Math.max(1, Math.min(threads, (end - start) / minChunkSize));
+			for (int chunk = 1; chunk < chunks; chunk++) {
+				long boundary = nextLineStart(file, start + chunk * ((end - start) / chunks), end);
+				if (boundary > boundaries.get(boundaries.size() - 1)) {
+					boundaries.add(boundary);
+				}
+			}
+			boundaries.add(end);
+			this.merge(this.parse(boundaries));
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Parses the given compressed input.  Since it cannot be split into chunks,
+	 * its lines are parsed one after the other: the first line that does not
+	 * represent a transition contains the partially explored states.
+	 *
+	 * @param input the decompressed contents of a .tra file
+	 * @throws IOException if the input is not in the correct format or
+	 * something goes wrong with reading the input
+	 */
+	private void parseCompressed(InputStream input) throws IOException {
+		Lines lines = new Lines(input, Long.MAX_VALUE);
+		if (!lines.next()) {
+			throw this.formatException();
+		}
+		this.parseNumberOfStatesAndTransitions(lines.toString());
+
+		Transitions transitions = new Transitions();
+		if (!lines.next()) {
+			throw this.formatException();
+		}
+		while (parseTransition(lines.buffer, lines.start, lines.end, transitions)) {
+			if (!lines.next()) {
+				throw this.formatException();
+			}
+		}
+		this.parsePartial(lines.toString());
+
+		List<Transitions> chunks = new ArrayList<Transitions>();
+		chunks.add(transitions);
+		this.merge(chunks);
+	}
+
+	/**
+	 * Parses the given line.
+	 *
+	 * @param line a line representing the number of states and transitions
+	 * @throws IOException if the line is not in the correct format
+	 */
+	private void parseNumberOfStatesAndTransitions(String line) throws IOException {
+		if (line == null || !line.trim().matches("\\d+ \\d+")) {
+			throw this.formatException();
+		}
+		String[] pair = line.trim().split(" ");
+		this.numberOfStates = Integer.parseInt(pair[0]);
+		this.numberOfTransitions = Integer.parseInt(pair[1]);
+	}
+
+	/**
+	 * Parses the given line.
+	 *
+	 * @param line a line representing the states that are partially explored
+	 * @throws IOException if the line is not in the correct format
+	 */
+	private void parsePartial(String line) throws IOException {
+		this.partial = new BitSet();
+		line = line.trim();
+		if (line.length() > 0) {
+			if (line.matches("\\d+( \\d+)*")) {
+				for (String state : line.split(" ")) {
+					this.partial.set(Integer.parseInt(state));
+				}
+			} else {
+				throw this.formatException();
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of the first byte of the last line of the given file.
+	 * A newline at the very end of the file is ignored.
+	 *
+	 * @param file a file
+	 * @param start the position of the first byte after the first line
+	 * @return the position of the first byte of the last line of the given file
+	 * @throws IOException if the file has only one line or something goes
+	 * wrong with reading the file
+	 */
+	private long lastLineStart(RandomAccessFile file, long start) throws IOException {
+		long end = file.length();
+		if (end > 0) {
+			file.seek(end - 1);
+			if (file.read() == '\n') {
+				end--;
+			}
+		}
+		if (end < start) {
+			throw this.formatException();
+		}
+		byte[] buffer = new byte[BUFFER_SIZE];
+		while (end > start) {
+			int length = (int) Math.min(buffer.length, end - start);
+			file.seek(end - length);
+			file.readFully(buffer, 0, length);
+			for (int index = length - 1; index >= 0; index--) {
+				if (buffer[index] == '\n') {
+					return end - length + index + 1;
+				}
+			}
+			end -= length;
+		}
+		return start;
+	}
+
+	/**
+	 * Returns the position of the first byte of the line following the given
+	 * position, or the given end if no such line exists before the end.
+	 *
+	 * @param file a file
+	 * @param position a position in the file
+	 * @param end the end of the part of the file that is searched
+	 * @return the position of the first byte of the next line
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	private static long nextLineStart(RandomAccessFile file, long position, long end) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		file.seek(position);
+		while (position < end) {
+			int length = file.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+			if (length == -1) {
+				break;
+			}
+			for (int index = 0; index < length; index++) {
+				if (buffer[index] == '\n') {
+					return position + index + 1;
+				}
+			}
+			position += length;
+		}
+		return end;
+	}
+
+	/**
+	 * Parses the chunks delimited by the given boundaries, each by a separate thread.
+	 *
+	 * @param boundaries the positions at which the chunks start, followed by the
+	 * position at which the last chunk ends
+	 * @return the transitions of each chunk
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	private List<Transitions> parse(List<Long> boundaries) throws IOException {
+		List<Transitions> chunks = new ArrayList<Transitions>();
+		if (boundaries.size() == 2) {
+			chunks.add(this.parse(boundaries.get(0), boundaries.get(1)));
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(boundaries.size() - 1);
+			try {
+				List<Future<Transitions>> futures = new ArrayList<Future<Transitions>>();
+				for (int chunk = 0; chunk < boundaries.size() - 1; chunk++) {
+					final long start = boundaries.get(chunk);
+					final long end = boundaries.get(chunk + 1);
+					futures.add(executor.submit(new Callable<Transitions>() {
+						@Override
+						public Transitions call() throws IOException {
+							return TransitionReader.this.parse(start, end);
+						}
+					}));
+				}
+				for (Future<Transitions> future : futures) {
+					chunks.add(future.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Reading file " + this.fileName + " is interrupted");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				} else {
+					throw new IOException(e.getCause());
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * Parses the lines of the file between the given positions.
+	 *
+	 * @param start the position of the first byte of the first line
+	 * @param end the position following the last byte of the last line
+	 * @return the transitions represented by the lines
+	 * @throws IOException if something goes wrong with reading the file
+	 */
+	private Transitions parse(long start, long end) throws IOException {
+		InputStream input = new FileInputStream(this.fileName);
+		try {
+			long skipped = 0;
+			while (skipped < start) {
+				long skip = input.skip(start - skipped);
+				if (skip <= 0) {
+					throw this.formatException();
+				}
+				skipped += skip;
+			}
+			return this.parse(input, end - start);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Parses the given number of bytes of the given input, which consist of
+	 * lines representing transitions.
+	 *
+	 * @param input an input stream
+	 * @param length the number of bytes to be parsed
+	 * @return the transitions represented by the lines
+	 * @throws IOException if the lines do not represent transitions or
+	 * something goes wrong with reading the input
+	 */
+	private Transitions parse(InputStream input, long length) throws IOException {
+		Transitions transitions = new Transitions();
+		Lines lines = new Lines(input, length);
+		while (lines.next()) {
+			if (!parseTransition(lines.buffer, lines.start, lines.end, transitions)) {
+				throw this.formatException();
+			}
+		}
+		return transitions;
+	}
+
+	/**
+	 * Parses the line consisting of the bytes of the given buffer between the 
+	 * given positions and adds the transition it represents to the given transitions.
+	 *
+	 * @param buffer a buffer
+	 * @param start the position of the first byte of the line
+	 * @param end the position following the last byte of the line
+	 * @param transitions the transitions parsed so far
+	 * @return true if the line represents a transition, false otherwise
+	 */
+	private static boolean parseTransition(byte[] buffer, int start, int end, Transitions transitions) {
+		while (start < end && isWhitespace(buffer[start])) {
+			start++;
+		}
+		while (end > start && isWhitespace(buffer[end - 1])) {
+			end--;
+		}
+
+		int position = start;
+		int source = 0;
+		while (position < end && buffer[position] >= '0' && buffer[position] <= '9') {
+			source = 10 * source + (buffer[position] - '0');
+			position++;
+		}
+		if (position == start || end - position < SEPARATOR.length) {
+			return false;
+		}
+		for (int index = 0; index < SEPARATOR.length; index++, position++) {
+			if (buffer[position] != SEPARATOR[index]) {
+				return false;
+			}
+		}
+		int digits = position;
+		int target = 0;
+		while (position < end && buffer[position] >= '0' && buffer[position] <= '9') {
+			target = 10 * target + (buffer[position] - '0');
+			position++;
+		}
+		if (position == digits || position != end) {
+			return false;
+		}
+		transitions.add(source, target);
+		return true;
+	}
+
+	/**
+	 * Merges the transitions of the chunks into a compressed sparse row
+	 * representation by means of a counting sort on the sources.
+	 *
+	 * @param chunks the transitions of each chunk
+	 */
+	private void merge(List<Transitions> chunks) {
+		int maxState = this.numberOfStates - 1;
+		for (Transitions chunk : chunks) {
+			maxState = Math.max(maxState, chunk.maxState);
+		}
+		this.offsets = new int[maxState + 2];
+		for (Transitions chunk : chunks) {
+			for (int index = 0; index < chunk.size; index++) {
+				this.offsets[chunk.sources[index] + 1]++;
+			}
+		}
+		for (int state = 0; state <= maxState; state++) {
+			this.offsets[state + 1] += this.offsets[state];
+		}
+		int[] next = this.offsets.clone();
+		this.targets = new int[this.offsets[maxState + 1]];
+		for (Transitions chunk : chunks) {
+			for (int index = 0; index < chunk.size; index++) {
+				this.targets[next[chunk.sources[index]]++] = chunk.targets[index];
+			}
+		}
+	}
+
+	/**
+	 * Tests whether the given byte represents whitespace within a line.
+	 *
+	 * @param b a byte
+	 * @return true if the given byte represents whitespace, false otherwise
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * Returns an exception indicating that the file is not in the correct format.
+	 *
+	 * @return an exception indicating that the file is not in the correct format
+	 */
+	private IOException formatException() {
+		return new IOException("File " + this.fileName + " not in the correct format");
+	}
+
+	/**
+	 * Returns the number of states as specified in the file.
+	 *
+	 * @return the number of states as specified in the file
+	 */
+	public int getNumberOfStates() {
+		return this.numberOfStates;
+	}
+
+	/**
+	 * Returns the number of transitions as specified in the file.
+	 *
+	 * @return the number of transitions as specified in the file
+	 */
+	public int getNumberOfTransitions() {
+		return this.numberOfTransitions;
+	}
+
+	/**
+	 * Returns the offsets of the compressed sparse row representation.  Its
+	 * length is one more than the number of states that occur in the file.
+	 *
+	 * @return the offsets of the compressed sparse row representation
+	 */
+	public int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Returns the targets of the compressed sparse row representation.
+	 *
+	 * @return the targets of the compressed sparse row representation
+	 */
+	public int[] getTargets() {
+		return this.targets;
+	}
+
+	/**
+	 * Returns the set of states that are partially explored.
+	 *
+	 * @return the set of states that are partially explored
+	 */
+	public BitSet getPartial() {
+		return this.partial;
+	}
+
+	/**
+	 * The lines of (part of) an input stream.  The current line consists of the
+	 * bytes of the buffer from start (inclusive) to end (exclusive), not
+	 * including the newline.
+	 */
+	private static class Lines {
+		private final InputStream input;
+		private long remaining;
+		private byte[] buffer;
+		private int start;
+		private int end;
+		// the bytes of the buffer from position to limit have not been consumed yet
+		private int position;
+		private int limit;
+
+		/**
+		 * Initializes the lines of the given number of bytes of the given input.
+		 *
+		 * @param input an input stream
+		 * @param length the number of bytes
+		 */
+		public Lines(InputStream input, long length) {
+			this.input = input;
+			this.remaining = length;
+			this.buffer = new byte[BUFFER_SIZE];
+			this.position = 0;
+			this.limit = 0;
+		}
+
+		/**
+		 * Advances to the next line.
+		 *
+		 * @return true if there is a next line, false otherwise
+		 * @throws IOException if something goes wrong with reading the input
+		 */
+		public boolean next() throws IOException {
+			int scanned = this.position;
+			while (true) {
+				for (int index = scanned; index < this.limit; index++) {
+					if (this.buffer[index] == '\n') {
+						this.start = this.position;
+						this.end = index;
+						this.position = index + 1;
+						return true;
+					}
+				}
+				scanned = this.limit - this.position;
+				if (!this.fill()) {
+					if (this.position < this.limit) { // last line without newline
+						this.start = this.position;
+						this.end = this.limit;
+						this.position = this.limit;
+						return true;
+					} else {
+						return false;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Moves the bytes that have not been consumed yet to the front of the
+		 * buffer, enlarging it if needed, and reads more bytes after them.
+		 *
+		 * @return true if more bytes have been read, false otherwise
+		 * @throws IOException if something goes wrong with reading the input
+		 */
+		private boolean fill() throws IOException {
+			if (this.remaining == 0) {
+				return false;
+			}
+			int length = this.limit - this.position;
+			if (length == this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+			}
+			System.arraycopy(this.buffer, this.position, this.buffer, 0, length);
+			this.position = 0;
+			this.limit = length;
+			int read = this.input.read(this.buffer, this.limit, (int) Math.min(this.buffer.length - this.limit, this.remaining));
+			if (read == -1) {
+				this.remaining = 0;
+				return false;
+			}
+			this.limit += read;
+			this.remaining -= read;
+			return true;
+		}
+
+		/**
+		 * Returns the current line.
+		 *
+		 * @return the current line
+		 */
+		@Override
+		public String toString() {
+			return new String(this.buffer, this.start, this.end - this.start, StandardCharsets.US_ASCII);
+		}
+	}
+
+	/**
+	 * Transitions parsed by a single thread.
+	 */
+	private static class Transitions {
+		private static final int INITIAL_CAPACITY = 1 << 10;
+
+		private int[] sources;
+		private int[] targets;
+		private int size;
+		private int maxState;
+
+		/**
+		 * Initializes these transitions as empty.
+		 */
+		public Transitions() {
+			this.sources = new int[INITIAL_CAPACITY];
+			this.targets = new int[INITIAL_CAPACITY];
+			this.size = 0;
+			this.maxState = -1;
+		}
+
+		/**
+		 * Adds a transition with the given source and target.
+		 *
+		 * @param source the source of the transition
+		 * @param target the target of the transition
+		 */
+		public void add(int source, int target) {
+			if (this.size == this.sources.length) {
+				int capacity = this.size + (this.size >> 1);
+				this.sources = Arrays.copyOf(this.sources, capacity);
+				this.targets = Arrays.copyOf(this.targets, capacity);
+			}
+			this.sources[this.size] = source;
+			this.targets[this.size] = target;
+			this.size++;
+			this.maxState = Math.max(this.maxState, Math.max(source, target));
+		}
+	}
+}
@@ -94,6 +94,11 @@ public class And extends CTLFormula {
 		set.addAll(this.right.getAliases());
 		return set;
 	}
+	
+	@Override
+	public boolean isStutterInsensitive() {
+		return this.left.isStutterInsensitive() && this.right.isStutterInsensitive();
+	}
 
 	@Override
 	public CTLFormula simplify() {
@@ -111,6 +111,17 @@ public class CTLFormula extends DefaultFormula {
 		return CTLFormula.random(CTLFormula.DEFAULT_DEPTH);
 	}
 	
+	/**
+	 * Tests whether this formula is insensitive to stuttering.  A formula
+	 * without next operators is.
+	 * 
+	 * @return true if this formula does not contain EX or AX, false otherwise
+	 */
+	@Override
+	public boolean isStutterInsensitive() {
+		return true;
+	}
+	
 	@Override
 	public CTLFormula simplify() {
 		return this;
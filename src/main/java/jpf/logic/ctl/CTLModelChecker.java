@@ -17,13 +17,22 @@
 
 package jpf.logic.ctl;
 
-import java.util.BitSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 
+import jpf.logic.CompactSuccessors;
+import jpf.logic.CompressedStateSet;
+import jpf.logic.Events;
 import jpf.logic.Formula;
 import jpf.logic.ModelChecker;
+import jpf.logic.PartialTransitionSystem;
+import jpf.logic.Profile;
 import jpf.logic.Result;
+import jpf.logic.StateSet;
 
 /**
  * CTL model checking for partial transition systems.
@@ -38,6 +47,14 @@ public class CTLModelChecker extends ModelChecker {
 
 	// cache of lower- and upperbounds of the satisfaction set for formulas
 	private Map<Formula, Result> cache;
+	// profiles of the formulas that are being checked
+	private Deque<Profile> profiles;
+	// profile of the last formula that was checked
+	private Profile profile;
+	// states from which a partially explored state can be reached, outside of which the lower- and upperbounds coincide
+	private StateSet gap;
+	// whether the partial transition system has no partially explored states
+	private boolean explored;
 
 	/**
 	 * Initializes this model checker with the given partial transition system.
@@ -46,6 +63,91 @@ public class CTLModelChecker extends ModelChecker {
 	 */	
 	public CTLModelChecker() {
 		this.cache = new HashMap<Formula, Result>();
+		this.profiles = new ArrayDeque<Profile>();
+		this.profile = null;
+	}
+
+	/**
+	 * Sets the partial transition system to be checked.  The value of a formula
+	 * in a state from which no partially explored state can be reached is
+	 * determined, so that its lower- and upperbound coincide.  Hence, the
+	 * lowerbound is computed first and the upperbound is only computed for the
+	 * gap: the states from which a partially explored state can be reached.
+	 * If the system has no partially explored states, then the gap is empty
+	 * and the lowerbounds are shared by the results as upperbounds.
+	 * 
+	 * @param system a partial transition system
+	 */
+	@Override
+	public void setPartialTransitionSystem(PartialTransitionSystem system) {
+		super.setPartialTransitionSystem(system);
+		this.gap = system.getReaching(system.getPartial());
+		this.explored = this.gap.isEmpty();
+	}
+
+	/**
+	 * Returns the states of the given lowerbound outside the gap.
+	 * 
+	 * @param lower a lowerbound
+	 * @return the states of the lowerbound outside the gap
+	 */
+	private StateSet outside(StateSet lower) {
+		StateSet outside = lower.copy();
+		outside.andNot(this.gap);
+		return outside;
+	}
+
+	/**
+	 * Returns the upperbound that consists of the states of the given 
+	 * upperbound, which is only computed for the gap, and the states of the
+	 * given lowerbound outside the gap.
+	 * 
+	 * @param lower a lowerbound
+	 * @param upper an upperbound for the states of the gap
+	 * @return the upperbound
+	 */
+	private StateSet upper(StateSet lower, StateSet upper) {
+		if (this.explored) {
+			return lower;
+		} else {
+			upper.or(this.outside(lower));
+			return upper;
+		}
+	}
+
+	@Override
+	public Profile getProfile() {
+		return this.profile;
+	}
+
+	/**
+	 * Creates the profile of the given formula and adds it to the profile of 
+	 * the formula that is being checked, if any.
+	 * 
+	 * @param formula the formula that is checked next
+	 * @return the profile of the given formula
+	 */
+	private Profile enter(Formula formula) {
+		Profile profile = new Profile(formula);
+		if (this.profiles.isEmpty()) {
+			this.profile = profile;
+		} else {
+			this.profiles.peek().add(profile);
+		}
+		this.profiles.push(profile);
+		return profile;
+	}
+
+	/**
+	 * Completes the given profile.
+	 * 
+	 * @param profile the profile of the formula that has been checked
+	 * @param result the result of checking the formula
+	 * @param start the time at which checking the formula started
+	 */
+	private void exit(Profile profile, Result result, long start) {
+		profile.setResult(result, System.nanoTime() - start);
+		this.profiles.pop();
 	}
 
 	/**
@@ -56,47 +158,60 @@ public class CTLModelChecker extends ModelChecker {
 	 */
 	public Result check(Formula formula) {
 		formula = formula.simplify();
+		Profile profile = this.enter(formula);
+		long start = System.nanoTime();
 		if (this.cache.containsKey(formula)) {
-			return this.cache.get(formula);
+			Result result = this.cache.get(formula);
+			profile.setCached();
+			this.exit(profile, result, start);
+			return result;
 		} else {
+			CompactSuccessors successors = this.system.getCompactSuccessors();
 			Result result;
 			if (formula instanceof True) {
-				BitSet all = new BitSet(); 
-				all.set(0, this.system.getNumberOfStates());
+				StateSet all = new CompressedStateSet(); 
+				all.add(0, this.system.getNumberOfStates());
 				result = new Result(all, all);
 			} else if (formula instanceof False) {
-				BitSet none = new BitSet(); 
+				StateSet none = new CompressedStateSet(); 
 				result = new Result(none, none);
 			} else if (formula instanceof Alias) {
 				String label = ((Alias) formula).toString();
-				BitSet labelling = new BitSet(); 
-				if (this.system.getLabelling().containsKey(label)) { 
-					labelling = (BitSet) this.system.getLabelling().get(label).clone();
+				StateSet labelling = new CompressedStateSet(); 
+				if (this.system.getLabelSets().containsKey(label)) { 
+					labelling = this.system.getLabelSets().get(label).copy();
 				}
-				result = new Result(labelling, (BitSet) labelling.clone());
+				result = new Result(labelling, this.explored ? labelling : labelling.copy());
 			} else if (formula instanceof Not) {
 				Not not = (Not) formula;
 				Formula subformula = not.getFormula();
 				result = check(subformula);
-				BitSet lower = result.getLower();
-				BitSet upper = result.getUpper();
+				StateSet lower = result.getLowerSet();
 				lower.flip(0, this.system.getNumberOfStates());
-				upper.flip(0, this.system.getNumberOfStates());
-				result = new Result(upper, lower);
+				if (this.explored) {
+					result = new Result(lower, lower);
+				} else {
+					StateSet upper = result.getUpperSet();
+					upper.flip(0, this.system.getNumberOfStates());
+					result = new Result(upper, lower);
+				}
 			} else if (formula instanceof And) {
 				And and = (And) formula;
 				Formula left = and.getLeft();
 				Formula right = and.getRight();
 				Result leftResult = check(left);
 				Result rightResult = check(right);
-				BitSet leftLower = leftResult.getLower();
-				BitSet leftUpper = leftResult.getUpper();
-				BitSet rightLower = rightResult.getLower();
-				BitSet rightUpper = rightResult.getUpper();
-				BitSet lower = leftLower;
+				StateSet leftLower = leftResult.getLowerSet();
+				StateSet rightLower = rightResult.getLowerSet();
+				StateSet leftUpper = this.explored ? null : leftResult.getUpperSet();
+				StateSet rightUpper = this.explored ? null : rightResult.getUpperSet();
+				StateSet lower = leftLower;
 				lower.and(rightLower);
-				BitSet upper = leftUpper;
-				upper.and(rightUpper);
+				StateSet upper = lower;
+				if (!this.explored) {
+					upper = leftUpper;
+					upper.and(rightUpper);
+				}
 				result = new Result(lower, upper);
 			} else if (formula instanceof Or) {
 				Or or = (Or) formula;
@@ -120,151 +235,178 @@ public class CTLModelChecker extends ModelChecker {
 				ExistsNext existsNext = (ExistsNext) formula;
 				Formula subFormula = existsNext.getFormula();
 				Result subResult = check(subFormula);
-				BitSet subLower = subResult.getLower();
-				BitSet subUpper = subResult.getUpper();
+				StateSet subLower = subResult.getLowerSet();
+				StateSet subUpper = this.explored ? null : subResult.getUpperSet();
 
-				BitSet lower = new BitSet();
-				BitSet upper = new BitSet();
+				profile.visit(this.system.getNumberOfStates());
+				StateSet lower = new CompressedStateSet();
+				StateSet upper = new CompressedStateSet();
 				if (subFormula instanceof True) {
 					for (int state = 0; state < this.system.getNumberOfStates(); state++) {
-						if (this.system.getSuccessors().containsKey(state) || this.system.getPartial().get(state)) { // post(state) is nonempty or state is partially explored
-							lower.set(state);
-							upper.set(state);
+						if (successors.hasSuccessors(state) || this.system.getPartial().get(state)) { // post(state) is nonempty or state is partially explored
+							lower.add(state);
+							upper.add(state);
 						}
 					}
 				} else {
 					for (int state = 0; state < this.system.getNumberOfStates(); state++) {
 						if (this.system.getPartial().get(state)) { 
-							upper.set(state);
+							upper.add(state);
 						} 
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (post.intersects(subLower)) {
-								lower.set(state);
+						if (successors.hasSuccessors(state)) { // post(state) is nonempty
+							if (successors.intersects(state, subLower)) {
+								lower.add(state);
 							}
-							if (post.intersects(subUpper)) { 
-								upper.set(state);
+							if (this.gap.contains(state) && successors.intersects(state, subUpper)) { 
+								upper.add(state);
 							}
 						} 
 					}
 				}
 
-				result = new Result(lower, upper);
+				result = new Result(lower, this.upper(lower, upper));
 			} else if (formula instanceof ForAllNext) {
 				ForAllNext alwaysNext = (ForAllNext) formula;
 				Formula subformula = alwaysNext.getFormula();
 				Result subResult = check(subformula);
-				BitSet subLower = subResult.getLower();
-				BitSet subUpper = subResult.getUpper();
+				StateSet subLower = subResult.getLowerSet();
+				StateSet subUpper = this.explored ? null : subResult.getUpperSet();
 
-				BitSet lower = new BitSet();
-				BitSet upper = new BitSet();
+				profile.visit(this.system.getNumberOfStates());
+				StateSet lower = new CompressedStateSet();
+				StateSet upper = new CompressedStateSet();
 				for (int state = 0; state < this.system.getNumberOfStates(); state++) {
 					if (this.system.getPartial().get(state)) { 
-						upper.set(state);
+						upper.add(state);
 					} else {
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (subset(post, subLower)) {
-								lower.set(state);
+						if (successors.hasSuccessors(state)) { // post(state) is nonempty
+							if (successors.subset(state, subLower)) {
+								lower.add(state);
 							}
-							if (subset(post, subUpper)) { 
-								upper.set(state);
+							if (this.gap.contains(state) && successors.subset(state, subUpper)) { 
+								upper.add(state);
 							}
 						}
 					}
 				}
 
-				result = new Result(lower, upper);
+				result = new Result(lower, this.upper(lower, upper));
 			} else if (formula instanceof ExistsAlways) {
 				ExistsAlways existsAlways = (ExistsAlways) formula;
 				Formula subFormula = existsAlways.getFormula();
 				Result subResult = check(subFormula);
-				BitSet subLower = subResult.getLower();
-				BitSet subUpper = subResult.getUpper();
+				StateSet subLower = subResult.getLowerSet();
+				StateSet subUpper = this.explored ? null : subResult.getUpperSet();
 
-				BitSet lower = new BitSet();
-				lower.set(0, this.system.getNumberOfStates());
-				BitSet previous;
+				StateSet lower = new CompressedStateSet();
+				lower.add(0, this.system.getNumberOfStates());
+				StateSet previous;
+				Object event = Events.beginFixpoint();
 				do {
 					previous = lower;
-					lower = new BitSet(this.system.getNumberOfStates());
-					for (int state = subLower.nextSetBit(0); state != -1; state = subLower.nextSetBit(state + 1)) { // for each state in SatLower(subFormula)
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (post.intersects(previous)) { 
-								lower.set(state);
+					profile.iterateLower(subLower.cardinality());
+					lower = new CompressedStateSet();
+					for (int state = subLower.next(0); state != -1; state = subLower.next(state + 1)) { // for each state in SatLower(subFormula)
+						if (successors.hasSuccessors(state)) { // post(state) is nonempty
+							if (successors.intersects(state, previous)) { 
+								lower.add(state);
 							}
 						} else { // post(state) is empty
 							if (!this.system.getPartial().get(state)) { 
-								lower.set(state);
+								lower.add(state);
 							}
 						}
 					}
 				} while (!lower.equals(previous));
+				Events.endFixpoint(event, formula, "lower", profile.getLowerIterations(), this.system.getNumberOfStates(), lower);
 
-				BitSet upper = new BitSet();
-				upper.set(0, this.system.getNumberOfStates());
-				do {
-					previous = upper;
-					upper = new BitSet(this.system.getNumberOfStates());
-					for (int state = subUpper.nextSetBit(0); state != -1; state = subUpper.nextSetBit(state + 1)) { // for each state in SatLower(subFormula)
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (post.intersects(previous)) { 
-								upper.set(state);
+				StateSet upper;
+				if (this.explored) {
+					upper = lower;
+				} else {
+					// outside the gap, the upperbound is the lowerbound
+					StateSet outside = this.outside(lower);
+					StateSet region = subUpper;
+					region.and(this.gap);
+					upper = outside.copy();
+					upper.or(region);
+					event = Events.beginFixpoint();
+					do {
+						previous = upper;
+						profile.iterateUpper(region.cardinality());
+						upper = outside.copy();
+						for (int state = region.next(0); state != -1; state = region.next(state + 1)) { // for each state in SatUpper(subFormula) in the gap
+							if (successors.hasSuccessors(state)) { // post(state) is nonempty
+								if (successors.intersects(state, previous)) { 
+									upper.add(state);
+								}
+							} else { // post(state) is empty
+								upper.add(state);
+							}
+							if (this.system.getPartial().get(state)) { 
+								upper.add(state);
 							}
-						} else { // post(state) is empty
-							upper.set(state);
-						}
-						if (this.system.getPartial().get(state)) { 
-							upper.set(state);
 						}
-					}
-				} while (!upper.equals(previous));
+					} while (!upper.equals(previous));
+					Events.endFixpoint(event, formula, "upper", profile.getUpperIterations(), this.system.getNumberOfStates(), upper);
+				}
 
 				result = new Result(lower, upper);
 			} else if (formula instanceof ForAllAlways) {
 				ForAllAlways forAllAlways = (ForAllAlways) formula;
 				CTLFormula subFormula = forAllAlways.getFormula();
 				Result subResult = check(subFormula);
-				BitSet subLower = subResult.getLower();
-				BitSet subUpper = subResult.getUpper();
+				StateSet subLower = subResult.getLowerSet();
+				StateSet subUpper = this.explored ? null : subResult.getUpperSet();
 
-				BitSet lower = (BitSet) subLower.clone();
-				BitSet previous;
+				StateSet lower = subLower.copy();
+				StateSet previous;
+				Object event = Events.beginFixpoint();
 				do {
 					previous = lower;
-					lower = new BitSet(this.system.getNumberOfStates());
-					for (int state = subLower.nextSetBit(0); state != -1; state = subLower.nextSetBit(state + 1)) { // for each state in SatLower(subFormula)
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (subset(post, previous)) {
-								lower.set(state);
+					profile.iterateLower(subLower.cardinality());
+					lower = new CompressedStateSet();
+					for (int state = subLower.next(0); state != -1; state = subLower.next(state + 1)) { // for each state in SatLower(subFormula)
+						if (successors.hasSuccessors(state)) { // post(state) is nonempty
+							if (successors.subset(state, previous)) {
+								lower.add(state);
 							}
 						} else { // post(state) is empty
 							if (!this.system.getPartial().get(state)) { 
-								lower.set(state);
+								lower.add(state);
 							}
 						}
 					}
 				} while (!lower.equals(previous));
+				Events.endFixpoint(event, formula, "lower", profile.getLowerIterations(), this.system.getNumberOfStates(), lower);
 
-				BitSet upper = (BitSet) subUpper.clone();
-				do {
-					previous = upper;
-					upper = new BitSet(this.system.getNumberOfStates());
-					for (int state = subUpper.nextSetBit(0); state != -1; state = subUpper.nextSetBit(state + 1)) { // for each state in SatLower(subFormula)
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (subset(post, previous)) { 
-								upper.set(state);
+				StateSet upper;
+				if (this.explored) {
+					upper = lower;
+				} else {
+					// outside the gap, the upperbound is the lowerbound
+					StateSet outside = this.outside(lower);
+					StateSet region = subUpper;
+					region.and(this.gap);
+					upper = outside.copy();
+					upper.or(region);
+					event = Events.beginFixpoint();
+					do {
+						previous = upper;
+						profile.iterateUpper(region.cardinality());
+						upper = outside.copy();
+						for (int state = region.next(0); state != -1; state = region.next(state + 1)) { // for each state in SatUpper(subFormula) in the gap
+							if (successors.hasSuccessors(state)) { // post(state) is nonempty
+								if (successors.subset(state, previous)) { 
+									upper.add(state);
+								}
+							} else { // post(state) is empty
+								upper.add(state);
 							}
-						} else { // post(state) is empty
-							upper.set(state);
 						}
-					}
-				} while (!upper.equals(previous));
+					} while (!upper.equals(previous));
+					Events.endFixpoint(event, formula, "upper", profile.getUpperIterations(), this.system.getNumberOfStates(), upper);
+				}
 
 				result = new Result(lower, upper);
 			} else if (formula instanceof ExistsEventually) {
@@ -274,40 +416,52 @@ public class CTLModelChecker extends ModelChecker {
 				//result = check(equivalent);
 				
 				Result subResult = check(subFormula);
-				BitSet subLower = subResult.getLower();
-				BitSet subUpper = subResult.getUpper();
+				StateSet subLower = subResult.getLowerSet();
+				StateSet subUpper = this.explored ? null : subResult.getUpperSet();
 
-				BitSet lower = (BitSet) subLower.clone();
-				BitSet previous;
+				StateSet lower = subLower.copy();
+				StateSet previous;
+				Object event = Events.beginFixpoint();
 				do {
 					previous = lower;
-					lower = (BitSet) subLower.clone();
+					profile.iterateLower(this.system.getNumberOfStates());
+					lower = subLower.copy();
 					for (int state = 0; state < system.getNumberOfStates(); state++) { 
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (post.intersects(previous)) { 
-								lower.set(state);
+						if (successors.hasSuccessors(state)) { // post(state) is nonempty
+							if (successors.intersects(state, previous)) { 
+								lower.add(state);
 							}
 						} 
 					}
 				} while (!lower.equals(previous));
+				Events.endFixpoint(event, formula, "lower", profile.getLowerIterations(), this.system.getNumberOfStates(), lower);
 
-				BitSet upper = (BitSet) subUpper.clone();
-				do {
-					previous = upper;
-					upper = (BitSet) subUpper.clone();
-					for (int state = 0; state < system.getNumberOfStates(); state++) { 
-						if (this.system.getSuccessors().containsKey(state)) { // post(state) is nonempty
-							BitSet post = this.system.getSuccessors().get(state); 
-							if (post.intersects(previous)) { 
-								upper.set(state);
+				StateSet upper;
+				if (this.explored) {
+					upper = lower;
+				} else {
+					// seeded with the lowerbound, only the states in the gap are added
+					StateSet seed = subUpper;
+					seed.or(lower);
+					upper = seed.copy();
+					event = Events.beginFixpoint();
+					do {
+						previous = upper;
+						profile.iterateUpper(this.gap.cardinality());
+						upper = seed.copy();
+						for (int state = this.gap.next(0); state != -1; state = this.gap.next(state + 1)) { // for each state in the gap
+							if (successors.hasSuccessors(state)) { // post(state) is nonempty
+								if (successors.intersects(state, previous)) { 
+									upper.add(state);
+								}
+							} 
+							if (this.system.getPartial().get(state)) { 
+								upper.add(state);
 							}
-						} 
-						if (this.system.getPartial().get(state)) { 
-							upper.set(state);
 						}
-					}
-				} while (!upper.equals(previous));
+					} while (!upper.equals(previous));
+					Events.endFixpoint(event, formula, "upper", profile.getUpperIterations(), this.system.getNumberOfStates(), upper);
+				}
 
 				result = new Result(lower, upper);				
 			} else if (formula instanceof ForAllEventually) {
@@ -321,44 +475,57 @@ public class CTLModelChecker extends ModelChecker {
 				Formula right = existsUntil.getRight();
 				Result leftResult = check(left);
 				Result rightResult = check(right);
-				BitSet leftLower = leftResult.getLower();
-				BitSet leftUpper = leftResult.getUpper();
-				BitSet rightLower = rightResult.getLower();
-				BitSet rightUpper = rightResult.getUpper();
+				StateSet leftLower = leftResult.getLowerSet();
+				StateSet rightLower = rightResult.getLowerSet();
+				StateSet leftUpper = this.explored ? null : leftResult.getUpperSet();
+				StateSet rightUpper = this.explored ? null : rightResult.getUpperSet();
 
-				BitSet lower = new BitSet();
-				BitSet previous;
+				StateSet lower = new CompressedStateSet();
+				StateSet previous;
+				Object event = Events.beginFixpoint();
 				do {
 					previous = lower;
-					lower = new BitSet(this.system.getNumberOfStates());
-					for (int state = leftLower.nextSetBit(0); state != -1; state = leftLower.nextSetBit(state + 1)) { // for each state in Sat(left)
-						if (this.system.getSuccessors().containsKey(state)) {
-							BitSet post = this.system.getSuccessors().get(state); // post(state)
-							if (post.intersects(previous)) { 
-								lower.set(state);
+					profile.iterateLower(leftLower.cardinality());
+					lower = new CompressedStateSet();
+					for (int state = leftLower.next(0); state != -1; state = leftLower.next(state + 1)) { // for each state in Sat(left)
+						if (successors.hasSuccessors(state)) {
+							if (successors.intersects(state, previous)) { 
+								lower.add(state);
 							}
 						}
 					}
 					lower.or(rightLower);
 				} while (!lower.equals(previous));
+				Events.endFixpoint(event, formula, "lower", profile.getLowerIterations(), this.system.getNumberOfStates(), lower);
 
-				BitSet upper = new BitSet();
-				do {
-					previous = upper;
-					upper = new BitSet(this.system.getNumberOfStates());
-					for (int state = leftUpper.nextSetBit(0); state != -1; state = leftUpper.nextSetBit(state + 1)) { // for each state in Sat(left)
-						if (this.system.getPartial().get(state)) { 
-							upper.set(state);
-						}
-						if (this.system.getSuccessors().containsKey(state)) {
-							BitSet post = system.getSuccessors().get(state); // post(state)
-							if (post.intersects(previous)) { 
-								upper.set(state);
+				StateSet upper;
+				if (this.explored) {
+					upper = lower;
+				} else {
+					// seeded with the lowerbound, only the states in the gap are added
+					StateSet seed = rightUpper;
+					seed.or(lower);
+					StateSet region = leftUpper;
+					region.and(this.gap);
+					upper = seed.copy();
+					event = Events.beginFixpoint();
+					do {
+						previous = upper;
+						profile.iterateUpper(region.cardinality());
+						upper = seed.copy();
+						for (int state = region.next(0); state != -1; state = region.next(state + 1)) { // for each state in SatUpper(left) in the gap
+							if (this.system.getPartial().get(state)) { 
+								upper.add(state);
+							}
+							if (successors.hasSuccessors(state)) {
+								if (successors.intersects(state, previous)) { 
+									upper.add(state);
+								}
 							}
 						}
-					}
-					upper.or(rightUpper);
-				} while (!upper.equals(previous));
+					} while (!upper.equals(previous));
+					Events.endFixpoint(event, formula, "upper", profile.getUpperIterations(), this.system.getNumberOfStates(), upper);
+				}
 
 				result = new Result(lower, upper);
 			} else if (formula instanceof ForAllUntil) {
@@ -369,25 +536,152 @@ public class CTLModelChecker extends ModelChecker {
 				result = check(equivalent);
 			} else {
 				System.err.println("This formula type is unknown (" + formula.getClass() +")");
+				this.profiles.pop();
 				return null;
 			}
 
 			this.cache.put(formula, result);
+			this.exit(profile, result, start);
 			return result;
 		}
 	}
 
 	/**
-	 * Tests whether the smaller set is a subset of the larger set.
-	 * 
-	 * @param smaller a set
-	 * @param bigger a set
-	 * @return true if the smaller set is a subset of the larger set,
-	 * false otherwise
+	 * Returns the partially explored states that can influence whether the given
+	 * formula holds in the initial state, mapped to their distance from the
+	 * initial state, in order of increasing distance.  The states are found by
+	 * propagating, from the initial state, the states in which the value of a
+	 * subformula matters to the subformulas, restricted to the states in which
+	 * the value of the subformula is undecided.  For a next operator, these
+	 * are the successors; for the other temporal operators, these are the
+	 * states that can be reached via states in which the value is undecided.
+	 * The time needed is linear in the size of the system for each subformula.
+	 *
+	 * @param formula a CTL formula
+	 * @return the partially explored states that can influence the verdict and their distances
+	 */
+	@Override
+	public Map<Integer, Integer> getRelevant(Formula formula) {
+		StateSet demand = new CompressedStateSet();
+		if (this.system.getNumberOfStates() > 0) {
+			demand.add(0);
+		}
+		StateSet relevant = new CompressedStateSet();
+		this.relevant(formula, demand, relevant);
+
+		return this.system.getDistances(relevant);
+	}
+
+	/**
+	 * Adds to the given set of relevant states the partially explored states
+	 * that can influence the value of the given formula in the given states.
+	 *
+	 * @param formula a CTL formula
+	 * @param demand the states in which the value of the formula matters
+	 * @param relevant the relevant partially explored states found so far
 	 */
-	private static boolean subset(BitSet smaller, BitSet bigger) {
-		BitSet copy = (BitSet) bigger.clone();
-		copy.and(smaller);
-		return smaller.equals(copy);
+	private void relevant(Formula formula, StateSet demand, StateSet relevant) {
+		formula = formula.simplify();
+		Result result = this.cache.get(formula);
+		if (result == null) {
+			result = this.check(formula);
+		}
+		// the value only matters in the states in which it is undecided
+		demand = demand.copy();
+		demand.and(result.getUpperSet());
+		demand.andNot(result.getLowerSet());
+		if (demand.isEmpty()) {
+			return;
+		}
+
+		if (formula instanceof Not) {
+			this.relevant(((Not) formula).getFormula(), demand, relevant);
+		} else if (formula instanceof And) {
+			And and = (And) formula;
+			this.relevant(and.getLeft(), demand, relevant);
+			this.relevant(and.getRight(), demand, relevant);
+		} else if (formula instanceof Or) {
+			Or or = (Or) formula;
+			this.relevant(new Not(new And(new Not(or.getLeft()), new Not(or.getRight()))), demand, relevant);
+		} else if (formula instanceof Implies) {
+			Implies implies = (Implies) formula;
+			this.relevant(new Or(new Not(implies.getLeft()), implies.getRight()), demand, relevant);
+		} else if (formula instanceof Iff) {
+			Iff iff = (Iff) formula;
+			this.relevant(new And(new Implies(iff.getLeft(), iff.getRight()), new Implies(iff.getRight(), iff.getLeft())), demand, relevant);
+		} else if (formula instanceof ForAllEventually) {
+			this.relevant(new Not(new ExistsAlways(new Not(((ForAllEventually) formula).getFormula()))), demand, relevant);
+		} else if (formula instanceof ForAllUntil) {
+			ForAllUntil forAllUntil = (ForAllUntil) formula;
+			CTLFormula left = forAllUntil.getLeft();
+			CTLFormula right = forAllUntil.getRight();
+			this.relevant(new And(new Not(new ExistsUntil(new Not(right), new And(new Not(left), new Not(right)))), new Not(new ExistsAlways(new Not(right)))), demand, relevant);
+		} else if (formula instanceof ExistsNext || formula instanceof ForAllNext) {
+			Formula subformula = formula instanceof ExistsNext ? ((ExistsNext) formula).getFormula() : ((ForAllNext) formula).getFormula();
+			CompactSuccessors successors = this.system.getCompactSuccessors();
+			StateSet next = new CompressedStateSet();
+			for (int state = demand.next(0); state != -1; state = demand.next(state + 1)) {
+				if (this.system.getPartial().get(state)) {
+					relevant.add(state);
+				}
+				for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext();) {
+					next.add(iterator.nextInt());
+				}
+			}
+			this.relevant(subformula, next, relevant);
+		} else if (formula instanceof ExistsAlways || formula instanceof ForAllAlways || formula instanceof ExistsEventually || formula instanceof ExistsUntil) {
+			StateSet gap = result.getUpperSet();
+			gap.andNot(result.getLowerSet());
+			StateSet closure = this.closure(demand, gap);
+			for (int state = closure.next(0); state != -1; state = closure.next(state + 1)) {
+				if (this.system.getPartial().get(state)) {
+					relevant.add(state);
+				}
+			}
+			if (formula instanceof ExistsAlways) {
+				this.relevant(((ExistsAlways) formula).getFormula(), closure, relevant);
+			} else if (formula instanceof ForAllAlways) {
+				this.relevant(((ForAllAlways) formula).getFormula(), closure, relevant);
+			} else if (formula instanceof ExistsEventually) {
+				this.relevant(((ExistsEventually) formula).getFormula(), closure, relevant);
+			} else {
+				ExistsUntil existsUntil = (ExistsUntil) formula;
+				this.relevant(existsUntil.getLeft(), closure, relevant);
+				this.relevant(existsUntil.getRight(), closure, relevant);
+			}
+		}
+		// the values of true, false and aliases are decided in every state
+	}
+
+	/**
+	 * Returns the states that can be reached from the given states via states
+	 * in the given set.
+	 *
+	 * @param from the states to start from, which are contained in the given set
+	 * @param within the states that can be visited
+	 * @return the states that can be reached from the given states within the given set
+	 */
+	private StateSet closure(StateSet from, StateSet within) {
+		CompactSuccessors successors = this.system.getCompactSuccessors();
+		StateSet closure = from.copy();
+		int[] stack = new int[closure.cardinality()];
+		int size = 0;
+		for (int state = from.next(0); state != -1; state = from.next(state + 1)) {
+			stack[size++] = state;
+		}
+		while (size > 0) {
+			int state = stack[--size];
+			for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext();) {
+				int successor = iterator.nextInt();
+				if (within.contains(successor) && !closure.contains(successor)) {
+					closure.add(successor);
+					if (size == stack.length) {
+						stack = Arrays.copyOf(stack, 2 * size);
+					}
+					stack[size++] = successor;
+				}
+			}
+		}
+		return closure;
 	}
-}
\ No newline at end of file
+}
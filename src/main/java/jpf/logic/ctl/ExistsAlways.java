@@ -77,6 +77,11 @@ public class ExistsAlways extends CTLFormula {
 	public Set<String> getAliases() {
 		return this.formula.getAliases();
 	}
+	
+	@Override
+	public boolean isStutterInsensitive() {
+		return this.formula.isStutterInsensitive();
+	}
 
 	@Override
 	public CTLFormula simplify() {
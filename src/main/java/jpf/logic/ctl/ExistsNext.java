@@ -78,6 +78,11 @@ public class ExistsNext extends CTLFormula {
 		return this.formula.getAliases();
 	}
 	
+	@Override
+	public boolean isStutterInsensitive() {
+		return false;
+	}
+	
 	@Override
 	public CTLFormula simplify() {
 		CTLFormula formula = this.formula.simplify();
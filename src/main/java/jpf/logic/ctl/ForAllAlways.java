@@ -78,6 +78,11 @@ public class ForAllAlways extends CTLFormula {
 		return this.formula.getAliases();
 	}
 	
+	@Override
+	public boolean isStutterInsensitive() {
+		return this.formula.isStutterInsensitive();
+	}
+	
 	@Override
 	public CTLFormula simplify() {
 		CTLFormula formula = this.formula.simplify();
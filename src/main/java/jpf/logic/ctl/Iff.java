@@ -95,6 +95,11 @@ public class Iff extends CTLFormula {
 		return set;
 	}
 	
+	@Override
+	public boolean isStutterInsensitive() {
+		return this.left.isStutterInsensitive() && this.right.isStutterInsensitive();
+	}
+	
 	@Override
 	public CTLFormula simplify() {
 		return this;
@@ -95,6 +95,11 @@ public class Implies extends CTLFormula {
 		return set;
 	}
 	
+	@Override
+	public boolean isStutterInsensitive() {
+		return this.left.isStutterInsensitive() && this.right.isStutterInsensitive();
+	}
+	
 	@Override
 	public CTLFormula simplify() {
 		CTLFormula left = this.left.simplify();
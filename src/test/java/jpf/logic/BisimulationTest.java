@@ -0,0 +1,187 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+import jpf.logic.ctl.CTLFormula;
+import jpf.logic.ctl.CTLModelChecker;
+
+/**
+ * Tests the minimization of partial transition systems by bisimulation.
+ */
+class BisimulationTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	/**
+	 * Maximum number of states of the system that is copied.
+	 */
+	private static final int MAX_STATES = 100;
+
+	private static final Random random = new Random();
+
+	/**
+	 * Returns a random system with the given labels and random partially
+	 * explored states, in which each state s of the first half has a copy
+	 * s + n in the second half that is bisimilar to s.
+	 */
+	private static PartialTransitionSystem random(Set<String> labels) {
+		int states = 1 + random.nextInt(MAX_STATES);
+		int[] offsets = new int[2 * states + 1];
+		List<Integer> targets = new ArrayList<Integer>();
+		List<List<Integer>> post = new ArrayList<List<Integer>>();
+		for (int state = 0; state < states; state++) {
+			List<Integer> successors = new ArrayList<Integer>();
+			for (int successor = 0; successor < random.nextInt(4); successor++) {
+				successors.add(random.nextInt(states));
+			}
+			post.add(successors);
+		}
+		for (int state = 0; state < 2 * states; state++) {
+			for (int successor : post.get(state % states)) {
+				targets.add(random.nextBoolean() ? successor : successor + states);
+			}
+			offsets[state + 1] = targets.size();
+		}
+		CompactSuccessors successors = new CompactSuccessors(offsets, targets.stream().mapToInt(Integer::intValue).toArray());
+
+		BitSet partial = new BitSet();
+		for (int state = 0; state < states; state++) {
+			if (random.nextInt(4) == 0) {
+				partial.set(state);
+				partial.set(state + states);
+			}
+		}
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		for (String label : labels) {
+			BitSet labelled = new BitSet();
+			for (int state = 0; state < states; state++) {
+				if (random.nextBoolean()) {
+					labelled.set(state);
+					labelled.set(state + states);
+				}
+			}
+			labelling.put(label, new CompressedStateSet(labelled));
+		}
+		return new PartialTransitionSystem(2 * states, successors, partial, labelling);
+	}
+
+	/**
+	 * Returns the coarsest bisimulation of the given system, computed by
+	 * naively refining the partition by the blocks of the successors until it
+	 * is stable.
+	 */
+	private static int[] naive(PartialTransitionSystem system) {
+		int states = system.getNumberOfStates();
+		CompactSuccessors successors = system.getCompactSuccessors();
+		Map<List<Object>, Integer> blocks = new HashMap<List<Object>, Integer>();
+		int[] partition = new int[states];
+		for (int state = 0; state < states; state++) {
+			List<Object> signature = new ArrayList<Object>();
+			signature.add(system.getPartial().get(state));
+			signature.add(state < successors.getNumberOfStates() && successors.hasSuccessors(state));
+			for (String label : new TreeSet<String>(system.getLabelSets().keySet())) {
+				signature.add(system.getLabelSets().get(label).contains(state));
+			}
+			partition[state] = blocks.computeIfAbsent(signature, key -> blocks.size());
+		}
+		int numberOfBlocks;
+		do {
+			numberOfBlocks = blocks.size();
+			blocks.clear();
+			int[] refined = new int[states];
+			for (int state = 0; state < states; state++) {
+				Set<Integer> post = new TreeSet<Integer>();
+				if (state < successors.getNumberOfStates()) {
+					for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext(); ) {
+						post.add(partition[iterator.nextInt()]);
+					}
+				}
+				refined[state] = blocks.computeIfAbsent(Arrays.asList(partition[state], post), key -> blocks.size());
+			}
+			partition = refined;
+		} while (blocks.size() != numberOfBlocks);
+		return partition;
+	}
+
+	/**
+	 * Tests that the partition is the coarsest bisimulation.
+	 */
+	@RepeatedTest(TIMES)
+	void testPartition() {
+		Set<String> labels = new HashSet<String>(Arrays.asList("a", "b"));
+		PartialTransitionSystem system = random(labels);
+		Bisimulation bisimulation = new Bisimulation(system);
+		int[] actual = bisimulation.getPartition();
+		int[] expected = naive(system);
+		int states = system.getNumberOfStates();
+
+		// the partitions are the same if the blocks correspond one-to-one
+		Map<Integer, Integer> correspondence = new HashMap<Integer, Integer>();
+		for (int state = 0; state < states; state++) {
+			Integer block = correspondence.putIfAbsent(expected[state], actual[state]);
+			if (block != null) {
+				assertEquals(block, actual[state], system.toString());
+			}
+		}
+		assertEquals(new HashSet<Integer>(correspondence.values()).size(), correspondence.size(), system.toString());
+		assertEquals(correspondence.size(), bisimulation.getNumberOfBlocks());
+		for (int state = 0; state < states / 2; state++) {
+			assertEquals(actual[state], actual[state + states / 2]);
+		}
+	}
+
+	/**
+	 * Tests that model checking the quotient gives the same result as model
+	 * checking the system.
+	 */
+	@RepeatedTest(TIMES)
+	void testQuotient() {
+		CTLFormula formula = CTLFormula.random();
+		PartialTransitionSystem system = random(formula.getAliases());
+		Quotient quotient = new Quotient(system, new Bisimulation(system).getPartition());
+		assertTrue(quotient.getSystem().getNumberOfStates() <= system.getNumberOfStates() / 2);
+
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result expected = model.check(formula);
+		model = new CTLModelChecker();
+		model.setPartialTransitionSystem(quotient.getSystem());
+		Result actual = quotient.expand(model.check(formula));
+		assertEquals(expected.getLower(), actual.getLower(), "\n" + formula + "\n" + system);
+		assertEquals(expected.getUpper(), actual.getUpper(), "\n" + formula + "\n" + system);
+	}
+}
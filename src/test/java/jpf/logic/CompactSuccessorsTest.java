@@ -0,0 +1,113 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+/**
+ * Tests the class that stores the successors compactly.
+ */
+class CompactSuccessorsTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	/**
+	 * Maximum number of states.
+	 */
+	private static final int MAX_STATES = 1000;
+
+	private static final Random random = new Random();
+
+	/**
+	 * Returns random successors, some of which are far away from their source.
+	 *
+	 * @return for each state that has successors, its successors
+	 */
+	private static Map<Integer, BitSet> successors() {
+		int states = 1 + random.nextInt(MAX_STATES);
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
+		for (int source = 0; source < states; source++) {
+			int number = random.nextInt(4);
+			if (number > 0) {
+				BitSet post = new BitSet();
+				for (int successor = 0; successor < number; successor++) {
+					post.set(random.nextBoolean() ? random.nextInt(states) : random.nextInt(1 << 16));
+				}
+				successors.put(source, post);
+			}
+		}
+		return successors;
+	}
+
+	/**
+	 * Tests that the successors are decoded as they were encoded.
+	 */
+	@RepeatedTest(TIMES)
+	void testRoundTrip() {
+		Map<Integer, BitSet> expected = successors();
+		CompactSuccessors successors = new CompactSuccessors(expected);
+		assertEquals(expected, successors.toMap());
+		for (Map.Entry<Integer, BitSet> entry : expected.entrySet()) {
+			int state = entry.getKey();
+			BitSet post = entry.getValue();
+			assertTrue(successors.hasSuccessors(state));
+			assertEquals(post.cardinality(), successors.getNumberOfSuccessors(state));
+			PrimitiveIterator.OfInt iterator = successors.iterator(state);
+			for (int target = post.nextSetBit(0); target != -1; target = post.nextSetBit(target + 1)) {
+				assertEquals(target, iterator.nextInt());
+			}
+			assertFalse(iterator.hasNext());
+		}
+	}
+
+	/**
+	 * Tests intersects and subset against their counterparts on bit sets.
+	 */
+	@RepeatedTest(TIMES)
+	void testIntersectsAndSubset() {
+		Map<Integer, BitSet> map = successors();
+		CompactSuccessors successors = new CompactSuccessors(map);
+		BitSet set = new BitSet();
+		for (BitSet post : map.values()) {
+			for (int target = post.nextSetBit(0); target != -1; target = post.nextSetBit(target + 1)) {
+				if (random.nextBoolean()) {
+					set.set(target);
+				}
+			}
+		}
+		StateSet compressed = new CompressedStateSet(set);
+		for (int state = 0; state <= successors.getNumberOfStates(); state++) {
+			BitSet post = map.containsKey(state) ? map.get(state) : new BitSet();
+			BitSet difference = (BitSet) post.clone();
+			difference.andNot(set);
+			assertEquals(post.intersects(set), successors.intersects(state, compressed));
+			assertEquals(difference.isEmpty(), successors.subset(state, compressed));
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+/**
+ * Tests the compressed set of states against BitSet.
+ */
+class CompressedStateSetTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	/**
+	 * Maximum number of states.
+	 */
+	private static final int MAX_STATES = 1 << 18;
+
+	private static final Random random = new Random();
+
+	/**
+	 * Returns a random bit set which is sparse, dense or consists of a few intervals,
+	 * so that all kinds of containers are used.
+	 *
+	 * @param states the number of states
+	 * @return a random bit set
+	 */
+	private static BitSet random(int states) {
+		BitSet set = new BitSet();
+		switch (random.nextInt(3)) {
+		case 0:
+			for (int element = 0; element < 1 + random.nextInt(100); element++) {
+				set.set(random.nextInt(states));
+			}
+			break;
+		case 1:
+			for (int state = 0; state < states; state++) {
+				if (random.nextBoolean()) {
+					set.set(state);
+				}
+			}
+			break;
+		default:
+			for (int interval = 0; interval < random.nextInt(10); interval++) {
+				int from = random.nextInt(states);
+				set.set(from, from + random.nextInt(states - from + 1));
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Checks that the given compressed set and bit set contain the same states.
+	 */
+	private static void check(BitSet expected, CompressedStateSet actual) {
+		assertEquals(expected, actual.toBitSet());
+		assertEquals(expected.cardinality(), actual.cardinality());
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+		int state = expected.nextSetBit(0);
+		int next = actual.next(0);
+		while (state != -1) {
+			assertEquals(state, next);
+			assertTrue(actual.contains(state));
+			state = expected.nextSetBit(state + 1);
+			next = actual.next(next + 1);
+		}
+		assertEquals(-1, next);
+		assertEquals(new CompressedStateSet(expected), actual);
+		assertEquals(new CompressedStateSet(expected).hashCode(), actual.hashCode());
+	}
+
+	/**
+	 * Tests adding states and ranges of states.
+	 */
+	@RepeatedTest(TIMES)
+	void testAdd() {
+		int states = 1 + random.nextInt(MAX_STATES);
+		BitSet expected = new BitSet();
+		CompressedStateSet actual = new CompressedStateSet();
+		for (int operation = 0; operation < 1000; operation++) {
+			if (random.nextInt(100) == 0) {
+				int from = random.nextInt(states);
+				int to = from + random.nextInt(states - from + 1);
+				expected.set(from, to);
+				actual.add(from, to);
+			} else {
+				int state = random.nextInt(states);
+				expected.set(state);
+				actual.add(state);
+			}
+		}
+		check(expected, actual);
+	}
+
+	/**
+	 * Tests adding states next to, between and away from the runs of a set
+	 * consisting of a few intervals, and that a copy is not affected.
+	 */
+	@RepeatedTest(TIMES)
+	void testAddToRuns() {
+		int states = 1 + random.nextInt(MAX_STATES);
+		BitSet expected = new BitSet();
+		CompressedStateSet actual = new CompressedStateSet();
+		for (int interval = 0; interval < 1 + random.nextInt(10); interval++) {
+			int from = random.nextInt(states);
+			int to = from + random.nextInt(states - from + 1);
+			expected.set(from, to);
+			actual.add(from, to);
+		}
+		BitSet original = (BitSet) expected.clone();
+		CompressedStateSet copy = actual.copy();
+		for (int operation = 0; operation < 1000; operation++) {
+			int state;
+			if (random.nextBoolean()) { // next to a run
+				int run = expected.nextSetBit(random.nextInt(states));
+				state = run == -1 ? random.nextInt(states) : random.nextBoolean() ? expected.nextClearBit(run) : Math.max(0, run - 1);
+			} else {
+				state = random.nextInt(states);
+			}
+			expected.set(state);
+			actual.add(state);
+		}
+		check(expected, actual);
+		check(original, copy);
+	}
+
+	/**
+	 * Tests that adding consecutive states of a chunk extends a single run.
+	 */
+	@RepeatedTest(TIMES)
+	void testAddConsecutive() {
+		int from = (random.nextInt(MAX_STATES >>> 16) << 16) + 1 + random.nextInt(1000);
+		CompressedStateSet set = new CompressedStateSet();
+		set.add(from, from + 2);
+		for (int state = from + 2; state < from + 60000; state++) {
+			set.add(state);
+		}
+		set.add(from - 1);
+		BitSet expected = new BitSet();
+		expected.set(from - 1, from + 60000);
+		check(expected, set);
+		assertTrue(set.getSize() < 100);
+	}
+
+	/**
+	 * Tests the operations and, or, andNot, intersects and flip.
+	 */
+	@RepeatedTest(TIMES)
+	void testOperations() {
+		int states = 1 + random.nextInt(MAX_STATES);
+		BitSet first = random(states);
+		BitSet second = random(states);
+		CompressedStateSet compressedFirst = new CompressedStateSet(first);
+		CompressedStateSet compressedSecond = new CompressedStateSet(second);
+		check(first, compressedFirst);
+		assertEquals(first.intersects(second), compressedFirst.intersects(compressedSecond));
+
+		BitSet expected = (BitSet) first.clone();
+		expected.and(second);
+		CompressedStateSet actual = compressedFirst.copy();
+		actual.and(compressedSecond);
+		check(expected, actual);
+
+		expected = (BitSet) first.clone();
+		expected.or(second);
+		actual = compressedFirst.copy();
+		actual.or(compressedSecond);
+		check(expected, actual);
+
+		expected = (BitSet) first.clone();
+		expected.andNot(second);
+		actual = compressedFirst.copy();
+		actual.andNot(compressedSecond);
+		check(expected, actual);
+
+		int from = random.nextInt(states);
+		int to = from + random.nextInt(states - from + 1);
+		expected = (BitSet) first.clone();
+		expected.flip(from, to);
+		actual = compressedFirst.copy();
+		actual.flip(from, to);
+		check(expected, actual);
+
+		// the operations do not modify the operands
+		check(first, compressedFirst);
+		check(second, compressedSecond);
+	}
+
+	/**
+	 * Tests that the complement of a sparse set is small.
+	 */
+	@RepeatedTest(TIMES)
+	void testSparseComplement() {
+		int states = 1 + random.nextInt(MAX_STATES);
+		CompressedStateSet set = new CompressedStateSet();
+		for (int element = 0; element < 12; element++) {
+			set.add(random.nextInt(states));
+		}
+		set.flip(0, states);
+		assertTrue(set.getSize() < 1000);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the reuse of partial transition systems produced by earlier runs of JPF.
+ */
+class ExplorationCacheTest {
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Tests that the fingerprint depends on the properties of JPF and the class
+	 * files on the classpath, but not on the properties of jpf-logic other than
+	 * the aliases of the labels evaluated by the listener, the labelling,
+	 * whether the hashes of the states are recorded and the swarm.
+	 */
+	@Test
+	void testFingerprint() throws IOException {
+		File classes = new File(this.directory, "classes");
+		new File(classes, "example").mkdirs();
+		write(new File(classes, "example/Main.class"), "version 1");
+		write(new File(classes, "example/README"), "read me");
+
+		Properties properties = new Properties();
+		properties.setProperty("target", "example.Main");
+		properties.setProperty("classpath", classes.getPath());
+		properties.setProperty("target.args", "1,2,2");
+		String fingerprint = ExplorationCache.fingerprint(properties);
+		assertEquals(fingerprint, ExplorationCache.fingerprint(properties));
+
+		properties.setProperty("jpf.logic.formula", "example.ctl");
+		assertEquals(fingerprint, ExplorationCache.fingerprint(properties));
+
+		properties.setProperty("jpf.logic.aliases", "initial");
+		assertNotEquals(fingerprint, ExplorationCache.fingerprint(properties));
+		properties.remove("jpf.logic.aliases");
+
+		properties.setProperty("jpf.logic.hash", "true");
+		assertNotEquals(fingerprint, ExplorationCache.fingerprint(properties));
+		properties.remove("jpf.logic.hash");
+
+		properties.setProperty("jpf.logic.labelling", "builtin");
+		assertNotEquals(fingerprint, ExplorationCache.fingerprint(properties));
+		properties.remove("jpf.logic.labelling");
+
+		properties.setProperty("jpf.logic.swarm", "4");
+		String swarm = ExplorationCache.fingerprint(properties);
+		assertNotEquals(fingerprint, swarm);
+		properties.setProperty("jpf.logic.swarm.search", "gov.nasa.jpf.search.DFSearch");
+		assertNotEquals(swarm, ExplorationCache.fingerprint(properties));
+		properties.remove("jpf.logic.swarm");
+		properties.remove("jpf.logic.swarm.search");
+
+		write(new File(classes, "example/README"), "read me again");
+		assertEquals(fingerprint, ExplorationCache.fingerprint(properties));
+
+		properties.setProperty("target.args", "1,2,3");
+		assertNotEquals(fingerprint, ExplorationCache.fingerprint(properties));
+		properties.setProperty("target.args", "1,2,2");
+
+		write(new File(classes, "example/Main.class"), "version 2");
+		assertNotEquals(fingerprint, ExplorationCache.fingerprint(properties));
+	}
+
+	/**
+	 * Tests that a system is explored only if its fingerprint has been stored
+	 * and its .tra and .lab files exist.
+	 */
+	@Test
+	void testIsExplored() throws IOException {
+		String target = new File(this.directory, "example.Main").getPath();
+		ExplorationCache cache = new ExplorationCache(target);
+		assertFalse(cache.isExplored("abc"));
+
+		write(new File(target + ".tra"), "0 -> 0\n");
+		cache.store("abc");
+		assertFalse(cache.isExplored("abc")); // no .lab file
+
+		write(new File(target + ".lab"), "\n");
+		assertTrue(cache.isExplored("abc"));
+		assertFalse(cache.isExplored("def"));
+
+		cache.invalidate();
+		assertFalse(cache.isExplored("abc"));
+	}
+
+	/**
+	 * Writes the given contents to the given file.
+	 */
+	private static void write(File file, String contents) throws IOException {
+		PrintWriter writer = new PrintWriter(file);
+		writer.print(contents);
+		writer.close();
+	}
+}
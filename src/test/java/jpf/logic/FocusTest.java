@@ -0,0 +1,107 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the focus on the states that keep a verdict undecided.
+ */
+class FocusTest {
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Returns the system 0 -> 1 -> 2 -> 3, 0 -> 4, 1 -> 5 in which the states
+	 * 3, 4 and 5 are partially explored.
+	 */
+	private static PartialTransitionSystem system() {
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
+		int[][] transitions = { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 0, 4 }, { 1, 5 } };
+		for (int[] transition : transitions) {
+			successors.computeIfAbsent(transition[0], state -> new BitSet()).set(transition[1]);
+		}
+		BitSet partial = new BitSet();
+		partial.set(3, 6);
+		return new PartialTransitionSystem(6, new CompactSuccessors(successors), partial, Collections.emptyMap());
+	}
+
+	/**
+	 * Tests that the focus consists of the partially explored states that can
+	 * be reached via undecided states, and their shortest paths.
+	 */
+	@Test
+	void testRanks() {
+		BitSet lower = new BitSet();
+		lower.set(4); // 4 is decided
+		BitSet upper = new BitSet();
+		upper.set(0, 5); // 5 is decided
+		Focus focus = new Focus(system(), new Result(lower, upper));
+		Map<Integer, Integer> expected = new LinkedHashMap<Integer, Integer>();
+		for (int state = 0; state < 4; state++) {
+			expected.put(state, state);
+		}
+		assertEquals(expected, focus.getRanks());
+	}
+
+	/**
+	 * Tests that the focus is empty if the verdict is decided.
+	 */
+	@Test
+	void testDecided() {
+		BitSet lower = new BitSet();
+		lower.set(0, 6);
+		assertTrue(new Focus(system(), new Result(lower, lower)).getRanks().isEmpty());
+	}
+
+	/**
+	 * Tests that the focus is written and read in terms of the hashes of the states.
+	 */
+	@Test
+	void testWriteRead() throws IOException {
+		BitSet upper = new BitSet();
+		upper.set(0, 6);
+		Focus focus = new Focus(system(), new Result(new BitSet(), upper));
+		File hashes = new File(this.directory, "Main.hash");
+		PrintWriter writer = new PrintWriter(hashes);
+		for (int state = 0; state < 6; state++) {
+			writer.println(state + " " + Long.toHexString(-1L - state));
+		}
+		writer.close();
+		File file = new File(this.directory, "Main.focus");
+		assertEquals(6, focus.write(hashes.getPath(), file.getPath()));
+		Map<Long, Integer> ranks = Focus.read(file.getPath());
+		assertEquals(6, ranks.size());
+		assertEquals(0, ranks.get(-1L));
+		assertEquals(3, ranks.get(-1L - 3));
+		assertEquals(2, ranks.get(-1L - 5));
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+
+/**
+ * Tests the labels that can be evaluated by the listener of jpf-logic itself.
+ */
+class LabelTest {
+
+	@TempDir
+	File directory;
+
+	/**
+	 * A search that is moved by the test from state to state.
+	 */
+	private static class Sequence extends Search {
+		private int state;
+		private boolean isNew;
+		private boolean isEnd;
+
+		Sequence() {
+			super(new Config(new String[] {}), null);
+		}
+
+		/**
+		 * Moves this search to the given state.
+		 */
+		void move(int state, boolean isNew, boolean isEnd) {
+			this.state = state;
+			this.isNew = isNew;
+			this.isEnd = isEnd;
+		}
+
+		@Override
+		public int getStateId() {
+			return this.state;
+		}
+
+		@Override
+		public boolean isNewState() {
+			return this.isNew;
+		}
+
+		@Override
+		public boolean isEndState() {
+			return this.isEnd;
+		}
+
+		@Override
+		public void search() {
+		}
+	}
+
+	/**
+	 * Tests that the initial and end states, static fields, invoked methods and
+	 * thrown exceptions are evaluated by the listener, and other labels by jpf-label.
+	 */
+	@Test
+	void testIsBuiltIn() {
+		assertTrue(MyLabelParser.parse("Initial").isBuiltIn());
+		assertTrue(MyLabelParser.parse("End").isBuiltIn());
+		assertTrue(MyLabelParser.parse("BooleanStaticField java.lang.Boolean.TRUE true").isBuiltIn());
+		assertTrue(MyLabelParser.parse("InvokedMethod java.lang.Object.wait()").isBuiltIn());
+		assertTrue(MyLabelParser.parse("ThrownException java.lang.RuntimeException").isBuiltIn());
+		assertFalse(MyLabelParser.parse("ReturnedVoidMethod java.lang.Object.wait()").isBuiltIn());
+		assertFalse(MyLabelParser.parse("SynchronizedStaticMethod java.lang.System.exit(int)").isBuiltIn());
+	}
+
+	/**
+	 * Tests that the initial label holds in state 0 only and the end label
+	 * in end states only.
+	 */
+	@Test
+	void testHolds() {
+		Sequence search = new Sequence();
+		Label initial = MyLabelParser.parse("Initial");
+		Label end = MyLabelParser.parse("End");
+		search.move(0, true, false);
+		assertTrue(initial.holds(search));
+		assertFalse(end.holds(search));
+		search.move(1, true, true);
+		assertFalse(initial.holds(search));
+		assertTrue(end.holds(search));
+	}
+
+	/**
+	 * Tests that a static field does not have the value of the label as long
+	 * as its class has not been loaded.
+	 */
+	@Test
+	void testBooleanStaticField() {
+		assertFalse(((BooleanStaticField) MyLabelParser.parse("BooleanStaticField java.lang.Boolean.TRUE true")).holds((ClassLoaderInfo) null));
+		assertFalse(((BooleanStaticField) MyLabelParser.parse("BooleanStaticField java.lang.Boolean.TRUE false")).holds((ClassLoaderInfo) null));
+	}
+
+	/**
+	 * Tests that an invoked method matches the label if both its name and
+	 * the types of its arguments, as named by JPF, match, whatever the
+	 * whitespace in the label.
+	 */
+	@Test
+	void testIsInvoked() {
+		InvokedMethod wait = (InvokedMethod) MyLabelParser.parse("InvokedMethod java.lang.Object.wait()");
+		assertTrue(wait.isInvoked("java.lang.Object.wait", new String[] {}));
+		assertFalse(wait.isInvoked("java.lang.Object.wait", new String[] { "long" }));
+		assertFalse(wait.isInvoked("java.lang.Object.notify", new String[] {}));
+
+		InvokedMethod timed = (InvokedMethod) MyLabelParser.parse("InvokedMethod java.lang.Object.wait(long, int)");
+		assertTrue(timed.isInvoked("java.lang.Object.wait", new String[] { "long", "int" }));
+		assertFalse(timed.isInvoked("java.lang.Object.wait", new String[] { "int", "long" }));
+		assertFalse(timed.isInvoked("java.lang.Object.wait", new String[] { "long" }));
+
+		InvokedMethod arrays = (InvokedMethod) MyLabelParser.parse("InvokedMethod java.lang.System.arraycopy(java.lang.Object,int,java.lang.Object,int,int)");
+		assertTrue(arrays.isInvoked("java.lang.System.arraycopy", new String[] { "java.lang.Object", "int", "java.lang.Object", "int", "int" }));
+
+		InvokedMethod main = (InvokedMethod) MyLabelParser.parse("InvokedMethod jpf.logic.Main.main(java.lang.String[])");
+		assertTrue(main.isInvoked("jpf.logic.Main.main", new String[] { "java.lang.String[]" }));
+		assertFalse(main.isInvoked("jpf.logic.Main.main", new String[] { "java.lang.String" }));
+	}
+
+	/**
+	 * Tests that a thrown exception matches the label if its class is the
+	 * class of the label, but not if it is a subclass.
+	 */
+	@Test
+	void testIsThrown() {
+		ThrownException exception = (ThrownException) MyLabelParser.parse("ThrownException java.lang.RuntimeException");
+		assertTrue(exception.isThrown("java.lang.RuntimeException"));
+		assertFalse(exception.isThrown("java.lang.IllegalArgumentException"));
+		assertFalse(exception.isThrown("java.lang.Runtime"));
+	}
+
+	/**
+	 * Tests that the listener labels the states of the search 0 -> 1 -> 2,
+	 * 1 -> 3 -> 0, in which 2 is an end state, and writes the labelling in the
+	 * format of jpf-label.
+	 */
+	@Test
+	void testListener() throws IOException {
+		Config config = new Config(new String[] {});
+		config.setProperty("jpf.logic.aliases", "initial, end");
+		config.setProperty("jpf.logic.alias.initial", "Initial");
+		config.setProperty("jpf.logic.alias.end", "End");
+		PartialTransitionSystemListener listener = new PartialTransitionSystemListener(config);
+		String sut = new File(this.directory, "Example").getPath();
+		assertTrue(listener.open(sut));
+
+		Sequence search = new Sequence();
+		search.move(0, true, false);
+		listener.stateAdvanced(search);
+		search.move(1, true, false);
+		listener.stateAdvanced(search);
+		search.move(2, true, true);
+		listener.stateAdvanced(search);
+		search.move(1, false, false);
+		listener.stateBacktracked(search);
+		search.move(3, true, false);
+		listener.stateAdvanced(search);
+		search.move(0, false, false);
+		listener.stateAdvanced(search);
+		listener.searchFinished(search);
+
+		assertEquals(Arrays.asList("0=initial 1=end", "0: 0", "2: 1"), Files.readAllLines(new File(sut + ".lab").toPath()));
+	}
+
+	/**
+	 * Tests that a run of the listener with compression removes the
+	 * uncompressed files of an earlier run of the same target, and vice versa,
+	 * so that the system of the latest run is loaded.
+	 */
+	@Test
+	void testCompress() throws IOException {
+		String sut = new File(this.directory, "Example").getPath();
+		chain(sut, false, 2);
+		assertEquals(2, new PartialTransitionSystem(sut).getNumberOfStates());
+
+		chain(sut, true, 3);
+		assertFalse(new File(sut + ".tra").exists());
+		assertFalse(new File(sut + ".lab").exists());
+		assertEquals(sut + ".tra.gz", PartialTransitionSystem.find(sut + ".tra"));
+		assertEquals(3, new PartialTransitionSystem(sut).getNumberOfStates());
+
+		chain(sut, false, 4);
+		assertFalse(new File(sut + ".tra.gz").exists());
+		assertFalse(new File(sut + ".lab.gz").exists());
+		assertEquals(4, new PartialTransitionSystem(sut).getNumberOfStates());
+	}
+
+	/**
+	 * Runs the listener, labelling the initial state, for the search of the
+	 * chain 0 -> 1 -> ... -> n - 1 of the given number n of states.
+	 */
+	private static void chain(String sut, boolean compress, int states) {
+		Config config = new Config(new String[] {});
+		config.setProperty("jpf.logic.compress", "" + compress);
+		config.setProperty("jpf.logic.aliases", "initial");
+		config.setProperty("jpf.logic.alias.initial", "Initial");
+		PartialTransitionSystemListener listener = new PartialTransitionSystemListener(config);
+		assertTrue(listener.open(sut));
+		Sequence search = new Sequence();
+		for (int state = 0; state < states; state++) {
+			search.move(state, true, state == states - 1);
+			listener.stateAdvanced(search);
+		}
+		listener.searchFinished(search);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the generator of partial transition systems.
+ */
+class PartialTransitionSystemGeneratorTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	private static final Random random = new Random();
+
+	/**
+	 * Returns a generator with a random seed, partial ratio and labels.
+	 */
+	private static PartialTransitionSystemGenerator generator(long seed) {
+		Map<String, Double> labels = new HashMap<String, Double>();
+		labels.put("sparse", 0.001);
+		labels.put("dense", 0.9);
+		return new PartialTransitionSystemGenerator(seed, 0.2, labels);
+	}
+
+	/**
+	 * Tests that the same seed gives the same system.
+	 */
+	@RepeatedTest(TIMES)
+	void testSeed() {
+		long seed = random.nextLong();
+		int states = 1 + random.nextInt(1000);
+		int degree = random.nextInt(5);
+		PartialTransitionSystem system = generator(seed).random(states, degree);
+		assertEquals(system, generator(seed).random(states, degree));
+		assertEquals(states, system.getNumberOfStates());
+		assertTrue(system.getNumberOfTransitions() <= states * degree); // successors that coincide are identified
+		assertEquals(2, system.getLabelSets().size());
+	}
+
+	/**
+	 * Tests the chain.
+	 */
+	@RepeatedTest(TIMES)
+	void testChain() {
+		int states = 1 + random.nextInt(1000);
+		PartialTransitionSystem system = generator(random.nextLong()).chain(states);
+		assertEquals(states - 1, system.getNumberOfTransitions());
+		Map<Integer, BitSet> successors = system.getSuccessors();
+		for (int state = 0; state < states - 1; state++) {
+			BitSet post = new BitSet();
+			post.set(state + 1);
+			assertEquals(post, successors.get(state));
+		}
+		assertFalse(successors.containsKey(states - 1));
+	}
+
+	/**
+	 * Tests the grid.
+	 */
+	@RepeatedTest(TIMES)
+	void testGrid() {
+		int width = 1 + random.nextInt(30);
+		int height = 1 + random.nextInt(30);
+		PartialTransitionSystem system = generator(random.nextLong()).grid(width, height);
+		assertEquals(width * height, system.getNumberOfStates());
+		assertEquals((width - 1) * height + width * (height - 1), system.getNumberOfTransitions());
+	}
+
+	/**
+	 * Tests the nested strongly connected components.
+	 */
+	@RepeatedTest(TIMES)
+	void testComponents() {
+		int depth = 1 + random.nextInt(10);
+		int size = 1 + random.nextInt(100);
+		PartialTransitionSystem system = generator(random.nextLong()).components(depth, size);
+		assertEquals(depth * size, system.getNumberOfStates());
+		Map<Integer, BitSet> successors = system.getSuccessors();
+		for (int state = 0; state < depth * size; state++) {
+			BitSet post = successors.get(state);
+			int component = state / size;
+			assertTrue(post.get(component * size + (state + 1) % size));
+			assertTrue(post.nextSetBit(0) >= component * size);
+			assertTrue(post.length() <= (component + 1) * size + 1);
+		}
+	}
+
+	/**
+	 * Tests the interleavings of the threads.
+	 */
+	@Test
+	void testInterleavings() {
+		PartialTransitionSystem system = generator(random.nextLong()).interleavings(3, 4);
+		assertEquals(125, system.getNumberOfStates());
+		// each of the 3 threads takes 4 steps in each of the 25 combinations of steps of the other threads
+		assertEquals(3 * 4 * 25, system.getNumberOfTransitions());
+		assertFalse(system.getSuccessors().containsKey(124));
+		assertThrows(IllegalArgumentException.class, () -> generator(0).interleavings(32, 2));
+	}
+}
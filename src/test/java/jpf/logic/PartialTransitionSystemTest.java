@@ -20,8 +20,22 @@ package jpf.logic;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.jupiter.api.RepeatedTest;
 
@@ -81,4 +95,276 @@ class PartialTransitionSystemTest {
 			fail("Something went wrong with reading the file Example.tra or Example.lab");
 		}
 	}
+
+	@RepeatedTest(TIMES)
+	void testAliases() {
+		// create random transition system
+		PartialTransitionSystem expected = new PartialTransitionSystem();		
+		write(expected);
+		
+		Map<String, String> names = new HashMap<String, String>();
+		for (String label : expected.getLabelling().keySet()) {
+			names.put("\"true__" + label + "\"", label);
+		}
+		try {
+			PartialTransitionSystem actual = new PartialTransitionSystem("Example", names);
+			assertEquals(expected, actual);
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail("Something went wrong with reading the file Example.tra or Example.lab");
+		}
+	}
+
+	@RepeatedTest(TIMES)
+	void testLabels() {
+		// create random transition system
+		PartialTransitionSystem expected = new PartialTransitionSystem();		
+		write(expected);
+		
+		Map<String, String> names = new HashMap<String, String>();
+		Set<String> labels = new HashSet<String>();
+		for (String label : expected.getLabelling().keySet()) {
+			names.put("\"true__" + label + "\"", label);
+			if (label.hashCode() % 2 == 0) {
+				labels.add(label);
+			}
+		}
+		try {
+			PartialTransitionSystem actual = new PartialTransitionSystem("Example", names, labels);
+			assertEquals(labels, actual.getLabelling().keySet());
+			for (String label : labels) {
+				assertEquals(expected.getLabelling().get(label), actual.getLabelling().get(label));
+			}
+			assertEquals(expected.getSuccessors(), actual.getSuccessors());
+			assertEquals(expected.getPartial(), actual.getPartial());
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail("Something went wrong with reading the file Example.tra or Example.lab");
+		}
+	}
+
+	@RepeatedTest(TIMES)
+	void testCompressed() {
+		// create random transition system
+		PartialTransitionSystem expected = new PartialTransitionSystem();		
+		write(expected);
+		
+		Map<String, String> names = new HashMap<String, String>();
+		for (String label : expected.getLabelling().keySet()) {
+			names.put("\"true__" + label + "\"", label);
+		}
+		try {
+			for (String fileName : new String[] { "Example.tra", "Example.lab" }) {
+				byte[] content = Files.readAllBytes(Paths.get(fileName));
+				OutputStream output = new GZIPOutputStream(new FileOutputStream(fileName + ".gz"));
+				output.write(content);
+				output.close();
+				Files.delete(Paths.get(fileName));
+			}
+			PartialTransitionSystem actual = new PartialTransitionSystem("Example", names);
+			assertEquals(expected, actual);
+			Files.delete(Paths.get("Example.tra.gz"));
+			Files.delete(Paths.get("Example.lab.gz"));
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail("Something went wrong with compressing or reading the file Example.tra or Example.lab");
+		}
+	}
+
+	@RepeatedTest(TIMES)
+	void testWrite() {
+		// create random transition system
+		PartialTransitionSystem expected = new PartialTransitionSystem();
+		try {
+			expected.write("Example");
+			PartialTransitionSystem actual = new PartialTransitionSystem("Example");
+			assertEquals(expected, actual);
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail("Something went wrong with writing or reading the file Example.tra or Example.lab");
+		}
+	}
+
+	@RepeatedTest(TIMES)
+	void testCheckpoint() {
+		// create random transition system
+		PartialTransitionSystem expected = new PartialTransitionSystem();
+		try {
+			expected.write("Example");
+			StringBuilder segments = new StringBuilder();
+			for (Map.Entry<Integer, BitSet> entry : expected.getSuccessors().entrySet()) {
+				BitSet post = entry.getValue();
+				for (int target = post.nextSetBit(0); target != -1; target = post.nextSetBit(target + 1)) {
+					segments.append(entry.getKey() + PartialTransitionSystem.TRANSITION_SEPARATOR + target + "\n");
+				}
+			}
+			int length = segments.length();
+			segments.append("0" + PartialTransitionSystem.TRANSITION_SEPARATOR); // appended after the checkpoint
+			PrintWriter writer = new PrintWriter("Example" + PartialTransitionSystem.SEGMENTS);
+			writer.print(segments);
+			writer.close();
+			String labels = new String(Files.readAllBytes(Paths.get("Example.lab")));
+			int labelsLength = labels.length();
+			writer = new PrintWriter("Example" + PartialTransitionSystem.LABEL_SEGMENTS);
+			writer.print(labels + "0" + PartialTransitionSystem.LABEL_SEPARATOR + "0\n"); // appended after the checkpoint
+			writer.close();
+			Files.delete(Paths.get("Example.lab"));
+			writer = new PrintWriter("Example" + PartialTransitionSystem.CHECKPOINT);
+			writer.println(length + " " + expected.getNumberOfStates() + " " + expected.getNumberOfTransitions());
+			writer.println(expected.getPartial().toString().replaceAll("[{},]", ""));
+			writer.close();
+
+			// without the labelling, the checkpoint cannot be loaded unless no labels are kept
+			assertThrows(IOException.class, () -> PartialTransitionSystem.loadCheckpoint("Example", null, null));
+			assertTrue(PartialTransitionSystem.loadCheckpoint("Example", null, new HashSet<String>()).getLabelling().isEmpty());
+
+			writer = new PrintWriter("Example" + PartialTransitionSystem.CHECKPOINT);
+			writer.println(length + " " + expected.getNumberOfStates() + " " + expected.getNumberOfTransitions() + " " + labelsLength);
+			writer.println(expected.getPartial().toString().replaceAll("[{},]", ""));
+			writer.close();
+
+			PartialTransitionSystem actual = PartialTransitionSystem.loadCheckpoint("Example", null, null);
+			assertEquals(expected.getNumberOfStates(), actual.getNumberOfStates());
+			assertEquals(expected.getNumberOfTransitions(), actual.getNumberOfTransitions());
+			assertEquals(expected.getSuccessors(), actual.getSuccessors());
+			assertEquals(expected.getPartial(), actual.getPartial());
+			assertEquals(expected.getLabelling(), actual.getLabelling());
+
+			// segments that do not match the index are rejected
+			int maximum = 0;
+			for (Map.Entry<Integer, BitSet> entry : expected.getSuccessors().entrySet()) {
+				if (!entry.getValue().isEmpty()) {
+					maximum = Math.max(maximum, Math.max(entry.getKey(), entry.getValue().length() - 1));
+				}
+			}
+			if (expected.getNumberOfTransitions() > 0) {
+				writer = new PrintWriter("Example" + PartialTransitionSystem.CHECKPOINT);
+				writer.println(length + " " + expected.getNumberOfStates() + " " + (expected.getNumberOfTransitions() - 1) + " " + labelsLength);
+				writer.println();
+				writer.close();
+				assertThrows(IOException.class, () -> PartialTransitionSystem.loadCheckpoint("Example", null, null));
+
+				writer = new PrintWriter("Example" + PartialTransitionSystem.CHECKPOINT);
+				writer.println(length + " " + maximum + " " + expected.getNumberOfTransitions() + " " + labelsLength);
+				writer.println();
+				writer.close();
+				assertThrows(IOException.class, () -> PartialTransitionSystem.loadCheckpoint("Example", null, null));
+			}
+			writer = new PrintWriter("Example" + PartialTransitionSystem.CHECKPOINT);
+			writer.println(length + " " + expected.getNumberOfStates() + " " + expected.getNumberOfTransitions() + " " + labelsLength);
+			writer.println(expected.getNumberOfStates());
+			writer.close();
+			assertThrows(IOException.class, () -> PartialTransitionSystem.loadCheckpoint("Example", null, null));
+
+			Files.delete(Paths.get("Example" + PartialTransitionSystem.SEGMENTS));
+			Files.delete(Paths.get("Example" + PartialTransitionSystem.LABEL_SEGMENTS));
+			Files.delete(Paths.get("Example" + PartialTransitionSystem.CHECKPOINT));
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail("Something went wrong with writing or reading the checkpoint Example.checkpoint");
+		}
+	}
+
+	@RepeatedTest(TIMES)
+	void testUnion() {
+		// create random transition system and a renumbered copy with fewer partially explored states
+		PartialTransitionSystem first = new PartialTransitionSystem();
+		int numberOfStates = first.getNumberOfStates();
+		List<Integer> permutation = new ArrayList<Integer>();
+		for (int state = 1; state < numberOfStates; state++) {
+			permutation.add(state);
+		}
+		Collections.shuffle(permutation);
+		permutation.add(0, 0);
+
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
+		for (Map.Entry<Integer, BitSet> entry : first.getSuccessors().entrySet()) {
+			BitSet post = new BitSet();
+			for (int target = entry.getValue().nextSetBit(0); target != -1; target = entry.getValue().nextSetBit(target + 1)) {
+				post.set(permutation.get(target));
+			}
+			successors.put(permutation.get(entry.getKey()), post);
+		}
+		BitSet partial = new BitSet();
+		for (int state = first.getPartial().nextSetBit(0); state != -1; state = first.getPartial().nextSetBit(state + 1)) {
+			if (state % 2 == 0) {
+				partial.set(permutation.get(state));
+			}
+		}
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		for (Map.Entry<String, BitSet> entry : first.getLabelling().entrySet()) {
+			StateSet states = new CompressedStateSet();
+			for (int state = entry.getValue().nextSetBit(0); state != -1; state = entry.getValue().nextSetBit(state + 1)) {
+				states.add(permutation.get(state));
+			}
+			labelling.put(entry.getKey(), states);
+		}
+		PartialTransitionSystem second = new PartialTransitionSystem(numberOfStates, new CompactSuccessors(successors), partial, labelling);
+
+		// the hash of a state is its number in the first system
+		long[] firstHashes = new long[numberOfStates];
+		long[] secondHashes = new long[numberOfStates];
+		for (int state = 0; state < numberOfStates; state++) {
+			firstHashes[state] = state;
+			secondHashes[permutation.get(state)] = state;
+		}
+
+		Map<Long, Integer> identities = new HashMap<Long, Integer>();
+		PartialTransitionSystem union = PartialTransitionSystem.union(Arrays.asList(first, second), Arrays.asList(firstHashes, secondHashes), identities);
+		assertEquals(numberOfStates, union.getNumberOfStates());
+		assertEquals(first.getSuccessors(), union.getSuccessors());
+		assertEquals(first.getLabelling(), union.getLabelling());
+		BitSet expected = new BitSet();
+		for (int state = first.getPartial().nextSetBit(0); state != -1; state = first.getPartial().nextSetBit(state + 1)) {
+			if (state % 2 == 0) {
+				expected.set(state);
+			}
+		}
+		assertEquals(expected, union.getPartial());
+		for (int state = 0; state < numberOfStates; state++) {
+			assertEquals(state, identities.get((long) state));
+		}
+	}
+
+	/**
+	 * Writes the given system to the files Example.tra and Example.lab.  In the
+	 * latter, each label is replaced by a mangled name and a label that is not
+	 * used by any state is added.
+	 * 
+	 * @param system a partial transition system
+	 */
+	private static void write(PartialTransitionSystem system) {
+		String[] part = system.toString().split("\n");
+		int index = 0;
+		try {
+			PrintWriter writer = new PrintWriter("Example.tra");
+			// number of states and transitions
+			writer.println(part[index]);
+			index++;
+			// transitions
+			while (part[index].contains(PartialTransitionSystem.TRANSITION_SEPARATOR)) {
+				writer.println(part[index]);
+				index++;
+			}
+			// partially explored states
+			writer.println(part[index]);
+			index++;
+			writer.close();
+		} catch (FileNotFoundException e) {
+			fail("Something went wrong with writing to the file Example.tra");
+		}
+		
+		try {
+			PrintWriter writer = new PrintWriter("Example.lab");
+			writer.println(part[index].replaceAll("=(\\w+)", "=\"true__$1\"") + "99=unused");
+			index++;
+			while (index < part.length) {
+				writer.println(part[index]);
+				index++;
+			}
+			writer.close();
+		} catch (FileNotFoundException e) {
+			fail("Something went wrong with writing to the file Example.lab");
+		}
+	}
 }
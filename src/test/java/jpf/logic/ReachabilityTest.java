@@ -0,0 +1,107 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.PrimitiveIterator;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+import jpf.logic.ctl.CTLFormula;
+import jpf.logic.ctl.CTLModelChecker;
+
+/**
+ * Tests the removal of the states that cannot be reached and the renumbering
+ * of the other states.
+ */
+class ReachabilityTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	/**
+	 * Tests that the quotient consists of the states that can be reached,
+	 * numbered in breadth first order.
+	 */
+	@RepeatedTest(TIMES)
+	void testOrder() {
+		PartialTransitionSystem system = new PartialTransitionSystem(new HashSet<String>());
+		Reachability reachability = new Reachability(system);
+		Quotient quotient = new Quotient(system, reachability.getPartition());
+		PartialTransitionSystem pruned = quotient.getSystem();
+		assertEquals(reachability.getNumberOfReachable(), pruned.getNumberOfStates());
+		assertEquals(system.getDistances(new CompressedStateSet(allStates(system))).size(), pruned.getNumberOfStates());
+
+		// in breadth first order, the successors of a state that are new follow all earlier states
+		int next = 1;
+		for (int state = 0; state < pruned.getNumberOfStates(); state++) {
+			CompactSuccessors successors = pruned.getCompactSuccessors();
+			if (state < successors.getNumberOfStates()) {
+				for (PrimitiveIterator.OfInt iterator = successors.iterator(state); iterator.hasNext(); ) {
+					int successor = iterator.nextInt();
+					assertTrue(successor <= next, system.toString());
+					if (successor == next) {
+						next++;
+					}
+				}
+			}
+		}
+		assertEquals(pruned.getNumberOfStates(), next);
+	}
+
+	/**
+	 * Tests that model checking the quotient gives the same result as model
+	 * checking the system for the states that can be reached.
+	 */
+	@RepeatedTest(TIMES)
+	void testQuotient() {
+		CTLFormula formula = CTLFormula.random();
+		PartialTransitionSystem system = new PartialTransitionSystem(formula.getAliases());
+		Quotient quotient = new Quotient(system, new Reachability(system).getPartition());
+
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result expected = model.check(formula);
+		model = new CTLModelChecker();
+		model.setPartialTransitionSystem(quotient.getSystem());
+		Result actual = quotient.expand(model.check(formula));
+		for (int state = 0; state < system.getNumberOfStates(); state++) {
+			if (quotient.getState(state) == -1) {
+				assertFalse(actual.getLowerSet().contains(state));
+				assertTrue(actual.getUpperSet().contains(state));
+			} else {
+				assertEquals(expected.getLowerSet().contains(state), actual.getLowerSet().contains(state), "\n" + formula + "\n" + system);
+				assertEquals(expected.getUpperSet().contains(state), actual.getUpperSet().contains(state), "\n" + formula + "\n" + system);
+			}
+		}
+	}
+
+	/**
+	 * Returns all states of the given system.
+	 */
+	private static BitSet allStates(PartialTransitionSystem system) {
+		BitSet states = new BitSet();
+		states.set(0, system.getNumberOfStates());
+		return states;
+	}
+}
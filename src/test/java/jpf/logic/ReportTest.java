@@ -0,0 +1,49 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the report of a run.
+ */
+class ReportTest {
+
+	/**
+	 * Tests that the report is written as a JSON object with its sections in order.
+	 */
+	@Test
+	void testToString() {
+		Report report = new Report();
+		report.put("verdict", "may hold");
+		report.put("system", "states", 3);
+		report.put("formula", "\"a\" \\ b");
+		report.put("system", "partial", true);
+		String expected = "{\n"
+				+ "  \"verdict\": \"may hold\",\n"
+				+ "  \"system\": {\n"
+				+ "    \"states\": 3,\n"
+				+ "    \"partial\": true\n"
+				+ "  },\n"
+				+ "  \"formula\": \"\\\"a\\\" \\\\ b\"\n"
+				+ "}";
+		assertEquals(expected, report.toString());
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jpf.logic.ctl.Alias;
+import jpf.logic.ctl.And;
+import jpf.logic.ctl.Not;
+
+/**
+ * Tests the on-disk cache of results.
+ */
+class ResultCacheTest {
+
+	private static final int TIMES = 100;
+	private static final int MAX_STATES = 1 << 16;
+
+	private static final Random random = new Random();
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Returns a random set of states.
+	 */
+	private static BitSet random() {
+		BitSet set = new BitSet();
+		int states = random.nextInt(MAX_STATES);
+		for (int state = 0; state < states; state++) {
+			if (random.nextInt(4) == 0) {
+				set.set(state);
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Tests that a result that is put in the cache is retrieved.
+	 */
+	@RepeatedTest(TIMES)
+	void testGet() throws IOException {
+		ResultCache cache = new ResultCache(this.directory.getPath(), Long.MAX_VALUE);
+		BitSet lower = random();
+		BitSet upper = random();
+		upper.or(lower);
+		cache.put("key", new Result(lower, upper));
+		Result result = cache.get("key");
+		assertEquals(lower, result.getLower());
+		assertEquals(upper, result.getUpper());
+		assertNull(cache.get("other"));
+	}
+
+	/**
+	 * Tests that the least recently used results are evicted.
+	 */
+	@Test
+	void testEvict() throws IOException {
+		BitSet set = random();
+		ResultCache cache = new ResultCache(this.directory.getPath(), Long.MAX_VALUE);
+		cache.put("first", new Result(set, set));
+		long size = new File(this.directory, "first.res").length();
+
+		cache = new ResultCache(this.directory.getPath(), 2 * size);
+		new File(this.directory, "first.res").setLastModified(1000);
+		cache.put("second", new Result(set, set));
+		new File(this.directory, "second.res").setLastModified(2000);
+		assertNotNull(cache.get("first")); // first is now the most recently used
+		cache.put("third", new Result(set, set));
+		assertNotNull(cache.get("first"));
+		assertNull(cache.get("second"));
+		assertNotNull(cache.get("third"));
+	}
+
+	/**
+	 * Tests that the key depends on the system, the aliases, the reductions and
+	 * the formula.
+	 */
+	@Test
+	void testKey() throws IOException {
+		String fileName = new File(this.directory, "system").getPath();
+		write(fileName + ".tra", "0 -> 1\n1 -> 1\n");
+		write(fileName + ".lab", "0=a 1=b\n0: 0\n1: 1\n");
+		Map<String, String> names = new HashMap<String, String>();
+		names.put("a", "p");
+		Formula formula = new And(new Alias("p"), new Alias("p"));
+		String checker = "jpf.logic.ctl.CTLModelChecker";
+
+		List<String> none = Collections.emptyList();
+
+		String key = ResultCache.key(fileName, names, checker, none, formula);
+		assertEquals(key, ResultCache.key(fileName, new HashMap<String, String>(names), checker, none, new And(new Alias("p"), new Alias("p"))));
+		assertNotEquals(key, ResultCache.key(fileName, names, checker, none, new Not(new Alias("p"))));
+		assertNotEquals(key, ResultCache.key(fileName, names, checker, Arrays.asList("reachable"), formula));
+		assertNotEquals(ResultCache.key(fileName, names, checker, Arrays.asList("bisimulation"), formula), ResultCache.key(fileName, names, checker, Arrays.asList("bisimulation", "reachable"), formula));
+		names.put("b", "q");
+		assertNotEquals(key, ResultCache.key(fileName, names, checker, none, formula));
+		names.remove("b");
+		write(fileName + ".tra", "0 -> 1\n1 -> 0\n");
+		assertNotEquals(key, ResultCache.key(fileName, names, checker, none, formula));
+	}
+
+	/**
+	 * Writes the given contents to the file with the given name.
+	 */
+	private static void write(String fileName, String contents) throws IOException {
+		PrintWriter writer = new PrintWriter(fileName);
+		writer.print(contents);
+		writer.close();
+	}
+}
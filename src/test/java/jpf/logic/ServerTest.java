@@ -0,0 +1,110 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the jpf-logic server and its cache of partial transition systems.
+ */
+class ServerTest {
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Tests that the server responds to each request with the token, rejects
+	 * the requests without it, and stops when it is shut down.
+	 */
+	@Test
+	void testRespond() throws IOException, InterruptedException {
+		Logger logger = Logger.getLogger("jpf-logic-test");
+		logger.setLevel(Level.OFF);
+		File tokenFile = new File(this.directory, "server.token");
+		Server server = new Server(0, 2, 1, tokenFile, logger);
+		Thread thread = new Thread(server::run);
+		thread.start();
+		String token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.US_ASCII).trim();
+		assertEquals(64, token.length());
+		if (tokenFile.toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+		}
+
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		PrintWriter output = new PrintWriter(socket.getOutputStream(), true);
+		String missing = new File("missing.jpf").getPath();
+		output.println("check " + missing);
+		assertEquals("error Token is invalid", input.readLine());
+		output.println("shutdown");
+		assertEquals("error Token is invalid", input.readLine());
+		output.println(token.substring(1) + " shutdown");
+		assertEquals("error Token is invalid", input.readLine());
+		output.println(token + " check " + missing);
+		assertEquals("error Configuration file " + missing + " cannot be found", input.readLine());
+		output.println(token + " check " + missing + " missing.ctl");
+		assertEquals("error Configuration file " + missing + " cannot be found", input.readLine());
+		output.println(token + " verify " + missing);
+		assertEquals("error Request verify " + missing + " is invalid", input.readLine());
+		output.println(token + " shutdown");
+		assertEquals("bye", input.readLine());
+		assertNull(input.readLine());
+		socket.close();
+
+		thread.join(10000);
+		assertFalse(thread.isAlive());
+		assertFalse(tokenFile.exists());
+	}
+
+	/**
+	 * Tests that the cache of systems evicts the least recently used system.
+	 */
+	@Test
+	void testSystemCache() {
+		PartialTransitionSystemGenerator generator = new PartialTransitionSystemGenerator(0, 0.1, Collections.emptyMap());
+		PartialTransitionSystem first = generator.chain(10);
+		PartialTransitionSystem second = generator.chain(20);
+		PartialTransitionSystem third = generator.chain(30);
+		SystemCache cache = new SystemCache(2);
+		cache.put("first", first);
+		cache.put("second", second);
+		assertSame(first, cache.get("first"));
+		cache.put("third", third);
+		assertEquals(2, cache.size());
+		assertSame(first, cache.get("first"));
+		assertNull(cache.get("second"));
+		assertSame(third, cache.get("third"));
+	}
+}
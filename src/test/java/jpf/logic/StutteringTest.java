@@ -0,0 +1,168 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import jpf.logic.ctl.CTLFormula;
+import jpf.logic.ctl.CTLFormulaParser;
+import jpf.logic.ctl.CTLModelChecker;
+
+/**
+ * Tests the compression of stuttering chains of partial transition systems.
+ */
+class StutteringTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	/**
+	 * Maximum number of states.
+	 */
+	private static final int MAX_STATES = 100;
+
+	private static final Random random = new Random();
+
+	/**
+	 * Returns a random system with the given labels and random partially
+	 * explored states, in which many states have a single successor and the
+	 * labels of consecutive states are often the same.
+	 */
+	private static PartialTransitionSystem random(Set<String> labels) {
+		int states = 1 + random.nextInt(MAX_STATES);
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
+		BitSet partial = new BitSet();
+		for (int state = 0; state < states; state++) {
+			BitSet post = new BitSet();
+			if (random.nextBoolean()) {
+				post.set(random.nextInt(4) == 0 ? random.nextInt(states) : (state + 1) % states);
+			} else {
+				for (int successor = 0; successor < random.nextInt(4); successor++) {
+					post.set(random.nextInt(states));
+				}
+			}
+			if (!post.isEmpty()) {
+				successors.put(state, post);
+			}
+			if (random.nextInt(8) == 0) {
+				partial.set(state);
+			}
+		}
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		for (String label : labels) {
+			BitSet labelled = new BitSet();
+			boolean value = random.nextBoolean();
+			for (int state = 0; state < states; state++) {
+				if (random.nextInt(5) == 0) {
+					value = !value;
+				}
+				labelled.set(state, value);
+			}
+			labelling.put(label, new CompressedStateSet(labelled));
+		}
+		return new PartialTransitionSystem(states, new CompactSuccessors(successors), partial, labelling);
+	}
+
+	/**
+	 * Tests that formulas are insensitive to stuttering if and only if they do
+	 * not contain next operators.
+	 */
+	@Test
+	void testStutterInsensitive() {
+		CTLFormulaParser parser = new CTLFormulaParser();
+		assertTrue(parser.parse("true").isStutterInsensitive());
+		assertTrue(parser.parse("EG (a && (a EU b))").isStutterInsensitive());
+		assertTrue(parser.parse("AF ! (a <-> AG b)").isStutterInsensitive());
+		assertFalse(parser.parse("EX a").isStutterInsensitive());
+		assertFalse(parser.parse("AG (a || AX b)").isStutterInsensitive());
+		assertFalse(parser.parse("a EU (EF EX b)").isStutterInsensitive());
+	}
+
+	/**
+	 * Tests that a chain is merged with the state at its end and that a cycle
+	 * becomes a single state with a transition to itself.
+	 */
+	@Test
+	void testChains() {
+		Map<Integer, BitSet> successors = new HashMap<Integer, BitSet>();
+		for (int state = 0; state < 4; state++) {
+			successors.put(state, new BitSet());
+			successors.get(state).set(state + 1);
+		}
+		successors.put(4, new BitSet());
+		successors.get(4).set(2); // 0 -> 1 -> 2 -> 3 -> 4 -> 2
+		successors.put(5, new BitSet());
+		successors.get(5).set(6); // 5 -> 6
+		BitSet labelled = new BitSet();
+		labelled.set(0);
+		Map<String, StateSet> labelling = new HashMap<String, StateSet>();
+		labelling.put("a", new CompressedStateSet(labelled));
+		BitSet partial = new BitSet();
+		partial.set(5);
+		PartialTransitionSystem system = new PartialTransitionSystem(7, new CompactSuccessors(successors), partial, labelling);
+
+		Stuttering stuttering = new Stuttering(system);
+		int[] partition = stuttering.getPartition();
+		assertEquals(0, partition[0]); // 0 and 1 have different labels
+		assertEquals(partition[2], partition[1]);
+		assertEquals(partition[2], partition[3]);
+		assertEquals(partition[2], partition[4]);
+		assertEquals(5, partition[5]); // 5 is partially explored
+		assertEquals(6, partition[6]);
+
+		PartialTransitionSystem compressed = new Quotient(system, partition, stuttering.getSources()).getSystem();
+		assertEquals(4, compressed.getNumberOfStates());
+		assertEquals(3, compressed.getNumberOfTransitions());
+		assertEquals(1, compressed.getCompactSuccessors().iterator(1).nextInt());
+	}
+
+	/**
+	 * Tests that model checking the compressed system gives the same result as
+	 * model checking the system for formulas without next operators.
+	 */
+	@RepeatedTest(TIMES)
+	void testQuotient() {
+		CTLFormula formula;
+		do {
+			formula = CTLFormula.random(3);
+		} while (!formula.isStutterInsensitive());
+		PartialTransitionSystem system = random(formula.getAliases());
+		Stuttering stuttering = new Stuttering(system);
+		Quotient quotient = new Quotient(system, stuttering.getPartition(), stuttering.getSources());
+
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result expected = model.check(formula);
+		model = new CTLModelChecker();
+		model.setPartialTransitionSystem(quotient.getSystem());
+		Result actual = quotient.expand(model.check(formula));
+		assertEquals(expected.getLower(), actual.getLower(), "\n" + formula + "\n" + system);
+		assertEquals(expected.getUpper(), actual.getUpper(), "\n" + formula + "\n" + system);
+	}
+}
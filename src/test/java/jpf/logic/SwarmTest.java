@@ -0,0 +1,84 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the exploration by a swarm of runs of JPF.
+ */
+class SwarmTest {
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Tests that the runs take the search classes in turn, have different seeds,
+	 * record the hashes of the states and do not inherit the properties of the
+	 * swarm and the focus.
+	 */
+	@Test
+	void testConfiguration() throws CheckException {
+		Properties properties = new Properties();
+		properties.setProperty("target", "example.Main");
+		properties.setProperty("jpf.logic.swarm", "3");
+		properties.setProperty("jpf.logic.swarm.search", "first | second");
+		properties.setProperty("jpf.logic.focus.rounds", "2");
+		Swarm swarm = new Swarm("example.jpf", properties, Logger.getLogger("test"));
+		assertEquals(3, swarm.getSize());
+
+		String[] searches = { "first", "second", "first" };
+		for (int index = 0; index < swarm.getSize(); index++) {
+			Properties configuration = swarm.getConfiguration(index);
+			assertEquals("example.Main", configuration.getProperty("target"));
+			assertEquals(searches[index], configuration.getProperty("search.class"));
+			assertEquals("" + index, configuration.getProperty("cg.seed"));
+			assertEquals("true", configuration.getProperty("jpf.logic.hash"));
+			assertNull(configuration.getProperty("jpf.logic.swarm"));
+			assertNull(configuration.getProperty("jpf.logic.swarm.search"));
+			assertNull(configuration.getProperty("jpf.logic.focus.rounds"));
+		}
+
+		properties.setProperty("jpf.logic.swarm", "many");
+		assertThrows(CheckException.class, () -> new Swarm("example.jpf", properties, Logger.getLogger("test")));
+	}
+
+	/**
+	 * Tests that the hashes of all states are read.
+	 */
+	@Test
+	void testReadHashes() throws IOException {
+		File file = new File(this.directory, "example.Main.hash");
+		PrintWriter writer = new PrintWriter(file);
+		writer.println("0 " + Long.toHexString(-1L));
+		writer.println("2 2a");
+		writer.println("1 ff");
+		writer.close();
+		assertArrayEquals(new long[] { -1L, 0xff, 0x2a }, Swarm.readHashes(file.getPath(), 3));
+		assertThrows(IOException.class, () -> Swarm.readHashes(file.getPath(), 4));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the runs of jpf-logic for a grid of configurations.
+ */
+class SweepTest {
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Tests that the grid consists of all combinations of the values.
+	 */
+	@Test
+	void testExpand() {
+		Properties properties = new Properties();
+		properties.setProperty("target", "jpf.logic.examples.Main");
+		properties.setProperty("jpf.logic.sweep.target.args", "1,1,1 | 1,2,2");
+		properties.setProperty("jpf.logic.sweep.search.class", "gov.nasa.jpf.search.DFSearch|gov.nasa.jpf.search.heuristic.BFSHeuristic");
+		List<Map<String, String>> grid = Sweep.expand(properties);
+		assertEquals(4, grid.size());
+		assertEquals("gov.nasa.jpf.search.DFSearch", grid.get(0).get("search.class"));
+		assertEquals("1,1,1", grid.get(0).get("target.args"));
+		assertEquals("1,2,2", grid.get(1).get("target.args"));
+		assertEquals("gov.nasa.jpf.search.heuristic.BFSHeuristic", grid.get(3).get("search.class"));
+		assertEquals(Arrays.asList("search.class", "target.args"), Arrays.asList(grid.get(0).keySet().toArray()));
+
+		assertEquals(1, Sweep.expand(new Properties()).size());
+	}
+
+	/**
+	 * Tests that each configuration is run in its own directory and that a
+	 * failed run is reported as an error in the table.
+	 */
+	@Test
+	void testRun() throws IOException, CheckException {
+		File file = new File(this.directory, "sample.jpf");
+		PrintWriter writer = new PrintWriter(file);
+		writer.println("jpf.logic.sweep.target.args = 1 | 2");
+		writer.println("jpf.logic.parallel = 2");
+		writer.close();
+		Logger logger = Logger.getLogger("jpf-logic-test");
+		logger.setLevel(Level.OFF);
+
+		Sweep sweep = new Sweep(file.getPath(), logger);
+		assertEquals(Arrays.asList("error", "error"), sweep.run());
+		File sweepDirectory = new File(this.directory, "sample.sweep");
+		for (int index = 0; index < 2; index++) {
+			Properties configuration = new Properties();
+			configuration.load(Files.newInputStream(new File(sweepDirectory, index + "/configuration.jpf").toPath()));
+			assertEquals("" + (index + 1), configuration.getProperty("target.args"));
+			assertNull(configuration.getProperty("jpf.logic.sweep.target.args"));
+		}
+		List<String> table = Files.readAllLines(new File(sweepDirectory, "results.csv").toPath());
+		assertEquals(3, table.size());
+		assertEquals("target.args,directory,verdict", table.get(0));
+		assertTrue(table.get(2).startsWith("2,") && table.get(2).endsWith(",error"));
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C)  2022
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package jpf.logic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the class that reads the transitions of a partial transition system.
+ */
+class TransitionReaderTest {
+
+	/**
+	 * The number of times a test involving randomness is repeated.
+	 */
+	private static final int TIMES = 100;
+
+	/**
+	 * Maximum number of states of a random file.
+	 */
+	private static final int MAX_STATES = 1000;
+
+	/**
+	 * Maximum number of threads.
+	 */
+	private static final int MAX_THREADS = 8;
+
+	private static final Random random = new Random();
+
+	/**
+	 * Tests that the file is read correctly when it is split into many small chunks.
+	 */
+	@RepeatedTest(TIMES)
+	void testChunks() {
+		int states = 1 + random.nextInt(MAX_STATES);
+		int transitions = random.nextInt(4 * states);
+		List<int[]> expected = new ArrayList<int[]>();
+		BitSet partial = new BitSet();
+		try {
+			PrintWriter writer = new PrintWriter("Example.tra");
+			writer.println(states + " " + transitions);
+			for (int transition = 0; transition < transitions; transition++) {
+				int source = random.nextInt(states);
+				int target = random.nextInt(states);
+				expected.add(new int[] { source, target });
+				writer.println(source + PartialTransitionSystem.TRANSITION_SEPARATOR + target);
+			}
+			StringBuilder line = new StringBuilder();
+			for (int state = 0; state < states; state++) {
+				if (random.nextBoolean()) {
+					partial.set(state);
+					line.append(state + " ");
+				}
+			}
+			writer.println(line.toString().trim());
+			writer.close();
+		} catch (FileNotFoundException e) {
+			fail("Something went wrong with writing to the file Example.tra");
+		}
+
+		try {
+			TransitionReader reader = new TransitionReader("Example.tra", 1 + random.nextInt(MAX_THREADS), 1 + random.nextInt(64));
+			assertEquals(states, reader.getNumberOfStates());
+			assertEquals(transitions, reader.getNumberOfTransitions());
+			assertEquals(partial, reader.getPartial());
+			int[] offsets = reader.getOffsets();
+			int[] targets = reader.getTargets();
+			assertEquals(transitions, targets.length);
+			// the counting sort is stable, so the targets of a source are in file order
+			int[] next = offsets.clone();
+			for (int[] transition : expected) {
+				assertEquals(transition[1], targets[next[transition[0]]++]);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			fail("Something went wrong with reading the file Example.tra");
+		}
+	}
+
+	/**
+	 * Tests that a file that is not in the correct format is rejected.
+	 */
+	@Test
+	void testIncorrectFormat() {
+		String[] contents = { "", "1 1\n", "2 1\n0 - 1\n\n", "2 1\n0 -> 1\n0 -> \n\n", "2 1\n0 -> 1\n1 x\n" };
+		for (String content : contents) {
+			try {
+				PrintWriter writer = new PrintWriter("Example.tra");
+				writer.print(content);
+				writer.close();
+			} catch (FileNotFoundException e) {
+				fail("Something went wrong with writing to the file Example.tra");
+			}
+			assertThrows(IOException.class, () -> new TransitionReader("Example.tra", 2, 1), content);
+		}
+	}
+}
@@ -20,11 +20,13 @@ package jpf.logic.ctl;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.BitSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.jupiter.api.RepeatedTest;
 
 import jpf.logic.PartialTransitionSystem;
+import jpf.logic.Profile;
 import jpf.logic.Result;
 
 /**
@@ -786,7 +788,121 @@ public class CTLModelCheckerTest {
 		Result result = model.check(formula);
 		assertTrue(subset(result.getLower(), result.getUpper()), "lower is not a subset of upper for formula\n" + formula + "\nand system\n" + system);
 	}
-	
+
+	/**
+	 * Tests the profile of a random formula for a random system. 
+	 */
+	@RepeatedTest(CASES)
+	public void testProfile() {
+		CTLFormula formula = CTLFormula.random();
+		PartialTransitionSystem system = new PartialTransitionSystem(formula.getAliases());
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result result = model.check(formula);
+		Profile profile = model.getProfile();
+		assertEquals(formula.simplify().toString(), profile.getFormula());
+		assertFalse(profile.isCached());
+		assertEquals(result.getLower().cardinality(), profile.getLower());
+		assertEquals(result.getUpper().cardinality(), profile.getUpper());
+
+		model.check(formula);
+		profile = model.getProfile();
+		assertTrue(profile.isCached());
+		assertTrue(profile.getChildren().isEmpty());
+		assertEquals(1, profile.getCacheHits());
+		assertEquals(0, profile.getCacheMisses());
+	}	
+
+	/**
+	 * Tests that the relevant states of a random formula for a random system are
+	 * partially explored states, in order of distance, and that only they can
+	 * decide a verdict that may hold: the verdict remains undecided if all other
+	 * states are considered to be fully explored.
+	 */
+	@RepeatedTest(CASES)
+	public void testRelevant() {
+		CTLFormula formula = CTLFormula.random();
+		PartialTransitionSystem system = new PartialTransitionSystem(formula.getAliases());
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result result = model.check(formula);
+		Map<Integer, Integer> relevant = model.getRelevant(formula);
+		boolean undecided = result.getUpper().get(0) && !result.getLower().get(0);
+		if (!undecided) {
+			assertTrue(relevant.isEmpty(), formula + "\n" + system);
+		} else {
+			assertFalse(relevant.isEmpty(), formula + "\n" + system);
+			BitSet partial = new BitSet();
+			int distance = 0;
+			for (Map.Entry<Integer, Integer> entry : relevant.entrySet()) {
+				assertTrue(system.getPartial().get(entry.getKey()));
+				assertTrue(distance <= entry.getValue());
+				distance = entry.getValue();
+				partial.set(entry.getKey());
+			}
+			PartialTransitionSystem refined = new PartialTransitionSystem(system.getNumberOfStates(), system.getCompactSuccessors(), partial, system.getLabelSets());
+			CTLModelChecker refinedModel = new CTLModelChecker();
+			refinedModel.setPartialTransitionSystem(refined);
+			Result refinedResult = refinedModel.check(formula);
+			assertTrue(refinedResult.getUpper().get(0) && !refinedResult.getLower().get(0), formula + "\n" + system + "\n" + relevant);
+		}
+	}
+
+	/**
+	 * Tests that the lower- and upperbounds coincide for a random system 
+	 * without partially explored states, and that they agree with the bounds
+	 * computed for the same system extended with an unreachable partially
+	 * explored state, for which the bounds are computed separately.
+	 */
+	@RepeatedTest(CASES)
+	public void testExplored() {
+		CTLFormula formula = CTLFormula.random();
+		PartialTransitionSystem random = new PartialTransitionSystem(formula.getAliases());
+		int states = random.getNumberOfStates();
+		PartialTransitionSystem system = new PartialTransitionSystem(states, random.getCompactSuccessors(), new BitSet(), random.getLabelSets());
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result result = model.check(formula);
+		assertEquals(result.getLower(), result.getUpper(), formula + "\n" + system);
+
+		BitSet partial = new BitSet();
+		partial.set(states);
+		PartialTransitionSystem extended = new PartialTransitionSystem(states + 1, random.getCompactSuccessors(), partial, random.getLabelSets());
+		CTLModelChecker extendedModel = new CTLModelChecker();
+		extendedModel.setPartialTransitionSystem(extended);
+		Result extendedResult = extendedModel.check(formula);
+		assertEquals(result.getLower(), extendedResult.getLower().get(0, states), formula + "\n" + system);
+		assertEquals(result.getUpper(), extendedResult.getUpper().get(0, states), formula + "\n" + system);
+	}
+
+	/**
+	 * Tests that, for a random system with random partially explored states,
+	 * the lowerbound is a subset of the upperbound and that they coincide in
+	 * the states from which no partially explored state can be reached.
+	 */
+	@RepeatedTest(CASES)
+	public void testGap() {
+		CTLFormula formula = CTLFormula.random();
+		PartialTransitionSystem random = new PartialTransitionSystem(formula.getAliases());
+		BitSet partial = new BitSet();
+		for (int state = 0; state < random.getNumberOfStates(); state++) {
+			if (Math.random() < 0.2) {
+				partial.set(state);
+			}
+		}
+		PartialTransitionSystem system = new PartialTransitionSystem(random.getNumberOfStates(), random.getCompactSuccessors(), partial, random.getLabelSets());
+		CTLModelChecker model = new CTLModelChecker();
+		model.setPartialTransitionSystem(system);
+		Result result = model.check(formula);
+		BitSet lower = result.getLower();
+		BitSet upper = result.getUpper();
+		assertTrue(subset(lower, upper), formula + "\n" + system);
+		BitSet gap = system.getReaching(partial).toBitSet();
+		lower.andNot(gap);
+		upper.andNot(gap);
+		assertEquals(lower, upper, formula + "\n" + system);
+	}
+
 	/**
 	 * Tests whether the smaller set is a subset of the larger set.
 	 * 